@@ -0,0 +1,231 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache of mcpx-cli output on a node, shared by every executor and agent process using
+ * the same directory.
+ * <p>
+ * Entries are keyed by registry base URL and request (listing page or server name) and expire
+ * after the controller's cache TTL, judged by file modification time. Writes go to a temporary
+ * file that is atomically renamed into place, so readers never see a partial entry and need no
+ * lock. Filling a missing entry holds an exclusive file lock for that entry, so processes that miss
+ * at the same time run mcpx-cli once and the others read its result.
+ */
+public final class McpxAgentCache {
+    private static final Logger LOGGER = Logger.getLogger(McpxAgentCache.class.getName());
+
+    /**
+     * Directory under the node's root path holding the cache.
+     */
+    static final String DIRECTORY = "mcpx-cache";
+
+    // Temporary files younger than this may still be being written by another process
+    static final long STALE_TEMP_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    // Last sweep of expired entries per cache directory in this JVM
+    private static final Map<File, Long> LAST_SWEEP = new ConcurrentHashMap<>();
+
+    // File locks are held per JVM, so threads of this JVM also take a lock stripe for the entry
+    private static final int STRIPES = 64;
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private final File dir;
+    private final long ttlMillis;
+
+    McpxAgentCache(File dir, long ttlMillis) {
+        this.dir = dir;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Produces the value of a missing entry, typically by running mcpx-cli.
+     */
+    @FunctionalInterface
+    interface Loader {
+        String load() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Cache for a node, in {@link #DIRECTORY} under its root path; null if caching is disabled.
+     */
+    static McpxAgentCache forRoot(File root, long ttlMillis) {
+        return root != null && ttlMillis > 0 ? new McpxAgentCache(new File(root, DIRECTORY), ttlMillis) : null;
+    }
+
+    /**
+     * The cached value, or null if it is missing, expired or unreadable.
+     */
+    String getIfPresent(String key) {
+        return getIfPresent(key, 0);
+    }
+
+    /**
+     * The cached value, or null if it is missing, expired, unreadable or written before
+     * {@code notBefore} (epoch millis by this node's clock), e.g. because the server was republished since.
+     */
+    String getIfPresent(String key, long notBefore) {
+        Path entry = entry(key);
+        try {
+            long modified = Files.getLastModifiedTime(entry).toMillis();
+            long age = System.currentTimeMillis() - modified;
+            // Modification times may be truncated to whole seconds, so a second's grace avoids
+            // reloading an entry written just after notBefore on every lookup
+            if (age < 0 || age >= ttlMillis || modified < notBefore - 1000) {
+                return null;
+            }
+            return new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Unreadable cache entry " + entry + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached value, running the loader if it is missing or expired, or always when
+     * {@code refresh} is set. The loaded value is stored for the other executors on the node.
+     */
+    String get(String key, boolean refresh, Loader loader) throws IOException, InterruptedException {
+        return get(key, refresh, 0, loader);
+    }
+
+    /**
+     * Like {@link #get(String, boolean, Loader)}, also reloading entries written before {@code notBefore}.
+     */
+    String get(String key, boolean refresh, long notBefore, Loader loader) throws IOException, InterruptedException {
+        if (!refresh) {
+            String cached = getIfPresent(key, notBefore);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Files.createDirectories(dir.toPath());
+        Path lockFile = dir.toPath().resolve(name(key) + ".lock");
+        ReentrantLock local = LOCKS[Math.floorMod(lockFile.hashCode(), STRIPES)];
+        local.lockInterruptibly();
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            if (!refresh) {
+                // Another thread or process may have filled the entry while this one waited for the lock
+                String cached = getIfPresent(key, notBefore);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            String value = loader.load();
+            put(key, value);
+            return value;
+        } finally {
+            local.unlock();
+        }
+    }
+
+    /**
+     * Stores a value, replacing the entry atomically.
+     */
+    void put(String key, String value) throws IOException {
+        Path target = entry(key);
+        Files.createDirectories(dir.toPath());
+        Path tmp = Files.createTempFile(dir.toPath(), name(key), ".tmp");
+        try {
+            Files.write(tmp, value.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        sweep();
+    }
+
+    /**
+     * Deletes expired entries, lock files older than the TTL that nobody holds, and temporary files
+     * left behind by a process that died while writing, at most once per TTL per directory.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        Long last = LAST_SWEEP.get(dir);
+        if (last != null && now - last < ttlMillis) {
+            return;
+        }
+        LAST_SWEEP.put(dir, now);
+        File[] files = dir.listFiles((d, n) -> n.endsWith(".json") || n.endsWith(".lock") || n.endsWith(".tmp"));
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            long age = now - f.lastModified();
+            String n = f.getName();
+            boolean stale = n.endsWith(".tmp") ? age >= Math.max(ttlMillis, STALE_TEMP_MILLIS)
+                    : age >= ttlMillis && (!n.endsWith(".lock") || isUnlocked(f));
+            if (stale && !f.delete()) {
+                LOGGER.log(Level.FINE, "Could not delete expired cache file " + f);
+            }
+        }
+    }
+
+    /**
+     * Whether no process holds the lock file now. A process that opens it between this check and
+     * its deletion locks a file nobody else will see, which at worst runs mcpx-cli twice for one entry.
+     */
+    private static boolean isUnlocked(File lockFile) {
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            // Held by a thread of this JVM
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path entry(String key) {
+        return dir.toPath().resolve(name(key) + ".json");
+    }
+
+    /**
+     * File name for a key: keys contain URLs and server names, so they are hashed.
+     */
+    private static String name(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.Util;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Job;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.modelcontextprotocol.jenkins.parameters.McpxServerParameterDefinition;
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms the server list and details caches after Jenkins starts.
+ * <p>
+ * Without it, the first users to open each job's parameters or start a build after a restart all
+ * pay cold mcpx-cli fetches at the same moment. Jobs selecting a server (job property) or offering
+ * an MCP server parameter are grouped by their registry and CLI overrides; each group's server list
+ * is loaded once and the details of the servers it names are fetched together, a few groups at a
+ * time, in the background.
+ */
+public final class McpxCacheWarmer {
+    private static final Logger LOGGER = Logger.getLogger(McpxCacheWarmer.class.getName());
+
+    /**
+     * Groups of jobs warmed at the same time.
+     */
+    static final int MAX_PARALLEL = Math.max(1, Integer.getInteger(McpxCacheWarmer.class.getName() + ".maxParallel", 2));
+
+    /**
+     * Set to skip warming at startup.
+     */
+    static final boolean DISABLED = Boolean.getBoolean(McpxCacheWarmer.class.getName() + ".disabled");
+
+    private McpxCacheWarmer() {
+    }
+
+    /**
+     * Jobs sharing registry and CLI settings, represented by the first of them, and the servers
+     * they name.
+     */
+    static final class Target {
+        final Job<?, ?> job;
+        final Set<String> servers = new LinkedHashSet<>();
+
+        Target(Job<?, ?> job) {
+            this.job = job;
+        }
+    }
+
+    /**
+     * Warms the caches for one target.
+     */
+    @FunctionalInterface
+    interface Warmer {
+        void warm(Target target) throws Exception;
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void warmOnStartup() {
+        if (DISABLED) {
+            return;
+        }
+        // Scanning jobs is quick; the fetches must not hold up startup
+        ExecutorService starter = Executors.newSingleThreadExecutor(new NamingThreadFactory(new DaemonThreadFactory(), "McpxCacheWarmer"));
+        starter.execute(() -> warm(plan(Jenkins.get().getAllItems(Job.class)), MAX_PARALLEL, McpxCacheWarmer::warm));
+        starter.shutdown();
+    }
+
+    /**
+     * Groups the jobs that use MCPX by their registry and CLI overrides.
+     */
+    static List<Target> plan(Iterable<? extends Job> jobs) {
+        Map<String, Target> targets = new LinkedHashMap<>();
+        for (Job<?, ?> job : jobs) {
+            McpxJobProperty jp = job.getProperty(McpxJobProperty.class);
+            Set<String> servers = new LinkedHashSet<>();
+            boolean lists = false;
+            if (jp != null && Util.fixEmptyAndTrim(jp.getSelectedServer()) != null) {
+                servers.add(jp.getSelectedServer().trim());
+            }
+            ParametersDefinitionProperty params = job.getProperty(ParametersDefinitionProperty.class);
+            if (params != null && params.getParameterDefinitions() != null) {
+                for (ParameterDefinition def : params.getParameterDefinitions()) {
+                    if (def instanceof McpxServerParameterDefinition) {
+                        // The parameter page shows the server list
+                        lists = true;
+                        String defaultServer = Util.fixEmptyAndTrim(((McpxServerParameterDefinition) def).getDefaultServer());
+                        if (defaultServer != null) {
+                            servers.add(defaultServer);
+                        }
+                    }
+                }
+            }
+            if (servers.isEmpty() && !lists) {
+                continue;
+            }
+            // Jobs without a property and jobs whose property overrides nothing use the same settings
+            String key = jp != null ? Util.fixNull(Util.fixEmptyAndTrim(jp.getRegistryBaseUrl())) + "\n" + Util.fixNull(Util.fixEmptyAndTrim(jp.getCliPath())) : "\n";
+            targets.computeIfAbsent(key, k -> new Target(job)).servers.addAll(servers);
+        }
+        return new ArrayList<>(targets.values());
+    }
+
+    /**
+     * Warms the targets, {@code maxParallel} at a time, logging progress and the total duration.
+     * @return the number of targets that failed
+     */
+    static int warm(List<Target> targets, int maxParallel, Warmer warmer) {
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        int servers = 0;
+        for (Target t : targets) {
+            servers += t.servers.size();
+        }
+        LOGGER.log(Level.INFO, "Warming MCPX caches for " + targets.size() + " job setting(s) and " + servers + " server(s)");
+        long started = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int step = Math.max(1, targets.size() / 10);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxParallel, targets.size()),
+                new NamingThreadFactory(new DaemonThreadFactory(), "McpxCacheWarmer.warm"));
+        try {
+            for (Target target : targets) {
+                // Warming yields to page loads and builds under the registry rate limit
+                executor.execute(McpxRateLimiter.withPriority(McpxRateLimiter.Priority.BACKGROUND, () -> {
+                    try {
+                        warmer.warm(target);
+                    } catch (InterruptedException e) {
+                        failed.incrementAndGet();
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        LOGGER.log(Level.FINE, "Failed to warm MCPX caches for " + target.job.getFullName() + ": " + e.getMessage(), e);
+                    }
+                    int n = done.incrementAndGet();
+                    if (n % step == 0 && n < targets.size()) {
+                        LOGGER.log(Level.INFO, "Warmed MCPX caches for " + n + "/" + targets.size() + " job setting(s)");
+                    }
+                }));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.log(Level.INFO, "Warmed MCPX caches for " + done.get() + "/" + targets.size() + " job setting(s) in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms (" + failed.get() + " failed)");
+        return failed.get();
+    }
+
+    private static void warm(Target target) throws Exception {
+        McpxRegistryClient client = new McpxRegistryClient();
+        // Errors are reported in the list model rather than thrown
+        client.fetchServers(target.job);
+        if (!target.servers.isEmpty()) {
+            client.getServerDetails(target.job, target.servers);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Circuit breaker per registry, wrapped around the whole fetch chain (agents, then controller).
+ * <p>
+ * After {@link #FAILURE_THRESHOLD} consecutive failed fetches the circuit opens and fetches for
+ * that registry fail immediately with {@link OpenException} instead of trying every node in turn;
+ * the caches keep serving the last known-good lists and details meanwhile. Once the open interval
+ * has passed, a single probe fetch is let through (half-open): if it succeeds the circuit closes,
+ * otherwise it opens again for twice as long, up to {@link #MAX_OPEN_MILLIS}.
+ * <p>
+ * Only failures to reach the registry count: connection failures, timeouts and server (5xx)
+ * errors, whether reported by the HTTP client or in mcpx-cli's error output. Client errors the
+ * registry answered (such as an unknown server or a rejected login) close the circuit like a
+ * success. Cancelled fetches, fetches held back by {@link McpxRateLimiter} or the node's process
+ * limit, and failures of the node rather than the registry (an mcpx-cli crash, a lost agent
+ * channel, an error output that names no cause) are not counted either way.
+ */
+public final class McpxCircuitBreaker {
+    private static final Logger LOGGER = Logger.getLogger(McpxCircuitBreaker.class.getName());
+
+    /**
+     * Consecutive failed fetches that open the circuit.
+     */
+    static final int FAILURE_THRESHOLD = Math.max(1, Integer.getInteger(McpxCircuitBreaker.class.getName() + ".failureThreshold", 5));
+
+    /**
+     * How long the circuit first stays open before a probe is let through.
+     */
+    static final long OPEN_MILLIS = TimeUnit.SECONDS.toMillis(
+            Math.max(1, Integer.getInteger(McpxCircuitBreaker.class.getName() + ".openSeconds", 30)));
+    static final long MAX_OPEN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final McpxCircuitBreaker INSTANCE = new McpxCircuitBreaker(System::nanoTime, FAILURE_THRESHOLD, OPEN_MILLIS);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * What a failed fetch says about the registry.
+     */
+    enum Verdict { ANSWERED, UNAVAILABLE, UNKNOWN }
+
+    // mcpx-cli error output when the registry could not be reached or did not answer in time
+    private static final Pattern CLI_UNAVAILABLE = Pattern.compile(
+            "connection (refused|reset|closed)|no such host|could not resolve|unknown host|no route to host|network is unreachable"
+                    + "|timed? ?out|deadline exceeded|\\beof\\b|tls handshake|\\b(5\\d\\d|408|429)\\b"
+                    + "|service unavailable|bad gateway|internal server error|too many requests",
+            Pattern.CASE_INSENSITIVE);
+
+    // mcpx-cli error output when the registry answered with a client error
+    private static final Pattern CLI_ANSWERED = Pattern.compile(
+            "\\b4\\d\\d\\b|not found|no such server|unauthori[sz]ed|forbidden|not logged in|login required"
+                    + "|(token|session) (has )?(expired|invalid)|bad request|invalid (argument|request|server name)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A fetch from the registry.
+     */
+    @FunctionalInterface
+    public interface Fetch<T> {
+        T call() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Thrown instead of fetching while the circuit for a registry is open.
+     */
+    public static final class OpenException extends IOException {
+        OpenException(String registry, long retryInMillis) {
+            super("Registry " + registry + " is unavailable; retrying in " + Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryInMillis)) + " s");
+        }
+    }
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final int threshold;
+    private final long openMillis;
+
+    McpxCircuitBreaker(LongSupplier clock, int threshold, long openMillis) {
+        this.clock = clock;
+        this.threshold = threshold;
+        this.openMillis = openMillis;
+    }
+
+    public static McpxCircuitBreaker get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs a fetch from the registry through its circuit.
+     * @throws OpenException if the circuit is open, or half-open with a probe already running
+     */
+    public <T> T call(String registry, Fetch<T> fetch) throws IOException, InterruptedException {
+        Circuit circuit = circuits.computeIfAbsent(registry, k -> new Circuit());
+        boolean probe = circuit.acquire(registry, clock.getAsLong());
+        try {
+            T result = fetch.call();
+            circuit.success(registry);
+            return result;
+        } catch (InterruptedException e) {
+            circuit.release(probe);
+            throw e;
+        } catch (InterruptedIOException e) {
+            if (Thread.currentThread().isInterrupted() || e instanceof McpxProcessLimiter.NoSlotException) {
+                circuit.release(probe);
+            } else {
+                circuit.failure(registry, clock.getAsLong());
+            }
+            throw e;
+        } catch (McpxRateLimiter.ThrottledException e) {
+            // Never sent, so it says nothing about the registry
+            circuit.release(probe);
+            throw e;
+        } catch (IOException e) {
+            switch (classify(e)) {
+                case ANSWERED:
+                    circuit.success(registry);
+                    break;
+                case UNAVAILABLE:
+                    circuit.failure(registry, clock.getAsLong());
+                    break;
+                default:
+                    circuit.release(probe);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuit.release(probe);
+            throw e;
+        }
+    }
+
+    public State state(String registry) {
+        Circuit circuit = circuits.get(registry);
+        return circuit != null ? circuit.state() : State.CLOSED;
+    }
+
+    /**
+     * Whether fetches for the registry are currently failing fast (open or half-open).
+     */
+    public boolean isOpen(String registry) {
+        return state(registry) != State.CLOSED;
+    }
+
+    void clear() {
+        circuits.clear();
+    }
+
+    /**
+     * Whether the registry answered, could not be reached, or the failure says nothing about it.
+     * Failover wraps the last node's failure, so the cause chain is searched.
+     */
+    static Verdict classify(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof McpxHttpRegistryClient.StatusException) {
+                int status = ((McpxHttpRegistryClient.StatusException) t).getStatus();
+                return status >= 400 && status < 500 && status != 408 && status != 429 ? Verdict.ANSWERED : Verdict.UNAVAILABLE;
+            }
+            if (t instanceof McpxProcessRunner.FailedException) {
+                return classify((McpxProcessRunner.FailedException) t);
+            }
+            if (t instanceof McpxRateLimiter.ThrottledException || t instanceof McpxProcessLimiter.NoSlotException) {
+                // Never sent
+                return Verdict.UNKNOWN;
+            }
+            if (t instanceof InterruptedIOException || t instanceof ConnectException
+                    || t instanceof UnknownHostException || t instanceof NoRouteToHostException) {
+                return Verdict.UNAVAILABLE;
+            }
+        }
+        // Other I/O errors from the HTTP client count, those of the node do not
+        return McpxNodeHealth.isNodeFault(e) ? Verdict.UNKNOWN : Verdict.UNAVAILABLE;
+    }
+
+    /**
+     * Classifies a failed mcpx-cli command by its error output. Unavailability is checked first,
+     * since a connection error may well name a port such as 443.
+     */
+    private static Verdict classify(McpxProcessRunner.FailedException e) {
+        if (e.isCrash()) {
+            return Verdict.UNKNOWN;
+        }
+        String stderr = e.getStderr() != null ? e.getStderr() : "";
+        if (CLI_UNAVAILABLE.matcher(stderr).find()) {
+            return Verdict.UNAVAILABLE;
+        }
+        if (CLI_ANSWERED.matcher(stderr).find()) {
+            return Verdict.ANSWERED;
+        }
+        return Verdict.UNKNOWN;
+    }
+
+    private final class Circuit {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long currentOpenMillis;
+        private long retryAtNanos;
+        private boolean probing;
+
+        /**
+         * @return whether the caller is the half-open probe
+         */
+        synchronized boolean acquire(String registry, long nowNanos) throws OpenException {
+            if (state == State.OPEN && nowNanos - retryAtNanos >= 0) {
+                state = State.HALF_OPEN;
+            }
+            if (state == State.CLOSED) {
+                return false;
+            }
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                LOGGER.log(Level.FINE, "Probing registry " + registry);
+                return true;
+            }
+            throw new OpenException(registry, TimeUnit.NANOSECONDS.toMillis(Math.max(0, retryAtNanos - nowNanos)));
+        }
+
+        synchronized void success(String registry) {
+            if (state != State.CLOSED) {
+                LOGGER.log(Level.INFO, "Registry " + registry + " is available again; closing its circuit");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            currentOpenMillis = 0;
+            probing = false;
+        }
+
+        synchronized void failure(String registry, long nowNanos) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN) {
+                // The probe failed: stay away twice as long
+                currentOpenMillis = Math.min(MAX_OPEN_MILLIS, currentOpenMillis * 2);
+            } else if (state == State.CLOSED && consecutiveFailures >= threshold) {
+                currentOpenMillis = openMillis;
+            } else {
+                return;
+            }
+            state = State.OPEN;
+            probing = false;
+            retryAtNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(currentOpenMillis);
+            LOGGER.log(Level.WARNING, "Registry " + registry + " failed " + consecutiveFailures
+                    + " consecutive fetches; serving cached data for " + currentOpenMillis + " ms");
+        }
+
+        synchronized void release(boolean probe) {
+            if (probe) {
+                // Let the next caller probe instead
+                probing = false;
+            }
+        }
+
+        synchronized State state() {
+            return state;
+        }
+    }
+}
@@ -4,13 +4,29 @@ import hudson.Util;
 import hudson.model.TaskListener;
 import hudson.util.ArgumentListBuilder;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class McpxCliClient {
+    private static final Logger LOGGER = Logger.getLogger(McpxCliClient.class.getName());
+
+    // CLI paths whose mcpx-cli rejected the paging flags; they list the whole catalog at once
+    private static final Set<String> UNPAGED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Runs an mcpx-cli command.
+     */
+    @FunctionalInterface
+    interface Command {
+        McpxProcessRunner.Result run(List<String> command) throws IOException, InterruptedException;
+    }
+
     private final String cliPath;
 
     public McpxCliClient(String cliPath) {
@@ -27,15 +43,23 @@ public class McpxCliClient {
         args.add(cliPath);
         args.add("--version");
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        int exitCode = execute(args, output, null);
-        if (exitCode != 0) {
-            throw new IOException("mcpx-cli --version failed with exit code " + exitCode);
+        McpxProcessRunner.Result result = execute("version", args, null);
+        if (result.getExitCode() != 0) {
+            throw new McpxProcessRunner.FailedException(args.toList(), result);
         }
-        return output.toString(StandardCharsets.UTF_8).trim();
+        return result.getStdout().trim();
     }
 
     public String listServers(String baseUrl) throws IOException, InterruptedException {
+        return listServers(baseUrl, null, 0);
+    }
+
+    /**
+     * Lists one page of servers using {@code --cursor} and {@code --limit}; see {@link #listPage}.
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the page size, or 0 to list everything at once
+     */
+    public String listServers(String baseUrl, String cursor, int limit) throws IOException, InterruptedException {
         ArgumentListBuilder args = new ArgumentListBuilder();
         args.add(cliPath);
         if (baseUrl != null && !baseUrl.isEmpty()) {
@@ -43,13 +67,57 @@ public class McpxCliClient {
         }
         args.add("servers");
         args.add("--json");
+        return listPage(cliPath, args.toList(), cursor, limit, command -> executeWithSession("servers", baseUrl, command));
+    }
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        int exitCode = execute(args, output, null);
-        if (exitCode != 0) {
-            throw new IOException("mcpx-cli servers failed with exit code " + exitCode);
+    /**
+     * Runs a listing command for one page, adding {@code --limit} and {@code --cursor}. When the CLI
+     * reports the paging flags as unknown, the first page is listed again without them (the whole
+     * catalog, which parses as a single last page), and the CLI path is remembered so later
+     * listings skip the paging attempt. Any other failure is reported as it is, and a continuation
+     * request is never sent without its cursor.
+     * @param listing the listing command without paging flags
+     */
+    static String listPage(String cliPath, List<String> listing, String cursor, int limit, Command runner) throws IOException, InterruptedException {
+        boolean paged = cursor != null || (limit > 0 && !UNPAGED.contains(cliPath));
+        List<String> command = new ArrayList<>(listing);
+        if (paged) {
+            if (limit > 0) {
+                command.add("--limit");
+                command.add(String.valueOf(limit));
+            }
+            if (cursor != null) {
+                command.add("--cursor");
+                command.add(cursor);
+            }
+        }
+        McpxProcessRunner.Result result = runner.run(command);
+        if (result.getExitCode() != 0 && paged && cursor == null && rejectsPagingFlags(result)) {
+            LOGGER.log(Level.INFO, "mcpx-cli at " + cliPath + " does not support paging; listing the whole catalog at once");
+            UNPAGED.add(cliPath);
+            command = listing;
+            result = runner.run(command);
+        }
+        if (result.getExitCode() != 0) {
+            throw new McpxProcessRunner.FailedException(command, result);
         }
-        return output.toString(StandardCharsets.UTF_8);
+        return result.getStdout();
+    }
+
+    /**
+     * Whether the CLI failed because it does not know {@code --limit} or {@code --cursor}.
+     */
+    static boolean rejectsPagingFlags(McpxProcessRunner.Result result) {
+        String stderr = result.getStderr().toLowerCase(Locale.ROOT);
+        boolean unknownFlag = stderr.contains("unknown flag") || stderr.contains("unknown option")
+                || stderr.contains("unrecognized option") || stderr.contains("unrecognized argument")
+                || stderr.contains("no such option") || stderr.contains("flag provided but not defined")
+                || stderr.contains("unexpected argument");
+        return unknownFlag && (stderr.contains("limit") || stderr.contains("cursor"));
+    }
+
+    static void clearPagingSupport() {
+        UNPAGED.clear();
     }
 
     public String getServerDetails(String baseUrl, String serverName) throws IOException, InterruptedException {
@@ -62,12 +130,11 @@ public class McpxCliClient {
         args.add(serverName);
         args.add("--json");
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        int exitCode = execute(args, output, null);
-        if (exitCode != 0) {
-            throw new IOException("mcpx-cli server failed with exit code " + exitCode);
+        McpxProcessRunner.Result result = executeWithSession("server", baseUrl, args.toList());
+        if (result.getExitCode() != 0) {
+            throw new McpxProcessRunner.FailedException(args.toList(), result);
         }
-        return output.toString(StandardCharsets.UTF_8);
+        return result.getStdout();
     }
 
     public void login(String baseUrl, String method) throws IOException, InterruptedException {
@@ -80,11 +147,12 @@ public class McpxCliClient {
         args.add("--method");
         args.add(method != null ? method : "anonymous");
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        int exitCode = execute(args, output, null);
-        if (exitCode != 0) {
-            throw new IOException("mcpx-cli login failed with exit code " + exitCode + ": " + output.toString(StandardCharsets.UTF_8));
+        McpxProcessRunner.Result result = execute("login", args, null);
+        if (result.getExitCode() != 0) {
+            throw new McpxProcessRunner.FailedException(args.toList(), result);
         }
+        // Later commands for this registry reuse the session instead of logging in again
+        McpxLoginSessions.get().loggedIn(cliPath, baseUrl, method != null ? method : "anonymous");
     }
 
     private static String expandHome(String path) {
@@ -97,45 +165,29 @@ public class McpxCliClient {
         return path;
     }
 
-    private int execute(ArgumentListBuilder args, ByteArrayOutputStream output, TaskListener listener) throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder(args.toList());
-        Process proc = pb.start();
-
-        // Capture stdout
-        Thread outputThread = new Thread(() -> {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
-                    if (listener != null) {
-                        listener.getLogger().println(line);
-                    }
-                }
-            } catch (IOException e) {
-                // Ignore
+    /**
+     * Runs a registry command with the registry's login session, logging in only when there is no
+     * live session; see {@link McpxLoginSessions}.
+     */
+    private McpxProcessRunner.Result executeWithSession(String operation, String baseUrl, List<String> command) throws IOException, InterruptedException {
+        return McpxDeadlines.get().run(operation, deadline -> McpxLoginSessions.get().run(cliPath, baseUrl, command, deadline));
+    }
+
+    /**
+     * Runs the command under the adaptive deadline for the operation; see {@link McpxDeadlines}.
+     */
+    private McpxProcessRunner.Result execute(String operation, ArgumentListBuilder args, TaskListener listener) throws IOException, InterruptedException {
+        McpxProcessRunner.Result result = McpxDeadlines.get().run(operation, args.toList());
+        if (listener != null) {
+            for (String line : result.getStdout().split("\\R")) {
+                listener.getLogger().println(line);
             }
-        });
-        outputThread.start();
-
-        // Capture stderr
-        Thread errorThread = new Thread(() -> {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getErrorStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (listener != null) {
-                        listener.getLogger().println("ERROR: " + line);
-                    }
+            for (String line : result.getStderr().split("\\R")) {
+                if (!line.isEmpty()) {
+                    listener.getLogger().println("ERROR: " + line);
                 }
-            } catch (IOException e) {
-                // Ignore
             }
-        });
-        errorThread.start();
-
-        int exitCode = proc.waitFor();
-        outputThread.join();
-        errorThread.join();
-
-        return exitCode;
+        }
+        return result;
     }
 }
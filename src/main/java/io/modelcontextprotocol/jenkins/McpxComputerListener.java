@@ -0,0 +1,41 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+
+/**
+ * Keeps {@link McpxNodeCapabilities} current as nodes come and go.
+ */
+@Extension
+public class McpxComputerListener extends ComputerListener {
+
+    @Override
+    public void onOnline(Computer c, TaskListener listener) {
+        Node node = c.getNode();
+        String cliPath = globalCliPath();
+        if (node != null && cliPath != null) {
+            // Probed in the background so bringing the node online is not delayed
+            McpxNodeCapabilities.get().probeLater(node, cliPath);
+        }
+    }
+
+    @Override
+    public void onOffline(Computer c, OfflineCause cause) {
+        String name = c.getName();
+        McpxNodeCapabilities.get().forget(name == null || name.isEmpty() ? McpxDeadlines.CONTROLLER : name);
+    }
+
+    private static String globalCliPath() {
+        try {
+            McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
+            return cfg != null ? Util.fixEmptyAndTrim(cfg.getCliPath()) : null;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+}
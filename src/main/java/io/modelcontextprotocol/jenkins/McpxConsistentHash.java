@@ -0,0 +1,109 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Consistent-hash ordering of routing candidates for a key.
+ * <p>
+ * Each node is placed on a hash ring at {@link #VIRTUAL_NODES} points derived from its name. A key
+ * goes to the node owning the first point at or after the key's own hash, and the next distinct
+ * nodes clockwise are its fallbacks. The same key therefore keeps landing on the same node, whose
+ * login session and agent cache are warm for it, while different keys spread evenly across the
+ * nodes; adding or removing a node only moves the keys that node owned.
+ * <p>
+ * Rings are cached by their set of node names, so they are only rebuilt when membership changes
+ * (a node joins, leaves, or enters or leaves a backoff).
+ */
+public final class McpxConsistentHash {
+    static final int VIRTUAL_NODES = 160;
+
+    // Distinct memberships in use at once are few (labeled and other agents, minus those in backoff)
+    static final int MAX_RINGS = 32;
+
+    private static final Map<Set<String>, NavigableMap<Long, String>> RINGS = new ConcurrentHashMap<>();
+
+    private McpxConsistentHash() {
+    }
+
+    /**
+     * The nodes in ring order for the key: its owner first, then the fallbacks.
+     */
+    public static <T> List<T> order(List<T> nodes, Function<T, String> nameOf, String key) {
+        if (nodes.size() <= 1) {
+            return new ArrayList<>(nodes);
+        }
+        Map<String, T> byName = new HashMap<>();
+        for (T node : nodes) {
+            byName.putIfAbsent(nameOf.apply(node), node);
+        }
+        NavigableMap<Long, String> ring = ring(byName.keySet());
+        Set<T> ordered = new LinkedHashSet<>();
+        long point = hash(key);
+        for (String name : ring.tailMap(point, true).values()) {
+            if (ordered.add(byName.get(name)) && ordered.size() == byName.size()) {
+                return new ArrayList<>(ordered);
+            }
+        }
+        for (String name : ring.headMap(point, false).values()) {
+            if (ordered.add(byName.get(name)) && ordered.size() == byName.size()) {
+                break;
+            }
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    /**
+     * The ring for a set of node names, built on first use.
+     */
+    static NavigableMap<Long, String> ring(Set<String> names) {
+        NavigableMap<Long, String> ring = RINGS.get(names);
+        if (ring != null) {
+            return ring;
+        }
+        TreeMap<Long, String> built = new TreeMap<>();
+        // In name order, so a (rare) collision between two nodes' points always resolves the same way
+        for (String name : new TreeSet<>(names)) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                built.putIfAbsent(hash(name + "#" + i), name);
+            }
+        }
+        ring = Collections.unmodifiableNavigableMap(built);
+        if (RINGS.size() >= MAX_RINGS) {
+            RINGS.clear();
+        }
+        RINGS.put(new HashSet<>(names), ring);
+        return ring;
+    }
+
+    /**
+     * Position on the ring: the first eight bytes of the MD5 digest, which spreads short,
+     * similar strings (node names, server names) evenly.
+     */
+    static long hash(String s) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(s.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (d[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.FilePath;
+import hudson.model.Node;
+import jenkins.model.Jenkins;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adaptive deadlines for mcpx-cli operations, tracked per node and operation.
+ * <p>
+ * Each completed call records how long its mcpx-cli processes ran ({@link McpxProcessRunner#runNanos()}),
+ * not its wall time: waiting for a process slot, logging in and the remoting round trip are left out,
+ * so a busy node does not loosen its own deadlines. Calls served without running a process record
+ * nothing. Once enough samples exist, the deadline for the next call is a multiple of the observed
+ * 99th percentile, never below a floor and never above the configured ceiling; until then the
+ * ceiling applies. Calls that time out while running are recorded at their deadline, so a registry
+ * that has become slower pushes the deadline up instead of failing forever; calls that never got a
+ * process slot are not recorded.
+ */
+public final class McpxDeadlines {
+    private static final Logger LOGGER = Logger.getLogger(McpxDeadlines.class.getName());
+
+    public static final String CONTROLLER = "controller";
+
+    static final int WINDOW = 64;
+    static final int MIN_SAMPLES = 5;
+    static final long FLOOR_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    static final int P99_MULTIPLIER = 3;
+
+    // Extra time allowed for the remoting round trip on top of the process deadline
+    private static final long REMOTING_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final McpxDeadlines INSTANCE = new McpxDeadlines(McpxGlobalConfiguration::cliTimeoutMillis);
+
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+    private final LongSupplier ceilingMillis;
+
+    McpxDeadlines(LongSupplier ceilingMillis) {
+        this.ceilingMillis = ceilingMillis;
+    }
+
+    public static McpxDeadlines get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Name used to track a node; the controller is always {@link #CONTROLLER}.
+     */
+    public static String nodeName(Node node) {
+        if (node instanceof Jenkins || node.getNodeName() == null || node.getNodeName().isEmpty()) {
+            return CONTROLLER;
+        }
+        return node.getNodeName();
+    }
+
+    /**
+     * Deadline for the next call of an operation on a node.
+     */
+    public long timeoutMillis(String node, String operation) {
+        long ceiling = ceilingMillis.getAsLong();
+        Window window = windows.get(new Key(node, operation));
+        if (window == null) {
+            return ceiling;
+        }
+        long p99 = window.percentile(99);
+        if (p99 < 0) {
+            return ceiling;
+        }
+        return Math.min(ceiling, Math.max(FLOOR_MILLIS, p99 * P99_MULTIPLIER));
+    }
+
+    /**
+     * Records the latency of a finished (or timed out) call.
+     */
+    public void record(String node, String operation, long millis) {
+        windows.computeIfAbsent(new Key(node, operation), k -> new Window()).add(millis);
+    }
+
+    /**
+     * Observed latency percentile, or -1 if too few calls have been recorded.
+     */
+    public long percentile(String node, String operation, int percentile) {
+        Window window = windows.get(new Key(node, operation));
+        return window != null ? window.percentile(percentile) : -1;
+    }
+
+    /**
+     * Runs a callable on the node's root path under the operation's deadline.
+     * The callable is built with the deadline so it can bound the processes it starts;
+     * if no result arrives in time the remoting call is cancelled, which interrupts the
+     * callable on the agent and kills its processes.
+     */
+    public <T> T act(Node node, String operation, LongFunction<FilePath.FileCallable<T>> callable) throws IOException, InterruptedException {
+        FilePath root = node.getRootPath();
+        if (root == null) {
+            throw new IOException("No root path on " + nodeName(node));
+        }
+        return act(root, nodeName(node), operation, callable);
+    }
+
+    <T> T act(FilePath root, String node, String operation, LongFunction<FilePath.FileCallable<T>> callable) throws IOException, InterruptedException {
+        long timeout = timeoutMillis(node, operation);
+        Future<Timed<T>> future = root.actAsync(new TimedCallable<>(callable.apply(timeout)));
+        try {
+            Timed<T> result = future.get(timeout + REMOTING_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            recordRun(node, operation, result.runNanos);
+            return result.value;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            record(node, operation, timeout);
+            throw new InterruptedIOException("mcpx-cli " + operation + " on " + node + " did not finish within " + timeout + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedIOException && !(cause instanceof McpxProcessLimiter.NoSlotException)) {
+                // The process deadline expired on the node itself
+                record(node, operation, timeout);
+            }
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof InterruptedException) throw (InterruptedException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Work bounded by a deadline taken from {@link System#nanoTime()}.
+     */
+    @FunctionalInterface
+    interface Call<T> {
+        T call(long deadlineNanos) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Runs a local mcpx-cli command on the controller under the operation's deadline.
+     */
+    McpxProcessRunner.Result run(String operation, List<String> command) throws IOException, InterruptedException {
+        return run(operation, deadline -> McpxProcessRunner.runUntil(command, deadline));
+    }
+
+    /**
+     * Runs local mcpx-cli work on the controller under the operation's deadline.
+     */
+    <T> T run(String operation, Call<T> call) throws IOException, InterruptedException {
+        long timeout = timeoutMillis(CONTROLLER, operation);
+        long before = McpxProcessRunner.runNanos();
+        try {
+            T result = call.call(McpxProcessRunner.deadline(timeout));
+            recordRun(CONTROLLER, operation, McpxProcessRunner.runNanos() - before);
+            return result;
+        } catch (InterruptedIOException e) {
+            if (!(e instanceof McpxProcessLimiter.NoSlotException)) {
+                record(CONTROLLER, operation, timeout);
+            }
+            LOGGER.log(Level.WARNING, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void recordRun(String node, String operation, long runNanos) {
+        if (runNanos > 0) {
+            record(node, operation, TimeUnit.NANOSECONDS.toMillis(runNanos));
+        }
+    }
+
+    /**
+     * Result of a remote callable with the run time of the processes it started on the node.
+     */
+    static final class Timed<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final T value;
+        private final long runNanos;
+
+        Timed(T value, long runNanos) {
+            this.value = value;
+            this.runNanos = runNanos;
+        }
+    }
+
+    // Runs a callable on the node and measures its process run time there
+    static final class TimedCallable<T> implements FilePath.FileCallable<Timed<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FilePath.FileCallable<T> callable;
+
+        TimedCallable(FilePath.FileCallable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public Timed<T> invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws IOException, InterruptedException {
+            long before = McpxProcessRunner.runNanos();
+            T value = callable.invoke(f, channel);
+            return new Timed<>(value, McpxProcessRunner.runNanos() - before);
+        }
+
+        @Override
+        public void checkRoles(org.jenkinsci.remoting.RoleChecker checker) throws SecurityException {
+            callable.checkRoles(checker);
+        }
+    }
+
+    private static final class Key {
+        private final String node;
+        private final String operation;
+
+        Key(String node, String operation) {
+            this.node = node;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return node.equals(other.node) && operation.equals(other.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(node, operation);
+        }
+    }
+
+    /**
+     * Ring buffer of the most recent latencies for one key.
+     */
+    private static final class Window {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized long percentile(int percentile) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+    }
+}
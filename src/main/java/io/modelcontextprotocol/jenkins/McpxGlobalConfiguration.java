@@ -3,6 +3,7 @@ package io.modelcontextprotocol.jenkins;
 import hudson.Extension;
 import hudson.Util;
 import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import jenkins.model.GlobalConfiguration;
 import net.sf.json.JSONObject;
@@ -10,21 +11,165 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.verb.POST;
 
+import java.util.concurrent.TimeUnit;
+
 @Extension
 public class McpxGlobalConfiguration extends GlobalConfiguration {
+    static final int DEFAULT_CACHE_TTL_SECONDS = 300;
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int DEFAULT_CLI_TIMEOUT_SECONDS = 60;
+    static final int DEFAULT_SYNC_INTERVAL_MINUTES = 2;
+    static final int DEFAULT_MAX_CLI_PROCESSES = McpxProcessLimiter.DEFAULT_LIMIT;
+
+    static final String BACKEND_CLI = "cli";
+    static final String BACKEND_HTTP = "http";
+
+    static final String ROUTING_HEALTH = "health";
+    static final String ROUTING_STICKY = "sticky";
+
     private String registryBaseUrl = "";
 
+    // How the registry is queried: by forking mcpx-cli, or over HTTP from the controller JVM
+    private String registryBackend = BACKEND_CLI;
+
+    // How long fetched server lists are served from memory before a background refresh
+    private int cacheTtlSeconds = DEFAULT_CACHE_TTL_SECONDS;
+
+    // Servers requested per page when listing the registry; 0 requests the whole catalog at once
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    // How often cached listings are brought up to date with the registry's changes; 0 disables
+    private int syncIntervalMinutes = DEFAULT_SYNC_INTERVAL_MINUTES;
+
+    // Registry requests per minute from the whole controller, agents' fetches included; 0 disables the limit
+    private int registryRequestsPerMinute;
+
+    // Shared secret signing calls to the cache invalidation webhook; the webhook is disabled without one
+    private Secret webhookSecret;
+
     // mcpx-cli configuration
     private String cliPath = "~/.local/bin/mcpx-cli";
 
+    // Upper bound for the adaptive deadline of any single mcpx-cli call
+    private int cliTimeoutSeconds = DEFAULT_CLI_TIMEOUT_SECONDS;
+
+    // mcpx-cli processes each node (controller or agent) runs at once; further calls queue
+    private int maxCliProcesses = DEFAULT_MAX_CLI_PROCESSES;
+
+    // How agents are ordered for a fetch: by health, or by consistent hashing of the request
+    private String routingStrategy = ROUTING_HEALTH;
+
     public McpxGlobalConfiguration() {
         load();
+        McpxProcessLimiter.get().setLimit(getMaxCliProcesses());
+        McpxRateLimiter.get().setRequestsPerMinute(getRegistryRequestsPerMinute());
     }
 
     public static McpxGlobalConfiguration get() {
         return GlobalConfiguration.all().get(McpxGlobalConfiguration.class);
     }
 
+    /**
+     * Cache TTL in milliseconds, falling back to the default when Jenkins is not available (e.g., in unit tests).
+     */
+    static long cacheTtlMillis() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            if (cfg != null) {
+                return TimeUnit.SECONDS.toMillis(cfg.getCacheTtlSeconds());
+            }
+        } catch (IllegalStateException e) {
+            // Jenkins instance is not available; fall through to default
+        }
+        return TimeUnit.SECONDS.toMillis(DEFAULT_CACHE_TTL_SECONDS);
+    }
+
+    /**
+     * CLI timeout ceiling in milliseconds, falling back to the default when Jenkins is not available (e.g., in unit tests).
+     */
+    static long cliTimeoutMillis() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            if (cfg != null) {
+                return TimeUnit.SECONDS.toMillis(cfg.getCliTimeoutSeconds());
+            }
+        } catch (IllegalStateException e) {
+            // Jenkins instance is not available; fall through to default
+        }
+        return TimeUnit.SECONDS.toMillis(DEFAULT_CLI_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Per-node limit of concurrent mcpx-cli processes, falling back to the default when Jenkins is not available (e.g., in unit tests).
+     */
+    static int maxCliProcessesPerNode() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            if (cfg != null) {
+                return cfg.getMaxCliProcesses();
+            }
+        } catch (IllegalStateException e) {
+            // Jenkins instance is not available; fall through to default
+        }
+        return DEFAULT_MAX_CLI_PROCESSES;
+    }
+
+    /**
+     * Listing page size, falling back to the default when Jenkins is not available (e.g., in unit tests).
+     */
+    static int listPageSize() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            if (cfg != null) {
+                return cfg.getPageSize();
+            }
+        } catch (IllegalStateException e) {
+            // Jenkins instance is not available; fall through to default
+        }
+        return DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Registry sync interval in milliseconds (0 when disabled), falling back to the default when Jenkins is not available (e.g., in unit tests).
+     */
+    static long syncIntervalMillis() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            if (cfg != null) {
+                return TimeUnit.MINUTES.toMillis(cfg.getSyncIntervalMinutes());
+            }
+        } catch (IllegalStateException e) {
+            // Jenkins instance is not available; fall through to default
+        }
+        return TimeUnit.MINUTES.toMillis(DEFAULT_SYNC_INTERVAL_MINUTES);
+    }
+
+    /**
+     * Whether the registry should be queried over HTTP instead of via mcpx-cli.
+     * Returns false when Jenkins is not available (e.g., in unit tests).
+     */
+    static boolean useHttpBackend() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            return cfg != null && BACKEND_HTTP.equals(cfg.getRegistryBackend());
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether agents are chosen by consistent hashing of the request rather than by health.
+     * Returns false when Jenkins is not available (e.g., in unit tests).
+     */
+    static boolean stickyRouting() {
+        try {
+            McpxGlobalConfiguration cfg = get();
+            return cfg != null && ROUTING_STICKY.equals(cfg.getRoutingStrategy());
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
     public String getRegistryBaseUrl() {
         return registryBaseUrl;
     }
@@ -33,7 +178,55 @@ public class McpxGlobalConfiguration extends GlobalConfiguration {
         this.registryBaseUrl = Util.fixEmptyAndTrim(registryBaseUrl);
     }
 
+    public String getRegistryBackend() {
+        // Configurations saved before the backend setting existed deserialize it as null
+        return registryBackend != null ? registryBackend : BACKEND_CLI;
+    }
+
+    public void setRegistryBackend(String registryBackend) {
+        this.registryBackend = BACKEND_HTTP.equals(Util.fixEmptyAndTrim(registryBackend)) ? BACKEND_HTTP : BACKEND_CLI;
+    }
+
+    public int getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+
+    public void setCacheTtlSeconds(int cacheTtlSeconds) {
+        this.cacheTtlSeconds = Math.max(0, cacheTtlSeconds);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
 
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(0, pageSize);
+    }
+
+    public int getSyncIntervalMinutes() {
+        return syncIntervalMinutes;
+    }
+
+    public void setSyncIntervalMinutes(int syncIntervalMinutes) {
+        this.syncIntervalMinutes = Math.max(0, syncIntervalMinutes);
+    }
+
+    public int getRegistryRequestsPerMinute() {
+        return registryRequestsPerMinute;
+    }
+
+    public void setRegistryRequestsPerMinute(int registryRequestsPerMinute) {
+        this.registryRequestsPerMinute = Math.max(0, registryRequestsPerMinute);
+        McpxRateLimiter.get().setRequestsPerMinute(this.registryRequestsPerMinute);
+    }
+
+    public Secret getWebhookSecret() {
+        return webhookSecret;
+    }
+
+    public void setWebhookSecret(Secret webhookSecret) {
+        this.webhookSecret = webhookSecret;
+    }
 
     public String getCliPath() {
         return cliPath;
@@ -43,6 +236,34 @@ public class McpxGlobalConfiguration extends GlobalConfiguration {
         this.cliPath = Util.fixEmptyAndTrim(cliPath);
     }
 
+    public int getCliTimeoutSeconds() {
+        return cliTimeoutSeconds;
+    }
+
+    public void setCliTimeoutSeconds(int cliTimeoutSeconds) {
+        this.cliTimeoutSeconds = Math.max(1, cliTimeoutSeconds);
+    }
+
+    public int getMaxCliProcesses() {
+        // Configurations saved before the limit existed deserialize it as 0
+        return maxCliProcesses > 0 ? maxCliProcesses : DEFAULT_MAX_CLI_PROCESSES;
+    }
+
+    public void setMaxCliProcesses(int maxCliProcesses) {
+        this.maxCliProcesses = Math.max(1, maxCliProcesses);
+        // Agents receive the limit with each batch; the controller applies it here
+        McpxProcessLimiter.get().setLimit(this.maxCliProcesses);
+    }
+
+    public String getRoutingStrategy() {
+        // Configurations saved before the routing setting existed deserialize it as null
+        return routingStrategy != null ? routingStrategy : ROUTING_HEALTH;
+    }
+
+    public void setRoutingStrategy(String routingStrategy) {
+        this.routingStrategy = ROUTING_STICKY.equals(Util.fixEmptyAndTrim(routingStrategy)) ? ROUTING_STICKY : ROUTING_HEALTH;
+    }
+
     @POST
     public FormValidation doCheckRequired(@QueryParameter String registryBaseUrl) {
         String url = Util.fixEmptyAndTrim(registryBaseUrl);
@@ -52,10 +273,101 @@ public class McpxGlobalConfiguration extends GlobalConfiguration {
         return FormValidation.ok();
     }
 
+    public ListBoxModel doFillRegistryBackendItems() {
+        ListBoxModel m = new ListBoxModel();
+        m.add("mcpx-cli", BACKEND_CLI);
+        m.add("HTTP (from controller)", BACKEND_HTTP);
+        return m;
+    }
+
+    public ListBoxModel doFillRoutingStrategyItems() {
+        ListBoxModel m = new ListBoxModel();
+        m.add("Fastest healthy agent", ROUTING_HEALTH);
+        m.add("Sticky (consistent hashing)", ROUTING_STICKY);
+        return m;
+    }
+
+    @POST
+    public FormValidation doCheckCacheTtlSeconds(@QueryParameter String cacheTtlSeconds) {
+        try {
+            if (Integer.parseInt(Util.fixEmptyAndTrim(cacheTtlSeconds)) < 0) {
+                return FormValidation.error("Cache TTL must be zero or a positive number of seconds");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Cache TTL must be a whole number of seconds");
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doCheckSyncIntervalMinutes(@QueryParameter String syncIntervalMinutes) {
+        try {
+            if (Integer.parseInt(Util.fixEmptyAndTrim(syncIntervalMinutes)) < 0) {
+                return FormValidation.error("Sync interval must be zero or a positive number of minutes");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Sync interval must be a whole number");
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doCheckPageSize(@QueryParameter String pageSize) {
+        try {
+            if (Integer.parseInt(Util.fixEmptyAndTrim(pageSize)) < 0) {
+                return FormValidation.error("Page size must be zero or a positive number of servers");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Page size must be a whole number");
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doCheckCliTimeoutSeconds(@QueryParameter String cliTimeoutSeconds) {
+        try {
+            if (Integer.parseInt(Util.fixEmptyAndTrim(cliTimeoutSeconds)) < 1) {
+                return FormValidation.error("CLI timeout must be at least one second");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("CLI timeout must be a whole number of seconds");
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doCheckRegistryRequestsPerMinute(@QueryParameter String registryRequestsPerMinute) {
+        try {
+            if (Integer.parseInt(Util.fixEmptyAndTrim(registryRequestsPerMinute)) < 0) {
+                return FormValidation.error("Rate limit must be zero (unlimited) or a positive number of requests per minute");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Rate limit must be a whole number");
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doCheckMaxCliProcesses(@QueryParameter String maxCliProcesses) {
+        try {
+            if (Integer.parseInt(Util.fixEmptyAndTrim(maxCliProcesses)) < 1) {
+                return FormValidation.error("At least one mcpx-cli process must be allowed per node");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Process limit must be a whole number");
+        }
+        return FormValidation.ok();
+    }
+
     @Override
     public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        String previousCliPath = cliPath;
         req.bindJSON(this, json);
         save();
+        if (cliPath != null && !cliPath.equals(previousCliPath)) {
+            // Refresh the capability index for the new path
+            McpxNodeCapabilities.get().probeAll(cliPath);
+        }
         return true;
     }
 }
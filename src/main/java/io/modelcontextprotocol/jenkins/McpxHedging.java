@@ -0,0 +1,198 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hedged fan-out of one registry fetch over an ordered list of candidate nodes.
+ * <p>
+ * The first candidate starts immediately. If it has not answered within its hedge delay, the next
+ * candidate is started as a backup; a candidate that fails is replaced by the next one right away.
+ * At most {@link #MAX_PARALLEL} candidates run at once. The first success wins and the others are
+ * cancelled, which cancels their remoting calls and kills their mcpx-cli processes. The hedge delay of
+ * a node is its observed p95 latency for the operation (see {@link McpxDeadlines}), or
+ * {@link #DEFAULT_HEDGE_DELAY_MILLIS} until enough calls have been seen.
+ * <p>
+ * Candidates run with the {@link McpxRateLimiter} priority of the caller, and each attempt takes its
+ * own tokens, so backups and failovers count against the rate limit like any other request.
+ */
+public final class McpxHedging {
+    private static final Logger LOGGER = Logger.getLogger(McpxHedging.class.getName());
+
+    static final int MAX_PARALLEL = Math.max(1, Integer.getInteger(McpxHedging.class.getName() + ".maxParallel", 3));
+    static final long DEFAULT_HEDGE_DELAY_MILLIS = Long.getLong(McpxHedging.class.getName() + ".hedgeDelayMillis", 2000);
+
+    // Lower bound for hedge delays taken from fast nodes, so a backup is not started on every call
+    private static final long MIN_HEDGE_DELAY_MILLIS = 100;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), "McpxHedging"));
+
+    private McpxHedging() {
+    }
+
+    /**
+     * One way of fetching the result, e.g. on a particular node.
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * A candidate node and how to fetch the result on it.
+     */
+    public static final class Candidate<T> {
+        private final String node;
+        private final Attempt<T> attempt;
+
+        public Candidate(String node, Attempt<T> attempt) {
+            this.node = node;
+            this.attempt = attempt;
+        }
+
+        public String getNode() {
+            return node;
+        }
+    }
+
+    /**
+     * Returns the first successful result of the candidates, in priority order, hedging slow ones.
+     * @throws IOException if every candidate failed
+     */
+    public static <T> T firstSuccess(String operation, List<Candidate<T>> candidates) throws IOException, InterruptedException {
+        return firstSuccess(operation, candidates, McpxNodeHealth.get());
+    }
+
+    static <T> T firstSuccess(String operation, List<Candidate<T>> candidates, McpxNodeHealth health) throws IOException, InterruptedException {
+        // Every outcome feeds the node health used to rank the next fetch's candidates
+        McpxNodeHealth.Round round = health.round(operation);
+        List<Candidate<T>> tracked = new ArrayList<>();
+        for (Candidate<T> c : candidates) {
+            tracked.add(new Candidate<>(c.node, () -> round.track(c.node, c.attempt)));
+        }
+        try {
+            return firstSuccess(tracked, c -> hedgeDelayMillis(c.node, operation), MAX_PARALLEL);
+        } finally {
+            round.finish();
+        }
+    }
+
+    static <T> T firstSuccess(List<Candidate<T>> candidates, ToLongFunction<Candidate<T>> hedgeDelay, int maxParallel) throws IOException, InterruptedException {
+        if (candidates.isEmpty()) {
+            throw new IOException("No candidate nodes");
+        }
+        if (candidates.size() == 1 || maxParallel <= 1) {
+            return sequentially(candidates);
+        }
+
+        McpxRateLimiter.Priority priority = McpxRateLimiter.currentPriority();
+        CompletionService<T> completion = new ExecutorCompletionService<>(EXECUTOR);
+        List<Future<T>> started = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        Exception lastError = null;
+        McpxRateLimiter.ThrottledException throttled = null;
+        int next = 0;
+        int running = 0;
+        try {
+            started.add(completion.submit(attempt(candidates.get(next++), priority)));
+            running++;
+            while (running > 0) {
+                Future<T> done;
+                if (next < candidates.size() && running < maxParallel) {
+                    // Wait for the most recently started candidate's hedge delay before starting a backup
+                    long delay = Math.max(MIN_HEDGE_DELAY_MILLIS, hedgeDelay.applyAsLong(candidates.get(next - 1)));
+                    done = completion.poll(delay, TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        LOGGER.log(Level.FINE, "No answer from " + candidates.get(next - 1).node + " within " + delay + " ms; starting a backup on " + candidates.get(next).node);
+                        started.add(completion.submit(attempt(candidates.get(next++), priority)));
+                        running++;
+                        continue;
+                    }
+                } else {
+                    done = completion.take();
+                }
+                running--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    lastError = cause instanceof Exception ? (Exception) cause : e;
+                    errors.add(nodeOf(candidates, started, done) + ": " + lastError.getMessage());
+                    LOGGER.log(Level.FINE, "Candidate " + nodeOf(candidates, started, done) + " failed: " + lastError.getMessage(), lastError);
+                    if (lastError instanceof McpxRateLimiter.ThrottledException) {
+                        // The other candidates would wait for the same tokens; only those running may still answer
+                        throttled = (McpxRateLimiter.ThrottledException) lastError;
+                        next = candidates.size();
+                    } else if (next < candidates.size()) {
+                        started.add(completion.submit(attempt(candidates.get(next++), priority)));
+                        running++;
+                    }
+                }
+            }
+        } finally {
+            // Losers and backups still in flight are no longer needed
+            for (Future<T> f : started) {
+                f.cancel(true);
+            }
+        }
+        if (throttled != null) {
+            throw throttled;
+        }
+        throw new IOException("All " + candidates.size() + " candidates failed: " + String.join(" | ", errors), lastError);
+    }
+
+    private static <T> Callable<T> attempt(Candidate<T> candidate, McpxRateLimiter.Priority priority) {
+        Callable<T> call = candidate.attempt::call;
+        return McpxRateLimiter.withPriority(priority, call);
+    }
+
+    /**
+     * Hedge delay for a node: its p95 latency for the operation, or the default until known.
+     */
+    static long hedgeDelayMillis(String node, String operation) {
+        long p95 = McpxDeadlines.get().percentile(node, operation, 95);
+        return p95 >= 0 ? p95 : DEFAULT_HEDGE_DELAY_MILLIS;
+    }
+
+    private static <T> T sequentially(List<Candidate<T>> candidates) throws IOException, InterruptedException {
+        List<String> errors = new ArrayList<>();
+        Exception lastError = null;
+        for (Candidate<T> c : candidates) {
+            try {
+                return c.attempt.call();
+            } catch (InterruptedException | McpxRateLimiter.ThrottledException e) {
+                // The other candidates would wait for the same tokens
+                throw e;
+            } catch (Exception e) {
+                lastError = e;
+                errors.add(c.node + ": " + e.getMessage());
+                LOGGER.log(Level.FINE, "Candidate " + c.node + " failed: " + e.getMessage(), e);
+            }
+        }
+        if (candidates.size() == 1 && lastError instanceof IOException) {
+            throw (IOException) lastError;
+        }
+        throw new IOException("All " + candidates.size() + " candidates failed: " + String.join(" | ", errors), lastError);
+    }
+
+    private static <T> String nodeOf(List<Candidate<T>> candidates, List<Future<T>> started, Future<T> done) {
+        int i = started.indexOf(done);
+        return i >= 0 ? candidates.get(i).node : "?";
+    }
+}
@@ -0,0 +1,242 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry backend that talks to the MCPX Registry API directly from the controller JVM.
+ * <p>
+ * All instances share one {@link HttpClient}, so connections are pooled (and multiplexed over
+ * HTTP/2 where the registry supports it). Responses carrying an {@code ETag} are remembered
+ * together with their parsed value; repeat requests send {@code If-None-Match} and reuse the
+ * parsed value on {@code 304 Not Modified}. Change queries ({@code updated_since}) are not
+ * remembered: each sync asks with a new time, so their validators would never be used again and
+ * would only evict those of listings and details.
+ * <p>
+ * Requests are sent without credentials. Logins and tokens stored by mcpx-cli are not used, so
+ * registries that require authentication need the mcpx-cli backend.
+ */
+public class McpxHttpRegistryClient {
+    private static final Logger LOGGER = Logger.getLogger(McpxHttpRegistryClient.class.getName());
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_VALIDATORS = 1024;
+
+    private static final HttpClient SHARED_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    // ETag validators and the parsed values they belong to, per request URI; guarded by itself
+    private static final Map<URI, Validated<?>> VALIDATORS = new LinkedHashMap<URI, Validated<?>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<URI, Validated<?>> eldest) {
+            return size() > MAX_VALIDATORS;
+        }
+    };
+
+    @FunctionalInterface
+    interface BodyParser<T> {
+        T parse(Reader body) throws IOException;
+    }
+
+    private final HttpClient http;
+    private final String baseUrl;
+
+    public McpxHttpRegistryClient(String baseUrl) {
+        this(SHARED_CLIENT, baseUrl);
+    }
+
+    McpxHttpRegistryClient(HttpClient http, String baseUrl) {
+        this.http = http;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * Lists every server name published in the registry, following pages until the last one.
+     */
+    public List<String> listServers() throws IOException, InterruptedException {
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> seenCursors = new HashSet<>();
+        String cursor = null;
+        do {
+            McpxServerListParser.Result page = listServersPage(cursor, McpxGlobalConfiguration.listPageSize());
+            names.addAll(page.getNames());
+            cursor = page.getNextCursor();
+        } while (cursor != null && seenCursors.add(cursor));
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Fetches one page of the listing ({@code GET /v0/servers?cursor=...&limit=...}).
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the page size, or 0 to let the registry decide
+     */
+    public McpxServerListParser.Result listServersPage(String cursor, int limit) throws IOException, InterruptedException {
+        StringBuilder query = new StringBuilder();
+        if (limit > 0) {
+            query.append("limit=").append(limit);
+        }
+        if (cursor != null) {
+            query.append(query.length() > 0 ? "&" : "").append("cursor=").append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+        }
+        URI uri = URI.create(baseUrl + "/v0/servers" + (query.length() > 0 ? "?" + query : ""));
+        // The listing is parsed as it streams in rather than buffered as one string
+        return get(uri, McpxServerListParser::parsePage);
+    }
+
+    /**
+     * Fetches one page of the servers updated since a point in time
+     * ({@code GET /v0/servers?updated_since=...}), with their versions and statuses.
+     * @param updatedSince the earliest update time to include
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the page size, or 0 to let the registry decide
+     */
+    public McpxServerListParser.Result listServerChanges(Instant updatedSince, String cursor, int limit) throws IOException, InterruptedException {
+        StringBuilder query = new StringBuilder("updated_since=").append(URLEncoder.encode(updatedSince.toString(), StandardCharsets.UTF_8));
+        if (limit > 0) {
+            query.append("&limit=").append(limit);
+        }
+        if (cursor != null) {
+            query.append("&cursor=").append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+        }
+        return get(URI.create(baseUrl + "/v0/servers?" + query), McpxServerListParser::parseChanges, false);
+    }
+
+    /**
+     * Fetches the raw details JSON for a server ({@code GET /v0/servers/{name}}),
+     * in the same shape {@code mcpx-cli server <name> --json} prints.
+     */
+    public String getServerDetails(String serverName) throws IOException, InterruptedException {
+        return get(URI.create(baseUrl + "/v0/servers/" + pathSegment(serverName)), McpxHttpRegistryClient::readFully);
+    }
+
+    /**
+     * Percent-encodes a path segment. URLEncoder does form encoding, whose {@code +} for a space
+     * would be a literal plus in a path.
+     */
+    static String pathSegment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    <T> T get(URI uri, BodyParser<T> parser) throws IOException, InterruptedException {
+        return get(uri, parser, true);
+    }
+
+    /**
+     * @param revalidate whether to remember the response's ETag and revalidate with it next time
+     */
+    <T> T get(URI uri, BodyParser<T> parser, boolean revalidate) throws IOException, InterruptedException {
+        Validated<?> known = null;
+        if (revalidate) {
+            synchronized (VALIDATORS) {
+                known = VALIDATORS.get(uri);
+            }
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET();
+        if (known != null) {
+            request.header("If-None-Match", known.etag);
+        }
+
+        HttpResponse<InputStream> response = http.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        T value;
+        try (Reader body = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            if (status == 304 && known != null) {
+                LOGGER.log(Level.FINE, "Registry returned 304 Not Modified for " + uri);
+                @SuppressWarnings("unchecked")
+                T cached = (T) known.value;
+                return cached;
+            }
+            if (status != 200) {
+                throw new StatusException(uri, status);
+            }
+            value = parser.parse(body);
+        }
+
+        if (!revalidate) {
+            return value;
+        }
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        synchronized (VALIDATORS) {
+            if (etag != null) {
+                VALIDATORS.put(uri, new Validated<>(etag, value));
+            } else {
+                VALIDATORS.remove(uri);
+            }
+        }
+        return value;
+    }
+
+    private static String readFully(Reader body) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] chunk = new char[4096];
+        int n;
+        while ((n = body.read(chunk)) != -1) {
+            sb.append(chunk, 0, n);
+        }
+        return sb.toString();
+    }
+
+    static int validatorCount() {
+        synchronized (VALIDATORS) {
+            return VALIDATORS.size();
+        }
+    }
+
+    static void clearValidators() {
+        synchronized (VALIDATORS) {
+            VALIDATORS.clear();
+        }
+    }
+
+    /**
+     * A registry response with an unexpected HTTP status.
+     */
+    static final class StatusException extends IOException {
+        private final int status;
+
+        StatusException(URI uri, int status) {
+            super("Registry request " + uri + " failed with HTTP " + status);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+
+    private static final class Validated<T> {
+        private final String etag;
+        private final T value;
+
+        Validated(String etag, T value) {
+            this.etag = etag;
+            this.value = value;
+        }
+    }
+}
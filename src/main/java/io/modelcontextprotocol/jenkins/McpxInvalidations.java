@@ -0,0 +1,87 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * When servers and listings were last invalidated (e.g., by {@link McpxWebhook} after a publish),
+ * per registry.
+ * <p>
+ * The controller's caches are cleared directly, but agents keep their own disk caches; operations
+ * sent to them carry how long ago the invalidation was, and agents treat entries older than that
+ * by their own clock as missing. An age rather than a time, since agent clocks may be off from the
+ * controller's. Invalidations older than the cache TTL are forgotten, since agent entries that old
+ * have expired anyway.
+ */
+public final class McpxInvalidations {
+    private static final McpxInvalidations INSTANCE =
+            new McpxInvalidations(System::currentTimeMillis, McpxGlobalConfiguration::cacheTtlMillis);
+
+    // Keyed by base URL for whole registries and listings, by base URL and server name for servers
+    private final Map<String, Long> registries = new ConcurrentHashMap<>();
+    private final Map<String, Long> listings = new ConcurrentHashMap<>();
+    private final Map<String, Long> servers = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final LongSupplier ttlMillis;
+
+    McpxInvalidations(LongSupplier clock, LongSupplier ttlMillis) {
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static McpxInvalidations get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Invalidates the details of a server and the registry's listings, which may now include it.
+     */
+    public void invalidateServer(String baseUrl, String serverName) {
+        long now = clock.getAsLong();
+        servers.put(baseUrl + "\n" + serverName, now);
+        listings.put(baseUrl, now);
+        prune(now);
+    }
+
+    /**
+     * Invalidates everything cached for a registry.
+     */
+    public void invalidateRegistry(String baseUrl) {
+        long now = clock.getAsLong();
+        registries.put(baseUrl, now);
+        listings.put(baseUrl, now);
+        prune(now);
+    }
+
+    /**
+     * Millis since the registry's listings were last invalidated; cached listings older than that
+     * are stale. -1 if none are.
+     */
+    public long listingsInvalidatedAgo(String baseUrl) {
+        return ago(listings.getOrDefault(baseUrl, 0L));
+    }
+
+    /**
+     * Millis since the server's details were last invalidated; cached details older than that are
+     * stale. -1 if none are.
+     */
+    public long serverInvalidatedAgo(String baseUrl, String serverName) {
+        return ago(Math.max(registries.getOrDefault(baseUrl, 0L), servers.getOrDefault(baseUrl + "\n" + serverName, 0L)));
+    }
+
+    private long ago(long invalidatedAt) {
+        if (invalidatedAt == 0) {
+            return -1;
+        }
+        long ago = clock.getAsLong() - invalidatedAt;
+        return ago < ttlMillis.getAsLong() ? Math.max(0, ago) : -1;
+    }
+
+    private void prune(long now) {
+        long ttl = ttlMillis.getAsLong();
+        registries.values().removeIf(t -> now - t >= ttl);
+        listings.values().removeIf(t -> now - t >= ttl);
+        servers.values().removeIf(t -> now - t >= ttl);
+    }
+}
@@ -101,14 +101,21 @@ public class McpxJobProperty extends JobProperty<Job<?, ?>> {
                     path = (globalPath != null) ? globalPath : "mcpx-cli";
                 }
 
-                hudson.FilePath root = target.getRootPath();
-                if (root == null) {
+                if (target.getRootPath() == null) {
                     return FormValidation.error("Unable to access workspace on target node.");
                 }
 
-                String version = root.act(new CliVersionCallable(path));
                 String where = (target == j) ? "controller" : target.getNodeName();
-                return FormValidation.ok("mcpx-cli is working on " + where + "! Version: " + version);
+                // A node already known to run this CLI is answered from the capability index
+                McpxNodeCapabilities capabilities = McpxNodeCapabilities.get();
+                McpxNodeCapabilities.Capability capability = capabilities.lookup(McpxDeadlines.nodeName(target), path);
+                if (capability == null || !capability.isAvailable()) {
+                    capability = capabilities.probe(target, path);
+                }
+                if (!capability.isAvailable()) {
+                    return FormValidation.error("Failed to execute mcpx-cli: " + capability.getError());
+                }
+                return FormValidation.ok("mcpx-cli is working on " + where + "! Version: " + capability.getVersion());
             } catch (Exception e) {
                 return FormValidation.error("Failed to execute mcpx-cli: " + e.getMessage());
             }
@@ -132,9 +139,25 @@ public class McpxJobProperty extends JobProperty<Job<?, ?>> {
         public FormValidation doRefreshServers(@AncestorInPath Job<?, ?> job) {
             try {
                 hudson.util.ListBoxModel model = (job != null)
-                        ? new McpxRegistryClient().fetchServers(job)
-                        : new McpxRegistryClient().fetchServers();
-                return FormValidation.ok("Refreshed MCP servers (" + model.size() + ")");
+                        ? new McpxRegistryClient().refreshServers(job)
+                        : new McpxRegistryClient().refreshServers(null);
+                int count = 0;
+                boolean loadingMore = false;
+                boolean incomplete = false;
+                for (hudson.util.ListBoxModel.Option opt : model) {
+                    if (opt.value != null && !opt.value.isEmpty()) {
+                        count++;
+                    } else if (McpxRegistryClient.LOADING_MORE_LABEL.equals(opt.name)) {
+                        loadingMore = true;
+                    } else if (McpxRegistryClient.INCOMPLETE_LABEL.equals(opt.name)) {
+                        incomplete = true;
+                    } else if (McpxRegistryClient.STALE_LABEL.equals(opt.name)) {
+                        return FormValidation.warning("Registry unavailable; showing " + count + " cached MCP servers");
+                    }
+                }
+                return FormValidation.ok("Refreshed MCP servers (" + count + ")"
+                        + (loadingMore ? "; remaining pages are loading in the background" : "")
+                        + (incomplete ? "; loading remaining pages failed and the list will be reloaded" : ""));
             } catch (Exception e) {
                 return FormValidation.error("Failed to refresh servers: " + e.getMessage());
             }
@@ -189,61 +212,5 @@ public class McpxJobProperty extends JobProperty<Job<?, ?>> {
             }
             return path;
         }
-
-        // Callable executed on a remote node to get mcpx-cli version
-        private static class CliVersionCallable implements hudson.FilePath.FileCallable<String> {
-            private final String rawPath;
-
-            CliVersionCallable(String rawPath) {
-                this.rawPath = rawPath;
-            }
-
-            @Override
-            public String invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws java.io.IOException, InterruptedException {
-                String path = rawPath;
-                if (path == null || path.isEmpty()) {
-                    path = "mcpx-cli";
-                }
-                // Expand leading ~ on the agent
-                if (path.startsWith("~/")) {
-                    String home = System.getProperty("user.home");
-                    if (home != null && !home.isEmpty()) {
-                        path = home + path.substring(1);
-                    }
-                }
-
-                java.lang.ProcessBuilder pb = new java.lang.ProcessBuilder(path, "--version");
-                java.lang.Process proc = pb.start();
-                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-                try (java.io.InputStream is = proc.getInputStream()) {
-                    byte[] buf = new byte[4096];
-                    int r;
-                    while ((r = is.read(buf)) >= 0) {
-                        baos.write(buf, 0, r);
-                    }
-                }
-                int code = proc.waitFor();
-                if (code != 0) {
-                    // Try to capture stderr for better diagnostics
-                    java.io.ByteArrayOutputStream err = new java.io.ByteArrayOutputStream();
-                    try (java.io.InputStream es = proc.getErrorStream()) {
-                        byte[] buf = new byte[4096];
-                        int r;
-                        while ((r = es.read(buf)) >= 0) {
-                            err.write(buf, 0, r);
-                        }
-                    }
-                    throw new java.io.IOException("mcpx-cli --version failed with exit code " + code + ": " + err.toString(java.nio.charset.StandardCharsets.UTF_8));
-                }
-                return baos.toString(java.nio.charset.StandardCharsets.UTF_8).trim();
-            }
-
-            @Override
-            public void checkRoles(org.jenkinsci.remoting.RoleChecker checker) throws SecurityException {
-                // Accept default; no special roles required
-            }
-        }
-
-
     }
 }
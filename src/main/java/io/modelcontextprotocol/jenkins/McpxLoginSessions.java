@@ -0,0 +1,269 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Registry login sessions of mcpx-cli in this JVM, keyed by CLI path, registry and login method.
+ * <p>
+ * mcpx-cli keeps its session on the node it runs on, so sessions are tracked in the JVM running the
+ * CLI: the controller and each agent have their own. A command runs without logging in first while
+ * its session is younger than {@link #SESSION_TTL_MILLIS}. It logs in first when there is no
+ * session, and logs in and retries once when the command fails with an authentication error.
+ * A session is also dropped after a command times out, and once it has gone unused for
+ * {@link #IDLE_TIMEOUT_MILLIS}. mcpx-cli has no serve mode, so every command is still its own
+ * process; only the login is saved.
+ * Counters record how many logins were performed and how many were avoided.
+ * <p>
+ * Every process run here reaches the registry, so each one first takes a token from
+ * {@link McpxRateLimiter} (a no-op on agents, which have no limit of their own) and is counted
+ * per thread in {@link #registryCalls()}, for agents to report back to the controller.
+ */
+public final class McpxLoginSessions {
+    private static final Logger LOGGER = Logger.getLogger(McpxLoginSessions.class.getName());
+
+    static final long SESSION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(
+            Long.getLong(McpxLoginSessions.class.getName() + ".ttlMinutes", 30));
+
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(
+            Long.getLong(McpxLoginSessions.class.getName() + ".idleTimeoutSeconds", 300));
+
+    // The plugin always logs in to the registry anonymously
+    public static final String ANONYMOUS = "anonymous";
+
+    // Output of mcpx-cli or the registry when a command needs a (new) session
+    private static final Pattern AUTH_FAILURE = Pattern.compile(
+            "\\b(401|403)\\b|unauthori[sz]ed|forbidden|not logged in|login required|(token|session) (has )?(expired|invalid)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final McpxLoginSessions INSTANCE = new McpxLoginSessions(SESSION_TTL_MILLIS, IDLE_TIMEOUT_MILLIS);
+
+    private static final ThreadLocal<int[]> REGISTRY_CALLS = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Map<Key, Long> loggedInAt = new ConcurrentHashMap<>();
+    private final Map<Key, Long> lastUsedAt = new ConcurrentHashMap<>();
+    // Concurrent commands without a session share one login
+    private final McpxSingleFlight<Key, Boolean> logins = new McpxSingleFlight<>();
+    private final long ttlNanos;
+    private final long idleTimeoutNanos;
+    private final AtomicLong performed = new AtomicLong();
+    private final AtomicLong avoided = new AtomicLong();
+    private final AtomicLong afterAuthFailure = new AtomicLong();
+
+    McpxLoginSessions(long ttlMillis) {
+        this(ttlMillis, IDLE_TIMEOUT_MILLIS);
+    }
+
+    McpxLoginSessions(long ttlMillis, long idleTimeoutMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    public static McpxLoginSessions get() {
+        return INSTANCE;
+    }
+
+    /**
+     * mcpx-cli processes the current thread has run against a registry so far, logins included.
+     */
+    public static int registryCalls() {
+        return REGISTRY_CALLS.get()[0];
+    }
+
+    /**
+     * Runs a full mcpx-cli command line, logging in first only if there is no live session,
+     * and once more if the command fails with an authentication error. A command that times out
+     * drops the session, so the next one logs in again.
+     */
+    public McpxProcessRunner.Result run(String cliPath, String baseUrl, String method, List<String> command, long deadlineNanos) throws IOException, InterruptedException {
+        Key key = new Key(cliPath, baseUrl, method);
+        try {
+            ensureSession(key, deadlineNanos);
+            McpxProcessRunner.Result result = call(command, deadlineNanos, true, "mcpx-cli request to " + baseUrl);
+            if (isAuthFailure(result)) {
+                LOGGER.log(Level.FINE, "mcpx-cli session for " + baseUrl + " was rejected; logging in again");
+                afterAuthFailure.incrementAndGet();
+                loggedInAt.remove(key);
+                login(key, deadlineNanos);
+                result = call(command, deadlineNanos, true, "mcpx-cli request to " + baseUrl);
+            }
+            return result;
+        } catch (InterruptedIOException e) {
+            loggedInAt.remove(key);
+            throw e;
+        } finally {
+            lastUsedAt.put(key, System.nanoTime());
+        }
+    }
+
+    /**
+     * Runs a full mcpx-cli command line with the plugin's anonymous session; see {@link #run(String, String, String, List, long)}.
+     */
+    public McpxProcessRunner.Result run(String cliPath, String baseUrl, List<String> command, long deadlineNanos) throws IOException, InterruptedException {
+        return run(cliPath, baseUrl, ANONYMOUS, command, deadlineNanos);
+    }
+
+    /**
+     * Logs in unless there is a live session, without running a command.
+     */
+    public void ensure(String cliPath, String baseUrl, String method, long deadlineNanos) throws IOException, InterruptedException {
+        Key key = new Key(cliPath, baseUrl, method);
+        try {
+            ensureSession(key, deadlineNanos);
+        } finally {
+            lastUsedAt.put(key, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records a login performed outside {@link #run}, e.g. an explicit {@code mcpx-cli login}.
+     */
+    public void loggedIn(String cliPath, String baseUrl, String method) {
+        Key key = new Key(cliPath, baseUrl, method);
+        long now = System.nanoTime();
+        loggedInAt.put(key, now);
+        lastUsedAt.put(key, now);
+    }
+
+    /**
+     * Forgets the session, so the next command logs in first.
+     */
+    public void invalidate(String cliPath, String baseUrl, String method) {
+        loggedInAt.remove(new Key(cliPath, baseUrl, method));
+    }
+
+    public boolean hasSession(String cliPath, String baseUrl, String method) {
+        return hasSession(new Key(cliPath, baseUrl, method));
+    }
+
+    public long getLoginsPerformed() {
+        return performed.get();
+    }
+
+    public long getLoginsAvoided() {
+        return avoided.get();
+    }
+
+    public long getLoginsAfterAuthFailure() {
+        return afterAuthFailure.get();
+    }
+
+    /**
+     * One-line summary of the counters, for diagnostics.
+     */
+    public String describe() {
+        return "logins performed " + performed.get() + " (" + afterAuthFailure.get() + " after auth errors), avoided " + avoided.get();
+    }
+
+    /**
+     * Whether a failed command was rejected for lack of a valid session.
+     */
+    static boolean isAuthFailure(McpxProcessRunner.Result result) {
+        return result.getExitCode() != 0
+                && (AUTH_FAILURE.matcher(result.getStderr()).find() || AUTH_FAILURE.matcher(result.getStdout()).find());
+    }
+
+    private boolean hasSession(Key key) {
+        Long at = loggedInAt.get(key);
+        if (at == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Long used = lastUsedAt.get(key);
+        return now - at < ttlNanos && now - Math.max(at, used != null ? used : at) <= idleTimeoutNanos;
+    }
+
+    private void ensureSession(Key key, long deadlineNanos) throws IOException, InterruptedException {
+        if (hasSession(key)) {
+            avoided.incrementAndGet();
+            return;
+        }
+        boolean[] ran = new boolean[1];
+        try {
+            logins.execute(key, () -> {
+                ran[0] = true;
+                // Another command may have logged in just before this one joined
+                if (hasSession(key)) {
+                    avoided.incrementAndGet();
+                } else {
+                    login(key, deadlineNanos);
+                }
+                return Boolean.TRUE;
+            });
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        if (!ran[0]) {
+            // Joined another command's login
+            avoided.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs one mcpx-cli process against the registry, after taking its token.
+     */
+    private static McpxProcessRunner.Result call(List<String> command, long deadlineNanos, boolean timed, String what) throws IOException, InterruptedException {
+        McpxRateLimiter.get().acquire(McpxRateLimiter.currentPriority(), 1, deadlineNanos, what);
+        REGISTRY_CALLS.get()[0]++;
+        return McpxProcessRunner.runUntil(command, deadlineNanos, timed);
+    }
+
+    private void login(Key key, long deadlineNanos) throws IOException, InterruptedException {
+        List<String> login = new ArrayList<>();
+        login.add(key.cliPath);
+        if (key.baseUrl != null && !key.baseUrl.isEmpty()) {
+            login.add("--base-url=" + key.baseUrl);
+        }
+        login.add("login");
+        login.add("--method");
+        login.add(key.method);
+        performed.incrementAndGet();
+        // Logging in is not part of the command's latency
+        McpxProcessRunner.Result result = call(login, deadlineNanos, false, "mcpx-cli login to " + key.baseUrl);
+        if (result.getExitCode() == 0) {
+            long now = System.nanoTime();
+            loggedInAt.put(key, now);
+            lastUsedAt.put(key, now);
+        } else {
+            // Best-effort, as before: the command itself may still succeed without a session
+            LOGGER.log(Level.FINE, McpxProcessRunner.failure(login, result));
+        }
+    }
+
+    private static final class Key {
+        private final String cliPath;
+        private final String baseUrl;
+        private final String method;
+
+        Key(String cliPath, String baseUrl, String method) {
+            this.cliPath = cliPath;
+            this.baseUrl = baseUrl;
+            this.method = method != null ? method : "anonymous";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return cliPath.equals(other.cliPath) && Objects.equals(baseUrl, other.baseUrl) && method.equals(other.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cliPath, baseUrl, method);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory index of what each node can do: whether the configured mcpx-cli runs there, its
+ * version, and the node's OS and architecture.
+ * <p>
+ * Nodes are probed once when they come online (see {@link McpxComputerListener}) and again when the
+ * global CLI path changes, so routing, "Test mcpx-cli" and Probe can consult the index instead of
+ * forking. The probe also loads the plugin's remoting callables on the agent, so the first real
+ * request to a fresh agent does not pay for classloading. A node found without a working CLI is
+ * probed again once the entry is older than {@link #UNAVAILABLE_TTL_MILLIS}, so installing the CLI
+ * on a running agent brings it back into routing.
+ */
+public final class McpxNodeCapabilities {
+    private static final Logger LOGGER = Logger.getLogger(McpxNodeCapabilities.class.getName());
+
+    // Classes the agent would otherwise load on the first registry request
+    private static final List<String> PRELOADED_CLASSES = Arrays.asList(
+            "io.modelcontextprotocol.jenkins.McpxRemoteBatch",
+            "io.modelcontextprotocol.jenkins.McpxRemoteBatch$Callable",
+            "io.modelcontextprotocol.jenkins.McpxRemoteBatch$Operation",
+            "io.modelcontextprotocol.jenkins.McpxRemoteBatch$Operation$Kind",
+            "io.modelcontextprotocol.jenkins.McpxRemoteBatch$Outcome",
+            "io.modelcontextprotocol.jenkins.McpxRemoteBatch$Options",
+            "io.modelcontextprotocol.jenkins.McpxAgentCache",
+            "io.modelcontextprotocol.jenkins.McpxCliClient",
+            "io.modelcontextprotocol.jenkins.McpxCliClient$Command",
+            "io.modelcontextprotocol.jenkins.McpxLoginSessions",
+            "io.modelcontextprotocol.jenkins.McpxProcessLimiter",
+            "io.modelcontextprotocol.jenkins.McpxProcessLimiter$Slots",
+            "io.modelcontextprotocol.jenkins.McpxProcessLimiter$NoSlotException",
+            "io.modelcontextprotocol.jenkins.McpxProcessRunner",
+            "io.modelcontextprotocol.jenkins.McpxProcessRunner$Result",
+            "io.modelcontextprotocol.jenkins.McpxProcessRunner$FailedException",
+            "io.modelcontextprotocol.jenkins.McpxServerDetails",
+            "io.modelcontextprotocol.jenkins.McpxServerDetails$Package",
+            "io.modelcontextprotocol.jenkins.McpxServerDetails$Argument",
+            "io.modelcontextprotocol.jenkins.McpxSingleFlight",
+            "io.modelcontextprotocol.jenkins.McpxServerListParser");
+
+    /**
+     * How long a node found without a working CLI is trusted to still lack it before it is probed again.
+     */
+    static final long UNAVAILABLE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+            Long.getLong(McpxNodeCapabilities.class.getName() + ".unavailableTtlSeconds", 300));
+
+    private static final McpxNodeCapabilities INSTANCE = new McpxNodeCapabilities();
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final ExecutorService prober;
+    private final LongSupplier clock;
+
+    McpxNodeCapabilities() {
+        this(System::nanoTime);
+    }
+
+    McpxNodeCapabilities(LongSupplier clock) {
+        this.clock = clock;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "McpxNodeCapabilities.probe"));
+        executor.allowCoreThreadTimeOut(true);
+        this.prober = executor;
+    }
+
+    public static McpxNodeCapabilities get() {
+        return INSTANCE;
+    }
+
+    /**
+     * What a node reported for a CLI path.
+     */
+    public static final class Capability implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean available;
+        private final String version;
+        private final String error;
+        private final String os;
+        private final String arch;
+
+        Capability(boolean available, String version, String error, String os, String arch) {
+            this.available = available;
+            this.version = version;
+            this.error = error;
+            this.os = os;
+            this.arch = arch;
+        }
+
+        /** Whether {@code mcpx-cli --version} succeeded. */
+        public boolean isAvailable() {
+            return available;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /** Why the CLI is not available, or null. */
+        public String getError() {
+            return error;
+        }
+
+        public String getOs() {
+            return os;
+        }
+
+        public String getArch() {
+            return arch;
+        }
+    }
+
+    /**
+     * Indexed capability of a node for a CLI path, or null if it has not been probed.
+     */
+    public Capability lookup(String node, String cliPath) {
+        Entry e = index.get(key(node, cliPath));
+        return e != null ? e.capability : null;
+    }
+
+    /**
+     * Whether the node was probed and the CLI path did not work there.
+     */
+    public boolean isKnownUnavailable(String node, String cliPath) {
+        Capability c = lookup(node, cliPath);
+        return c != null && !c.isAvailable();
+    }
+
+    /**
+     * Whether the CLI path did not work on the node when last probed. If that was longer than
+     * {@link #UNAVAILABLE_TTL_MILLIS} ago, the node is probed again in the background; until the
+     * new result arrives it still counts as unavailable.
+     */
+    public boolean isKnownUnavailable(Node node, String cliPath) {
+        String name = McpxDeadlines.nodeName(node);
+        if (!isKnownUnavailable(name, cliPath)) {
+            return false;
+        }
+        if (claimReprobe(name, cliPath)) {
+            LOGGER.log(Level.FINE, "Probing " + name + " again for mcpx-cli at " + cliPath);
+            probeLater(node, cliPath);
+        }
+        return true;
+    }
+
+    /**
+     * Whether an unavailable entry has outlived its TTL. Its age restarts, so only one caller
+     * re-probes and a probe that fails to reach the node is retried after another TTL.
+     */
+    boolean claimReprobe(String node, String cliPath) {
+        String key = key(node, cliPath);
+        Entry e = index.get(key);
+        long now = clock.getAsLong();
+        return e != null && !e.capability.isAvailable()
+                && now - e.recordedAt >= TimeUnit.MILLISECONDS.toNanos(UNAVAILABLE_TTL_MILLIS)
+                && index.replace(key, e, new Entry(e.capability, now));
+    }
+
+    /**
+     * Probes the node now and indexes the result.
+     */
+    public Capability probe(Node node, String cliPath) throws IOException, InterruptedException {
+        Capability c = McpxDeadlines.get().act(node, "version", timeout -> new CapabilityCallable(cliPath, timeout));
+        record(McpxDeadlines.nodeName(node), cliPath, c);
+        return c;
+    }
+
+    /**
+     * Probes the node in the background.
+     */
+    public void probeLater(Node node, String cliPath) {
+        prober.execute(() -> {
+            try {
+                probe(node, cliPath);
+            } catch (Exception e) {
+                // Remoting trouble says nothing about the CLI; leave the node unknown
+                LOGGER.log(Level.FINE, "Capability probe of " + McpxDeadlines.nodeName(node) + " failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Re-probes the controller and every online agent for a (new) CLI path.
+     */
+    public void probeAll(String cliPath) {
+        Jenkins j = Jenkins.get();
+        probeLater(j, cliPath);
+        for (Node n : j.getNodes()) {
+            Computer c = n.toComputer();
+            if (c != null && c.isOnline()) {
+                probeLater(n, cliPath);
+            }
+        }
+    }
+
+    /**
+     * Drops everything known about a node, e.g. when it goes offline.
+     */
+    public void forget(String node) {
+        index.keySet().removeIf(k -> k.startsWith(node + "\n"));
+    }
+
+    void record(String node, String cliPath, Capability c) {
+        index.put(key(node, cliPath), new Entry(c, clock.getAsLong()));
+        LOGGER.log(Level.FINE, "mcpx-cli on " + node + " (" + c.getOs() + "/" + c.getArch() + "): "
+                + (c.isAvailable() ? c.getVersion() : "unavailable: " + c.getError()));
+    }
+
+    void clear() {
+        index.clear();
+    }
+
+    private static String key(String node, String cliPath) {
+        return node + "\n" + cliPath;
+    }
+
+    private static final class Entry {
+        private final Capability capability;
+        private final long recordedAt;
+
+        Entry(Capability capability, long recordedAt) {
+            this.capability = capability;
+            this.recordedAt = recordedAt;
+        }
+    }
+
+    // Runs mcpx-cli --version on a node and loads the plugin's remoting classes there
+    static class CapabilityCallable implements FilePath.FileCallable<Capability> {
+        private final String rawCliPath;
+        private final long timeoutMillis;
+
+        CapabilityCallable(String rawCliPath, long timeoutMillis) {
+            this.rawCliPath = rawCliPath;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Capability invoke(File f, hudson.remoting.VirtualChannel channel) throws IOException, InterruptedException {
+            preload();
+            String os = System.getProperty("os.name");
+            String arch = System.getProperty("os.arch");
+            List<String> command = Arrays.asList(expandHome(rawCliPath), "--version");
+            try {
+                McpxProcessRunner.Result result = McpxProcessRunner.run(command, timeoutMillis);
+                if (result.getExitCode() != 0) {
+                    return new Capability(false, null, McpxProcessRunner.failure(command, result), os, arch);
+                }
+                return new Capability(true, result.getStdout().trim(), null, os, arch);
+            } catch (IOException e) {
+                // Typically the executable does not exist or is not executable on this node
+                return new Capability(false, null, e.getMessage(), os, arch);
+            }
+        }
+
+        private void preload() {
+            ClassLoader loader = getClass().getClassLoader();
+            for (String name : PRELOADED_CLASSES) {
+                try {
+                    Class.forName(name, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Loaded on first use instead
+                }
+            }
+        }
+
+        @Override
+        public void checkRoles(org.jenkinsci.remoting.RoleChecker checker) throws SecurityException {
+            // default
+        }
+
+        private static String expandHome(String path) {
+            if (path == null || path.isEmpty()) {
+                return "mcpx-cli";
+            }
+            if (path.startsWith("~/")) {
+                String home = System.getProperty("user.home");
+                if (home != null && !home.isEmpty()) {
+                    return home + path.substring(1);
+                }
+            }
+            return path;
+        }
+    }
+}
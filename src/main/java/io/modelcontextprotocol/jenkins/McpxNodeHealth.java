@@ -0,0 +1,260 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.EOFException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Health of each node for each mcpx-cli operation, used to rank routing candidates.
+ * <p>
+ * Successes record a moving average of latency; failures put the node in a backoff window that
+ * doubles with each consecutive failure (from {@link #BASE_BACKOFF_MILLIS} up to
+ * {@link #MAX_BACKOFF_MILLIS}) and ends with the next success. Nodes in backoff are kept out of
+ * routing, so repeated fetches stop paying for agents known to lack a working mcpx-cli. The others
+ * are ranked by expected cost: average latency divided by the smoothed success rate.
+ * <p>
+ * Only node faults count as failures (see {@link #isNodeFault}): an unknown server, rejected
+ * credentials or a registry error would have failed on any node. Within a {@link Round} over
+ * several nodes, faults are not held against anyone if every node failed, since the cause is then
+ * most likely shared.
+ */
+public final class McpxNodeHealth {
+    private static final Logger LOGGER = Logger.getLogger(McpxNodeHealth.class.getName());
+
+    static final long BASE_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    // Assumed latency of a node that has not answered yet
+    static final long UNKNOWN_LATENCY_MILLIS = 1000;
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private static final McpxNodeHealth INSTANCE = new McpxNodeHealth(System::nanoTime);
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    McpxNodeHealth(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static McpxNodeHealth get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs an attempt on a node and records its outcome. Attempts that are cancelled
+     * (interrupted) are not held against the node, nor are failures other than node faults.
+     */
+    public <T> T track(String node, String operation, McpxHedging.Attempt<T> attempt) throws Exception {
+        return track(node, operation, attempt, e -> {
+            if (isNodeFault(e)) {
+                failure(node, operation);
+            }
+        });
+    }
+
+    /**
+     * Starts a round: one fetch tried on several nodes.
+     */
+    public Round round(String operation) {
+        return new Round(operation);
+    }
+
+    /**
+     * Outcomes of one fetch tried on several nodes. Successes are recorded as they happen; node
+     * faults only once the round is over, and only if some node got an answer (a success, or a
+     * failure that was not a node fault). When every node failed for its own fault, e.g. all timed
+     * out, the registry or network is the likelier cause and no node is backed off.
+     */
+    public final class Round {
+        private final String operation;
+        // Guarded by this
+        private final Set<String> faulted = new LinkedHashSet<>();
+        private boolean answered;
+
+        private Round(String operation) {
+            this.operation = operation;
+        }
+
+        public <T> T track(String node, McpxHedging.Attempt<T> attempt) throws Exception {
+            T result = McpxNodeHealth.this.track(node, operation, attempt, e -> failed(node, e));
+            answered();
+            return result;
+        }
+
+        /**
+         * Records the node faults of the round, unless no node got an answer.
+         */
+        public synchronized void finish() {
+            if (!answered) {
+                if (!faulted.isEmpty()) {
+                    LOGGER.log(Level.FINE, "Every node failed " + operation + "; not holding it against " + faulted);
+                }
+                return;
+            }
+            for (String node : faulted) {
+                failure(node, operation);
+            }
+        }
+
+        private synchronized void answered() {
+            answered = true;
+        }
+
+        private synchronized void failed(String node, Exception e) {
+            if (isNodeFault(e)) {
+                faulted.add(node);
+            } else {
+                answered = true;
+            }
+        }
+    }
+
+    private <T> T track(String node, String operation, McpxHedging.Attempt<T> attempt, Consumer<Exception> onFailure) throws Exception {
+        long start = clock.getAsLong();
+        try {
+            T result = attempt.call();
+            success(node, operation, TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - start));
+            return result;
+        } catch (InterruptedException | McpxRateLimiter.ThrottledException e) {
+            // Throttled attempts were never sent, so they say nothing about the node
+            throw e;
+        } catch (InterruptedIOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            onFailure.accept(e);
+            throw e;
+        } catch (Exception e) {
+            onFailure.accept(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether a failure lies with the node rather than the registry: mcpx-cli could not be started
+     * or crashed, the remoting channel failed, or the call ran out of time. Failures that mcpx-cli or
+     * the registry answered, such as an unknown server, rejected credentials or a server error, say
+     * nothing about the node.
+     */
+    public static boolean isNodeFault(Throwable e) {
+        if (e instanceof InterruptedIOException) {
+            return true;
+        }
+        if (e instanceof McpxProcessRunner.FailedException) {
+            return ((McpxProcessRunner.FailedException) e).isCrash();
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (t.getClass().getName().startsWith("hudson.remoting.") || t instanceof EOFException
+                    || (message != null && (message.startsWith("Cannot run program") || message.startsWith("No root path")))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void success(String node, String operation, long latencyMillis) {
+        statsFor(node, operation).success(latencyMillis);
+    }
+
+    public void failure(String node, String operation) {
+        Stats s = statsFor(node, operation);
+        long backoff = s.failure(clock.getAsLong());
+        LOGGER.log(Level.FINE, "Node " + node + " failed " + operation + "; keeping it out of routing for " + backoff + " ms");
+    }
+
+    /**
+     * Whether the node failed the operation recently and is still in its backoff window.
+     */
+    public boolean isBackedOff(String node, String operation) {
+        Stats s = stats.get(key(node, operation));
+        return s != null && s.backedOffAt(clock.getAsLong());
+    }
+
+    /**
+     * Expected cost of running the operation on the node; lower is better.
+     */
+    public double score(String node, String operation) {
+        Stats s = stats.get(key(node, operation));
+        return s != null ? s.score() : Stats.UNKNOWN_SCORE;
+    }
+
+    /**
+     * Orders nodes by score, keeping the given order among equal scores. Nodes in backoff are
+     * dropped, or moved to the end if {@code keepBackedOff} is set.
+     */
+    public <T> List<T> rank(List<T> nodes, Function<T, String> nameOf, String operation, boolean keepBackedOff) {
+        List<T> healthy = new ArrayList<>();
+        List<T> backedOff = new ArrayList<>();
+        for (T n : nodes) {
+            (isBackedOff(nameOf.apply(n), operation) ? backedOff : healthy).add(n);
+        }
+        // List.sort is stable, so priority order is kept among nodes with the same score
+        healthy.sort(Comparator.comparingDouble(n -> score(nameOf.apply(n), operation)));
+        if (keepBackedOff) {
+            healthy.addAll(backedOff);
+        }
+        return healthy;
+    }
+
+    void clear() {
+        stats.clear();
+    }
+
+    private Stats statsFor(String node, String operation) {
+        return stats.computeIfAbsent(key(node, operation), k -> new Stats());
+    }
+
+    private static String key(String node, String operation) {
+        return node + "\n" + operation;
+    }
+
+    private static final class Stats {
+        static final double UNKNOWN_SCORE = UNKNOWN_LATENCY_MILLIS / 0.5;
+
+        private long successes;
+        private long failures;
+        private int consecutiveFailures;
+        private double latencyMillis = -1;
+        private long backoffUntilNanos;
+
+        synchronized void success(long millis) {
+            successes++;
+            consecutiveFailures = 0;
+            backoffUntilNanos = 0;
+            latencyMillis = latencyMillis < 0 ? millis : LATENCY_WEIGHT * millis + (1 - LATENCY_WEIGHT) * latencyMillis;
+        }
+
+        synchronized long failure(long nowNanos) {
+            failures++;
+            consecutiveFailures++;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 20));
+            backoffUntilNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(backoff);
+            return backoff;
+        }
+
+        synchronized boolean backedOffAt(long nowNanos) {
+            return consecutiveFailures > 0 && nowNanos - backoffUntilNanos < 0;
+        }
+
+        synchronized double score() {
+            // Laplace-smoothed success rate, so one early failure does not dominate
+            double successRate = (successes + 1.0) / (successes + failures + 2.0);
+            double latency = latencyMillis < 0 ? UNKNOWN_LATENCY_MILLIS : latencyMillis;
+            return latency / successRate;
+        }
+    }
+}
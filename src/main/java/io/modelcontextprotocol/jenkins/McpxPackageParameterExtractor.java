@@ -4,8 +4,6 @@ import hudson.Util;
 import hudson.model.Job;
 import hudson.model.ParameterDefinition;
 import hudson.model.StringParameterDefinition;
-import net.sf.json.JSONArray;
-import net.sf.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -32,64 +30,60 @@ public class McpxPackageParameterExtractor {
         }
 
         try {
-            McpxRegistryClient client = new McpxRegistryClient();
-            String serverDetailsJson = client.fetchServerDetails(job, serverName);
-            JSONObject serverDetails = client.parseServerDetails(serverDetailsJson);
-
-            if (!serverDetails.has("packages")) {
+            McpxServerDetails serverDetails = new McpxRegistryClient().getServerDetails(job, serverName);
+            parameters = extractParameters(serverDetails);
+            if (serverDetails.getPrimaryPackage() == null) {
                 LOGGER.log(Level.FINE, "No packages found in server details for: " + serverName);
                 return parameters;
             }
+            LOGGER.log(Level.INFO, "Extracted " + parameters.size() + " parameters from packages for server: " + serverName);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to extract parameters from packages for server: " + serverName, e);
+        }
 
-            JSONArray packages = serverDetails.getJSONArray("packages");
-            if (packages == null || packages.isEmpty()) {
-                return parameters;
-            }
+        return parameters;
+    }
 
-            // Process the first package (typically there's one package per server)
-            JSONObject packageObj = packages.getJSONObject(0);
-
-            // Extract registryType from package
-            if (packageObj.has("registryType")) {
-                String registryType = packageObj.optString("registryType", "");
-                if (!registryType.isEmpty()) {
-                    String description = "Registry type for the MCP server package (e.g., docker, binary, npm, pypi, wheel)";
-                    StringParameterDefinition registryTypeParam = new StringParameterDefinition(
-                        "MCPX_REGISTRY_TYPE",
-                        registryType,
-                        description
-                    );
-                    parameters.add(registryTypeParam);
-                }
-            }
+    /**
+     * Creates Jenkins parameter definitions from already fetched server details.
+     * @param serverDetails The server details
+     * @return List of parameter definitions extracted from the first package
+     */
+    static List<ParameterDefinition> extractParameters(McpxServerDetails serverDetails) {
+        List<ParameterDefinition> parameters = new ArrayList<>();
 
-            // Extract runtimeArguments
-            if (packageObj.has("runtimeArguments")) {
-                JSONArray runtimeArgs = packageObj.getJSONArray("runtimeArguments");
-                for (int i = 0; i < runtimeArgs.size(); i++) {
-                    JSONObject arg = runtimeArgs.getJSONObject(i);
-                    ParameterDefinition param = createParameterFromRuntimeArgument(arg);
-                    if (param != null) {
-                        parameters.add(param);
-                    }
-                }
-            }
+        // Process the first package (typically there's one package per server)
+        McpxServerDetails.Package packageObj = serverDetails.getPrimaryPackage();
+        if (packageObj == null) {
+            return parameters;
+        }
 
-            // Extract environmentVariables
-            if (packageObj.has("environmentVariables")) {
-                JSONArray envVars = packageObj.getJSONArray("environmentVariables");
-                for (int i = 0; i < envVars.size(); i++) {
-                    JSONObject envVar = envVars.getJSONObject(i);
-                    ParameterDefinition param = createParameterFromEnvironmentVariable(envVar);
-                    if (param != null) {
-                        parameters.add(param);
-                    }
-                }
+        // Extract registryType from package
+        String registryType = packageObj.getRegistryType();
+        if (!registryType.isEmpty()) {
+            String description = "Registry type for the MCP server package (e.g., docker, binary, npm, pypi, wheel)";
+            StringParameterDefinition registryTypeParam = new StringParameterDefinition(
+                "MCPX_REGISTRY_TYPE",
+                registryType,
+                description
+            );
+            parameters.add(registryTypeParam);
+        }
+
+        // Extract runtimeArguments
+        for (McpxServerDetails.Argument arg : packageObj.getRuntimeArguments()) {
+            ParameterDefinition param = createParameterFromRuntimeArgument(arg);
+            if (param != null) {
+                parameters.add(param);
             }
+        }
 
-            LOGGER.log(Level.INFO, "Extracted " + parameters.size() + " parameters from packages for server: " + serverName);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Failed to extract parameters from packages for server: " + serverName, e);
+        // Extract environmentVariables
+        for (McpxServerDetails.Argument envVar : packageObj.getEnvironmentVariables()) {
+            ParameterDefinition param = createParameterFromEnvironmentVariable(envVar);
+            if (param != null) {
+                parameters.add(param);
+            }
         }
 
         return parameters;
@@ -98,17 +92,17 @@ public class McpxPackageParameterExtractor {
     /**
      * Creates a Jenkins parameter definition from a runtime argument.
      */
-    private static ParameterDefinition createParameterFromRuntimeArgument(JSONObject arg) {
+    private static ParameterDefinition createParameterFromRuntimeArgument(McpxServerDetails.Argument arg) {
         try {
-            String type = arg.optString("type", "positional");
+            String type = arg.getType();
             String name = null;
-            String description = arg.optString("description", "");
-            String defaultValue = arg.optString("default", "");
-            boolean isRequired = arg.optBoolean("isRequired", false);
-            String valueHint = arg.optString("valueHint", "");
+            String description = arg.getDescription();
+            String defaultValue = arg.getDefaultValue();
+            boolean isRequired = arg.isRequired();
+            String valueHint = arg.getValueHint();
 
             if ("named".equals(type)) {
-                String argName = arg.optString("name", "");
+                String argName = arg.getName();
                 if (argName.isEmpty()) {
                     LOGGER.log(Level.WARNING, "Skipping runtime argument with missing name");
                     return null;
@@ -139,7 +133,7 @@ public class McpxPackageParameterExtractor {
 
             // Create description with original argument info
             if (description.isEmpty()) {
-                description = "Runtime argument: " + (arg.has("name") ? arg.getString("name") : valueHint);
+                description = "Runtime argument: " + (!arg.getName().isEmpty() ? arg.getName() : valueHint);
             }
 
             return new StringParameterDefinition(name, defaultValue, description);
@@ -152,9 +146,9 @@ public class McpxPackageParameterExtractor {
     /**
      * Creates a Jenkins parameter definition from an environment variable.
      */
-    private static ParameterDefinition createParameterFromEnvironmentVariable(JSONObject envVar) {
+    private static ParameterDefinition createParameterFromEnvironmentVariable(McpxServerDetails.Argument envVar) {
         try {
-            String name = envVar.optString("name", "");
+            String name = envVar.getName();
             if (name.isEmpty()) {
                 LOGGER.log(Level.WARNING, "Skipping environment variable with missing name");
                 return null;
@@ -166,13 +160,13 @@ public class McpxPackageParameterExtractor {
                 paramName = "MCPX_" + paramName;
             }
 
-            String description = envVar.optString("description", "");
+            String description = envVar.getDescription();
             if (description.isEmpty()) {
                 description = "Environment variable: " + name;
             }
 
-            String defaultValue = envVar.optString("default", "");
-            boolean isRequired = envVar.optBoolean("isRequired", false);
+            String defaultValue = envVar.getDefaultValue();
+            boolean isRequired = envVar.isRequired();
 
             return new StringParameterDefinition(paramName, defaultValue, description);
         } catch (Exception e) {
@@ -196,82 +190,75 @@ public class McpxPackageParameterExtractor {
         }
 
         try {
-            McpxRegistryClient client = new McpxRegistryClient();
-            String serverDetailsJson = client.fetchServerDetails(job, serverName);
-            JSONObject serverDetails = client.parseServerDetails(serverDetailsJson);
+            defaults = getDefaultValues(new McpxRegistryClient().getServerDetails(job, serverName));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to get default values from packages for server: " + serverName, e);
+        }
 
-            if (!serverDetails.has("packages")) {
-                return defaults;
-            }
+        return defaults;
+    }
 
-            JSONArray packages = serverDetails.getJSONArray("packages");
-            if (packages == null || packages.isEmpty()) {
-                return defaults;
-            }
+    /**
+     * Gets default parameter values from already fetched server details.
+     * @param serverDetails The server details
+     * @return Map of parameter names to default values
+     */
+    static java.util.Map<String, String> getDefaultValues(McpxServerDetails serverDetails) {
+        java.util.Map<String, String> defaults = new java.util.HashMap<>();
 
-            JSONObject packageObj = packages.getJSONObject(0);
+        McpxServerDetails.Package packageObj = serverDetails.getPrimaryPackage();
+        if (packageObj == null) {
+            return defaults;
+        }
 
-            // Extract registryType from package
-            if (packageObj.has("registryType")) {
-                String registryType = packageObj.optString("registryType", "");
-                if (!registryType.isEmpty()) {
-                    defaults.put("MCPX_REGISTRY_TYPE", registryType);
-                }
-            }
+        // Extract registryType from package
+        String registryType = packageObj.getRegistryType();
+        if (!registryType.isEmpty()) {
+            defaults.put("MCPX_REGISTRY_TYPE", registryType);
+        }
 
-            // Extract runtimeArguments defaults
-            if (packageObj.has("runtimeArguments")) {
-                JSONArray runtimeArgs = packageObj.getJSONArray("runtimeArguments");
-                for (int i = 0; i < runtimeArgs.size(); i++) {
-                    JSONObject arg = runtimeArgs.getJSONObject(i);
-                    String type = arg.optString("type", "positional");
-                    String name = null;
-                    String defaultValue = arg.optString("default", "");
-
-                    if ("named".equals(type)) {
-                        String argName = arg.optString("name", "");
-                        String valueHint = arg.optString("valueHint", "");
-                        if (!argName.isEmpty()) {
-                            // Prefer valueHint if available for more descriptive names
-                            if (!valueHint.isEmpty()) {
-                                name = "MCPX_" + valueHint.replace("-", "_").toUpperCase();
-                            } else {
-                                name = "MCPX_" + argName.replace("--", "").replace("-", "_").toUpperCase();
-                            }
-                        }
-                    } else if ("positional".equals(type)) {
-                        String valueHint = arg.optString("valueHint", "");
-                        if (!valueHint.isEmpty()) {
-                            name = "MCPX_" + valueHint.replace("-", "_").toUpperCase();
-                        }
-                    }
+        // Extract runtimeArguments defaults
+        for (McpxServerDetails.Argument arg : packageObj.getRuntimeArguments()) {
+            String type = arg.getType();
+            String name = null;
+            String defaultValue = arg.getDefaultValue();
 
-                    if (name != null && !name.isEmpty() && !defaultValue.isEmpty()) {
-                        defaults.put(name, defaultValue);
+            if ("named".equals(type)) {
+                String argName = arg.getName();
+                String valueHint = arg.getValueHint();
+                if (!argName.isEmpty()) {
+                    // Prefer valueHint if available for more descriptive names
+                    if (!valueHint.isEmpty()) {
+                        name = "MCPX_" + valueHint.replace("-", "_").toUpperCase();
+                    } else {
+                        name = "MCPX_" + argName.replace("--", "").replace("-", "_").toUpperCase();
                     }
                 }
+            } else if ("positional".equals(type)) {
+                String valueHint = arg.getValueHint();
+                if (!valueHint.isEmpty()) {
+                    name = "MCPX_" + valueHint.replace("-", "_").toUpperCase();
+                }
             }
 
-            // Extract environmentVariables defaults
-            if (packageObj.has("environmentVariables")) {
-                JSONArray envVars = packageObj.getJSONArray("environmentVariables");
-                for (int i = 0; i < envVars.size(); i++) {
-                    JSONObject envVar = envVars.getJSONObject(i);
-                    String name = envVar.optString("name", "");
-                    if (!name.isEmpty()) {
-                        String paramName = name;
-                        if (!paramName.startsWith("MCPX_") && !paramName.startsWith("MCP_")) {
-                            paramName = "MCPX_" + paramName;
-                        }
-                        String defaultValue = envVar.optString("default", "");
-                        if (!defaultValue.isEmpty()) {
-                            defaults.put(paramName, defaultValue);
-                        }
-                    }
+            if (name != null && !name.isEmpty() && !defaultValue.isEmpty()) {
+                defaults.put(name, defaultValue);
+            }
+        }
+
+        // Extract environmentVariables defaults
+        for (McpxServerDetails.Argument envVar : packageObj.getEnvironmentVariables()) {
+            String name = envVar.getName();
+            if (!name.isEmpty()) {
+                String paramName = name;
+                if (!paramName.startsWith("MCPX_") && !paramName.startsWith("MCP_")) {
+                    paramName = "MCPX_" + paramName;
+                }
+                String defaultValue = envVar.getDefaultValue();
+                if (!defaultValue.isEmpty()) {
+                    defaults.put(paramName, defaultValue);
                 }
             }
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Failed to get default values from packages for server: " + serverName, e);
         }
 
         return defaults;
@@ -0,0 +1,180 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Limits how many mcpx-cli processes run at once in this JVM, i.e. on this node.
+ * <p>
+ * Every process started by {@link McpxProcessRunner} holds a slot while it runs; callers beyond the
+ * limit wait in a fair (first come, first served) queue, within their own deadline. A burst of build
+ * starts therefore queues up instead of forking dozens of processes, each with its own output pump
+ * threads, on a small agent. The limit is set on the controller from the global configuration and
+ * sent along with each batch to agents. Queue waits are counted for diagnostics (see Probe).
+ */
+public final class McpxProcessLimiter {
+    private static final Logger LOGGER = Logger.getLogger(McpxProcessLimiter.class.getName());
+
+    public static final int DEFAULT_LIMIT = 4;
+
+    private static final McpxProcessLimiter INSTANCE = new McpxProcessLimiter(DEFAULT_LIMIT, System::nanoTime);
+
+    /**
+     * A held slot, released when closed.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Thrown when no slot became free before the deadline; no process was started.
+     */
+    public static final class NoSlotException extends InterruptedIOException {
+        NoSlotException(String message) {
+            super(message);
+        }
+    }
+
+    private final Slots slots;
+    private final LongSupplier clock;
+    private int limit;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    McpxProcessLimiter(int limit, LongSupplier clock) {
+        this.limit = Math.max(1, limit);
+        this.slots = new Slots(this.limit);
+        this.clock = clock;
+    }
+
+    public static McpxProcessLimiter get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Changes the number of slots. Processes already running keep theirs; with a lower limit,
+     * no new process starts until enough of them have finished.
+     */
+    public synchronized void setLimit(int newLimit) {
+        newLimit = Math.max(1, newLimit);
+        if (newLimit > limit) {
+            slots.release(newLimit - limit);
+        } else if (newLimit < limit) {
+            slots.reducePermits(limit - newLimit);
+        }
+        if (newLimit != limit) {
+            LOGGER.log(Level.FINE, "mcpx-cli process limit changed from " + limit + " to " + newLimit);
+        }
+        limit = newLimit;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Waits for a free slot until the deadline (from {@link System#nanoTime()}).
+     * @param what the process waiting, for messages
+     * @throws NoSlotException if no slot became free before the deadline
+     */
+    public Permit acquire(long deadlineNanos, String what) throws NoSlotException, InterruptedException {
+        long start = clock.getAsLong();
+        // A zero timeout rather than tryAcquire(), which would jump the queue
+        if (!slots.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            // Join the queue; the fair semaphore hands out slots in arrival order
+            long remaining = deadlineNanos - start;
+            if (remaining <= 0 || !slots.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                timedOut.incrementAndGet();
+                throw new NoSlotException(what + " was not started: no free mcpx-cli slot within its deadline ("
+                        + getRunning() + " running, " + slots.getQueueLength() + " queued)");
+            }
+            long wait = clock.getAsLong() - start;
+            waited.incrementAndGet();
+            waitNanos.addAndGet(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            LOGGER.log(Level.FINE, what + " waited " + TimeUnit.NANOSECONDS.toMillis(wait) + " ms for an mcpx-cli slot");
+        }
+        acquired.incrementAndGet();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        };
+    }
+
+    /**
+     * Processes running now.
+     */
+    public int getRunning() {
+        return Math.max(0, getLimit() - slots.availablePermits());
+    }
+
+    /**
+     * Callers waiting for a slot now.
+     */
+    public int getQueued() {
+        return slots.getQueueLength();
+    }
+
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /**
+     * Processes that had to wait for a slot before starting.
+     */
+    public long getWaitedCount() {
+        return waited.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * Processes not started because no slot became free before their deadline.
+     */
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Current usage and queue-wait counters, for diagnostics.
+     */
+    public String describe() {
+        long w = waited.get();
+        return "cli processes " + getRunning() + "/" + getLimit() + " running, " + getQueued() + " queued; "
+                + w + " of " + acquired.get() + " waited (avg " + (w > 0 ? getTotalWaitMillis() / w : 0)
+                + " ms, max " + getMaxWaitMillis() + " ms), " + timedOut.get() + " timed out";
+    }
+
+    // Fair semaphore whose permits can be reduced when the limit is lowered
+    private static final class Slots extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        Slots(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
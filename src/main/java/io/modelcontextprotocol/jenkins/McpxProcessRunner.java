@@ -0,0 +1,245 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs mcpx-cli processes under a hard deadline.
+ * <p>
+ * Standard input is closed immediately so a CLI waiting on a prompt fails instead of blocking,
+ * and stdout and stderr are both captured. If the deadline expires, or the calling thread is
+ * interrupted (e.g., because a remoting call was cancelled), the process and all of its
+ * descendants are killed. Used on the controller and, from remote callables, on agents.
+ * <p>
+ * Processes are started within the node's {@link McpxProcessLimiter}, so only a bounded number
+ * run at once; waiting for a slot counts against the same deadline, but not as run time:
+ * {@link #runNanos()} only adds up the time processes were actually running, which is what
+ * {@link McpxDeadlines} derives its deadlines from.
+ */
+public final class McpxProcessRunner {
+
+    // Reused output pump threads; at most two per running process, which the process limiter bounds
+    private static final ExecutorService PUMPS = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), "McpxProcessRunner.pump"));
+
+    // Time the current thread has spent running timed processes
+    private static final ThreadLocal<long[]> RUN_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private McpxProcessRunner() {
+    }
+
+    /**
+     * Output of a finished process.
+     */
+    public static final class Result {
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+
+        Result(int exitCode, String stdout, String stderr) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getStdout() {
+            return stdout;
+        }
+
+        public String getStderr() {
+            return stderr;
+        }
+    }
+
+    /**
+     * Thrown for a process that ran and exited with a non-zero code; the message includes its stderr.
+     */
+    public static final class FailedException extends IOException {
+        private final int exitCode;
+        private final String stderr;
+
+        public FailedException(List<String> command, Result result) {
+            this(failure(command, result), result.getExitCode(), result.getStderr());
+        }
+
+        FailedException(String message, int exitCode, String stderr) {
+            super(message);
+            this.exitCode = exitCode;
+            this.stderr = stderr;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getStderr() {
+            return stderr;
+        }
+
+        /**
+         * Whether the process never got to answer: the shell could not run it (126, 127) or it was
+         * killed by a signal (128 + signal).
+         */
+        public boolean isCrash() {
+            return exitCode == 126 || exitCode == 127 || exitCode > 128 || exitCode < 0;
+        }
+    }
+
+    /**
+     * Runs the command and waits at most {@code timeoutMillis} for it to exit.
+     * @throws InterruptedIOException if the deadline expired; the process tree has been killed
+     * @throws InterruptedException if the calling thread was interrupted; the process tree has been killed
+     */
+    public static Result run(List<String> command, long timeoutMillis) throws IOException, InterruptedException {
+        return run(command, timeoutMillis, true);
+    }
+
+    private static Result run(List<String> command, long timeoutMillis, boolean timed) throws IOException, InterruptedException {
+        long deadline = deadline(Math.max(0, timeoutMillis));
+        // Time spent waiting for a slot counts against the timeout
+        try (McpxProcessLimiter.Permit ignored = McpxProcessLimiter.get().acquire(deadline, describe(command))) {
+            long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            long started = System.nanoTime();
+            try {
+                return start(command, remaining, timeoutMillis);
+            } finally {
+                if (timed) {
+                    RUN_NANOS.get()[0] += System.nanoTime() - started;
+                }
+            }
+        }
+    }
+
+    private static Result start(List<String> command, long remainingMillis, long timeoutMillis) throws IOException, InterruptedException {
+        Process proc = new ProcessBuilder(command).start();
+        proc.getOutputStream().close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Future<?> outPump = pump(proc.getInputStream(), out);
+        Future<?> errPump = pump(proc.getErrorStream(), err);
+        try {
+            if (!proc.waitFor(remainingMillis, TimeUnit.MILLISECONDS)) {
+                destroyTree(proc);
+                throw new InterruptedIOException(describe(command) + " did not finish within " + timeoutMillis + " ms and was killed");
+            }
+            // Output is fully read once the pipes reach EOF; bound the wait in case a descendant keeps them open
+            await(outPump);
+            await(errPump);
+        } catch (InterruptedException e) {
+            destroyTree(proc);
+            throw e;
+        }
+        return new Result(proc.exitValue(), out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Total time the current thread has spent running processes, not counting waits for a slot
+     * or untimed processes; the difference between two readings is the run time of the work in between.
+     */
+    public static long runNanos() {
+        return RUN_NANOS.get()[0];
+    }
+
+    /**
+     * Adds run time measured on another thread working on behalf of this one.
+     */
+    static void addRunNanos(long nanos) {
+        RUN_NANOS.get()[0] += nanos;
+    }
+
+    /**
+     * Runs the command with whatever remains of a deadline taken from {@link System#nanoTime()},
+     * so several processes started for one call share a single budget.
+     */
+    public static Result runUntil(List<String> command, long deadlineNanos) throws IOException, InterruptedException {
+        return runUntil(command, deadlineNanos, true);
+    }
+
+    /**
+     * Like {@link #runUntil(List, long)}; an untimed process, such as a login ahead of the actual
+     * command, is left out of {@link #runNanos()}.
+     */
+    public static Result runUntil(List<String> command, long deadlineNanos, boolean timed) throws IOException, InterruptedException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remaining <= 0) {
+            throw new InterruptedIOException(describe(command) + " was not started because its deadline had already expired");
+        }
+        return run(command, remaining, timed);
+    }
+
+    /**
+     * Deadline {@code timeoutMillis} from now, for use with {@link #runUntil}.
+     */
+    public static long deadline(long timeoutMillis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Builds an error message for a failed process, including its stderr.
+     */
+    public static String failure(List<String> command, Result result) {
+        String stderr = result.getStderr().trim();
+        return describe(command) + " failed with exit code " + result.getExitCode() + (stderr.isEmpty() ? "" : ": " + stderr);
+    }
+
+    private static String describe(List<String> command) {
+        // The executable and subcommand are enough to identify the call without echoing arguments
+        List<String> shown = new ArrayList<>();
+        for (String arg : command) {
+            if (!arg.startsWith("-")) {
+                shown.add(shown.isEmpty() ? new File(arg).getName() : arg);
+            }
+            if (shown.size() == 2) {
+                break;
+            }
+        }
+        return String.join(" ", shown);
+    }
+
+    private static void destroyTree(Process proc) {
+        proc.descendants().forEach(ProcessHandle::destroyForcibly);
+        proc.destroyForcibly();
+    }
+
+    private static Future<?> pump(InputStream in, ByteArrayOutputStream sink) {
+        return PUMPS.submit(() -> {
+            byte[] buf = new byte[8192];
+            int n;
+            try (InputStream is = in) {
+                while ((n = is.read(buf)) >= 0) {
+                    sink.write(buf, 0, n);
+                }
+            } catch (IOException e) {
+                // Stream closed because the process was killed
+            }
+        });
+    }
+
+    private static void await(Future<?> pump) throws InterruptedException {
+        try {
+            pump.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Keep whatever output was read
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.ParametersAction;
+import hudson.model.Queue;
+import hudson.model.queue.QueueListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches the selected server's details into {@link McpxServerDetailsCache} while a build waits in
+ * the queue, so they are already cached when the build starts and resolves its package defaults.
+ */
+@Extension
+public class McpxQueueListener extends QueueListener {
+    private static final Logger LOGGER = Logger.getLogger(McpxQueueListener.class.getName());
+
+    /**
+     * Threads fetching details for queued builds.
+     */
+    static final int PREFETCH_THREADS = Math.max(1, Integer.getInteger(McpxQueueListener.class.getName() + ".prefetchThreads", 2));
+
+    private static final ExecutorService PREFETCHER;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "McpxQueueListener.prefetch"));
+        executor.allowCoreThreadTimeOut(true);
+        PREFETCHER = executor;
+    }
+
+    @Override
+    public void onEnterWaiting(Queue.WaitingItem wi) {
+        if (!(wi.task instanceof Job)) {
+            return;
+        }
+        Job<?, ?> job = (Job<?, ?>) wi.task;
+        String selected = McpxRunListener.selectedServer(job, wi.getAction(ParametersAction.class));
+        if (selected != null) {
+            // Runs off the queue lock; concurrent fetches of the same server share one load
+            PREFETCHER.execute(McpxRateLimiter.withPriority(McpxRateLimiter.Priority.BUILD, () -> prefetch(job, selected)));
+        }
+    }
+
+    static void prefetch(Job<?, ?> job, String serverName) {
+        try {
+            new McpxRegistryClient().getServerDetails(job, serverName);
+            LOGGER.log(Level.FINE, "Prefetched details of " + serverName + " for queued " + job.getFullName());
+        } catch (IOException | RuntimeException e) {
+            // The build fetches them again when it starts
+            LOGGER.log(Level.FINE, "Failed to prefetch details of " + serverName + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
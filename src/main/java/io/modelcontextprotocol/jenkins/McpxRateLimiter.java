@@ -0,0 +1,325 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caps the rate of registry requests from the whole controller with a token bucket.
+ * <p>
+ * Every request that reaches the registry takes a token on the controller, whichever path sends it
+ * (dropdowns, Probe, builds, prefetches, cache warming, webhook refreshes, sync):
+ * <ul>
+ *   <li>each HTTP request of the HTTP backend</li>
+ *   <li>each mcpx-cli process the controller runs against the registry, including logins, the
+ *   retry after a rejected session and the retry without paging flags (see {@link McpxLoginSessions})</li>
+ *   <li>each batch sent to an agent, one token per operation before it is sent, including its login
+ *   and every hedged or failover attempt; once the agent reports how many mcpx-cli processes it
+ *   actually ran, the difference is {@link #settle settled}, so cache hits are given back and
+ *   retries are paid for</li>
+ * </ul>
+ * Agents have no limit of their own. The bucket refills at the configured rate and holds up to
+ * {@link #BURST_SECONDS} worth of requests. Callers without a token wait, within their own deadline,
+ * in priority order: {@link Priority#INTERACTIVE} before {@link Priority#BUILD} before
+ * {@link Priority#BACKGROUND}, first come first served within a priority. Background work also
+ * leaves a quarter of the burst untouched, so a page load right after a warming run does not wait.
+ * <p>
+ * The priority of a request is that of the thread issuing it: interactive unless the work was
+ * started through {@link #withPriority}. A rate of 0 disables the limit.
+ */
+public final class McpxRateLimiter {
+    private static final Logger LOGGER = Logger.getLogger(McpxRateLimiter.class.getName());
+
+    /**
+     * Seconds of requests the bucket holds when full, i.e. the burst allowed after an idle period.
+     */
+    static final int BURST_SECONDS = Math.max(1, Integer.getInteger(McpxRateLimiter.class.getName() + ".burstSeconds", 10));
+
+    private static final McpxRateLimiter INSTANCE = new McpxRateLimiter(0, BURST_SECONDS);
+
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<>();
+
+    /**
+     * Who is waiting for a registry request, highest priority first.
+     */
+    public enum Priority { INTERACTIVE, BUILD, BACKGROUND }
+
+    /**
+     * Thrown instead of fetching when no token became available before the caller's deadline.
+     */
+    public static final class ThrottledException extends IOException {
+        ThrottledException(String message) {
+            super(message);
+        }
+    }
+
+    private final int burstSeconds;
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparing((Waiter w) -> w.priority).thenComparingLong(w -> w.seq));
+    private long nextSeq;
+
+    // Guarded by this
+    private int requestsPerMinute;
+    private double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    McpxRateLimiter(int requestsPerMinute, int burstSeconds) {
+        this.burstSeconds = burstSeconds;
+        setRequestsPerMinute(requestsPerMinute);
+    }
+
+    public static McpxRateLimiter get() {
+        return INSTANCE;
+    }
+
+    /**
+     * The priority of requests issued by the current thread.
+     */
+    public static Priority currentPriority() {
+        Priority priority = PRIORITY.get();
+        return priority != null ? priority : Priority.INTERACTIVE;
+    }
+
+    /**
+     * Wraps work so the registry requests it issues on its thread have the given priority.
+     */
+    public static Runnable withPriority(Priority priority, Runnable task) {
+        return () -> {
+            Priority previous = PRIORITY.get();
+            PRIORITY.set(priority);
+            try {
+                task.run();
+            } finally {
+                PRIORITY.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps work so the registry requests it issues on its thread have the given priority.
+     */
+    public static <T> Callable<T> withPriority(Priority priority, Callable<T> task) {
+        return () -> {
+            Priority previous = PRIORITY.get();
+            PRIORITY.set(priority);
+            try {
+                return task.call();
+            } finally {
+                PRIORITY.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Runs a registry fetch on the current thread with the given priority, e.g. a later page of a
+     * listing loaded in the background for the request that started it.
+     */
+    public static <T> T callWithPriority(Priority priority, McpxCircuitBreaker.Fetch<T> fetch) throws IOException, InterruptedException {
+        Priority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        try {
+            return fetch.call();
+        } finally {
+            PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * Changes the rate; 0 (or less) removes the limit and lets every waiting caller through.
+     */
+    public synchronized void setRequestsPerMinute(int newRate) {
+        newRate = Math.max(0, newRate);
+        if (newRate != requestsPerMinute) {
+            LOGGER.log(Level.FINE, "Registry request rate limit changed from " + requestsPerMinute + " to " + newRate + " per minute");
+        }
+        refill(System.nanoTime());
+        boolean wasLimited = requestsPerMinute > 0;
+        requestsPerMinute = newRate;
+        capacity = Math.max(1, newRate * burstSeconds / 60.0);
+        // A newly enabled limit starts with a full bucket
+        tokens = wasLimited ? Math.min(tokens, capacity) : capacity;
+        notifyAll();
+    }
+
+    public synchronized int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    /**
+     * Takes one token per registry request, waiting for them at most as long as the CLI timeout
+     * ceiling, which bounds any single registry call.
+     * @param what the requests, for messages
+     * @throws ThrottledException if the tokens were not available in time
+     */
+    public void acquire(Priority priority, int requests, String what) throws ThrottledException, InterruptedException {
+        acquire(priority, requests, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(McpxGlobalConfiguration.cliTimeoutMillis()), what);
+    }
+
+    /**
+     * Takes one token per registry request, waiting for them until the deadline (from
+     * {@link System#nanoTime()}). A batch larger than the burst waits for a full bucket and then
+     * takes the rest on credit, delaying the callers after it instead.
+     * @param what the requests, for messages
+     * @throws ThrottledException if the tokens were not available before the deadline
+     */
+    public void acquire(Priority priority, int requests, long deadlineNanos, String what) throws ThrottledException, InterruptedException {
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (requestsPerMinute <= 0) {
+                return;
+            }
+            Waiter w = new Waiter(priority, nextSeq++);
+            waiters.add(w);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    double needed = needed(priority, requests);
+                    if (requestsPerMinute <= 0 || (waiters.peek() == w && tokens >= needed)) {
+                        waiters.poll();
+                        tokens -= requestsPerMinute > 0 ? requests : 0;
+                        // The next in line may be served from what is left
+                        notifyAll();
+                        break;
+                    }
+                    long remaining = deadlineNanos - now;
+                    if (remaining <= 0) {
+                        throttled.incrementAndGet();
+                        LOGGER.log(Level.FINE, what + " throttled after " + TimeUnit.NANOSECONDS.toMillis(now - start) + " ms");
+                        throw new ThrottledException(what + " was not sent: registry request rate limit of " + requestsPerMinute
+                                + " per minute reached (" + (waiters.size() - 1) + " other request(s) waiting)");
+                    }
+                    long sleep = remaining;
+                    if (waiters.peek() == w) {
+                        sleep = Math.min(sleep, (long) Math.ceil((needed - tokens) * nanosPerToken()));
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.max(TimeUnit.MILLISECONDS.toNanos(1), sleep));
+                }
+            } finally {
+                // Timed out or interrupted: let the next in line go first
+                if (waiters.remove(w)) {
+                    notifyAll();
+                }
+            }
+        }
+        granted.incrementAndGet();
+        long wait = System.nanoTime() - start;
+        if (wait >= TimeUnit.MILLISECONDS.toNanos(1)) {
+            waited.incrementAndGet();
+            waitNanos.addAndGet(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            LOGGER.log(Level.FINE, what + " waited " + TimeUnit.NANOSECONDS.toMillis(wait) + " ms for the registry rate limit");
+        }
+    }
+
+    /**
+     * Corrects the tokens taken for requests sent on another node once it reports how many it made:
+     * requests made beyond those taken for are paid without waiting (the bucket may go negative),
+     * and tokens taken for requests that were not made, e.g. because the node's cache answered,
+     * are given back.
+     */
+    public synchronized void settle(int taken, int made) {
+        if (requestsPerMinute <= 0 || taken == made) {
+            return;
+        }
+        refill(System.nanoTime());
+        tokens = Math.min(capacity, tokens + taken - made);
+        notifyAll();
+    }
+
+    /**
+     * Tokens in the bucket now; negative while a large batch is being paid off.
+     */
+    public synchronized double getAvailable() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    /**
+     * Callers waiting for a token now.
+     */
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    public long getGrantedCount() {
+        return granted.get();
+    }
+
+    /**
+     * Requests that had to wait for a token.
+     */
+    public long getWaitedCount() {
+        return waited.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * Requests not sent because no token became available before their deadline.
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * Current rate, queue and wait counters, for diagnostics.
+     */
+    public synchronized String describe() {
+        if (requestsPerMinute <= 0) {
+            return "registry rate unlimited";
+        }
+        long w = waited.get();
+        return "registry rate " + requestsPerMinute + "/min, " + (long) Math.floor(getAvailable()) + "/" + (long) capacity
+                + " tokens, " + waiters.size() + " queued; " + w + " of " + granted.get() + " waited (avg "
+                + (w > 0 ? getTotalWaitMillis() / w : 0) + " ms, max " + getMaxWaitMillis() + " ms), " + throttled.get() + " throttled";
+    }
+
+    private double needed(Priority priority, int requests) {
+        double needed = Math.min(Math.max(1, requests), capacity);
+        if (priority == Priority.BACKGROUND) {
+            // Headroom for interactive and build requests
+            needed = Math.min(capacity, needed + Math.floor(capacity / 4));
+        }
+        return needed;
+    }
+
+    private double nanosPerToken() {
+        return TimeUnit.MINUTES.toNanos(1) / (double) requestsPerMinute;
+    }
+
+    private void refill(long now) {
+        if (requestsPerMinute > 0) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / nanosPerToken());
+        }
+        refilledAt = now;
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final long seq;
+
+        Waiter(Priority priority, long seq) {
+            this.priority = priority;
+            this.seq = seq;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package io.modelcontextprotocol.jenkins;
 
-import hudson.FilePath;
 import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Job;
@@ -12,12 +11,15 @@ import jenkins.model.Jenkins;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,41 +27,58 @@ import java.util.logging.Logger;
 public class McpxRegistryClient {
     private static final Logger LOGGER = Logger.getLogger(McpxRegistryClient.class.getName());
 
+    // Server list cache source for the HTTP backend, which does not depend on a CLI path
+    static final String HTTP_SOURCE = "<http>";
+
+    /**
+     * Placeholder option appended while later pages of the server list are still loading.
+     */
+    public static final String LOADING_MORE_LABEL = "<loading more servers...>";
+
+    /**
+     * Placeholder option appended when loading later pages of the server list failed; the list is reloaded on next use.
+     */
+    public static final String INCOMPLETE_LABEL = "<server list incomplete; reloading>";
+
+    /**
+     * Placeholder option appended when the registry is unavailable and a cached list is shown instead.
+     */
+    public static final String STALE_LABEL = "<registry unavailable; showing cached servers>";
+
     public ListBoxModel fetchServers() {
         McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
         String baseUrl = cfg != null && Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl()) != null
                 ? Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl())
                 : "https://registry.modelcontextprotocol.io";
-
-        // CLI-only: Use mcpx-cli to fetch servers; do not fallback to HTTP
-        try {
-            String cliPath = (cfg != null) ? cfg.getCliPath() : null;
-            if (Util.fixEmptyAndTrim(cliPath) == null) {
-                return errorModel("mcpx-cli path not configured. Configure in Manage Jenkins > System > MCPX CLI.");
-            }
-
-            McpxCliClient cliClient = new McpxCliClient(cliPath);
-            // Always attempt anonymous login to initialize CLI auth/session
-            try {
-                cliClient.login(baseUrl, "anonymous");
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "mcpx-cli anonymous login failed; continuing to list servers", e);
-            }
-            String jsonOutput = cliClient.listServers(baseUrl);
-            return parseServersJson(jsonOutput);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Local mcpx-cli fetch failed on controller; attempting agent fallback", e);
-            // Try any online agent as a fallback
-            try {
-                return fetchServersOnAnyAgent();
-            } catch (Exception ex) {
-                LOGGER.log(Level.WARNING, "Failed to fetch servers via mcpx-cli", ex);
-                return errorModel("Failed to fetch via mcpx-cli: " + ex.getMessage());
-            }
+        if (McpxGlobalConfiguration.useHttpBackend()) {
+            return fetchServersOverHttp(baseUrl, false);
+        }
+        String cliPath = (cfg != null) ? cfg.getCliPath() : null;
+        if (Util.fixEmptyAndTrim(cliPath) == null) {
+            return errorModel("mcpx-cli path not configured. Configure in Manage Jenkins > System > MCPX CLI.");
         }
+
+        // Served from the server list cache; only a cache miss forks mcpx-cli
+        int pageSize = McpxGlobalConfiguration.listPageSize();
+        return listServers(McpxServerListCache.get(), baseUrl, cliPath, false, "Failed to fetch via mcpx-cli",
+                cursor -> loadServersFromController(cliPath, baseUrl, cursor, pageSize));
     }
 
     public ListBoxModel fetchServers(Job<?, ?> job) {
+        return fetchServers(job, false);
+    }
+
+    /**
+     * Fetches the server list bypassing the cache and stores the result for subsequent renders.
+     * Used by the explicit "Refresh" buttons.
+     * @param job The job to use for configuration resolution, or null for global settings
+     * @return the freshly fetched server list
+     */
+    public ListBoxModel refreshServers(Job<?, ?> job) {
+        return fetchServers(job, true);
+    }
+
+    private ListBoxModel fetchServers(Job<?, ?> job, boolean forceRefresh) {
         // Resolve effective settings: prefer job overrides, then global, then defaults
         String baseUrl;
         String cliPath;
@@ -74,6 +93,10 @@ public class McpxRegistryClient {
                     : "https://registry.modelcontextprotocol.io";
         }
 
+        if (McpxGlobalConfiguration.useHttpBackend()) {
+            return fetchServersOverHttp(baseUrl, forceRefresh);
+        }
+
         if (jp != null && Util.fixEmptyAndTrim(jp.getCliPath()) != null) {
             cliPath = Util.fixEmptyAndTrim(jp.getCliPath());
         } else {
@@ -84,167 +107,322 @@ public class McpxRegistryClient {
             return errorModel("mcpx-cli path not configured. Configure in Manage Jenkins > System > MCPX CLI or job overrides.");
         }
 
-        // First, try an agent matching the job's assigned label (respect 'Restrict where this project can be run')
-        // Note: Only AbstractProject has getAssignedLabel(), pipeline jobs handle labels differently
+        int pageSize = McpxGlobalConfiguration.listPageSize();
+        return listServers(McpxServerListCache.get(), baseUrl, cliPath, forceRefresh, "Failed to fetch via mcpx-cli",
+                cursor -> loadServersForJob(job, cliPath, baseUrl, cursor, pageSize, forceRefresh));
+    }
+
+    private ListBoxModel fetchServersOverHttp(String baseUrl, boolean forceRefresh) {
+        int pageSize = McpxGlobalConfiguration.listPageSize();
+        return listServers(McpxServerListCache.get(), baseUrl, HTTP_SOURCE, forceRefresh, "Failed to fetch from registry",
+                cursor -> throttled("Server list page", () -> new McpxHttpRegistryClient(baseUrl).listServersPage(cursor, pageSize)));
+    }
+
+    /**
+     * Fetches one page of a listing from the registry.
+     */
+    interface PageFetcher {
+        McpxServerListParser.Result fetch(String cursor) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Builds the dropdown model for a listing served from the cache. Pages are fetched through the
+     * registry's circuit on a miss, or always when refreshing; concurrent misses for the same listing
+     * share one fetch.
+     */
+    ListBoxModel listServers(McpxServerListCache cache, String baseUrl, String source, boolean forceRefresh,
+                             String failure, PageFetcher pages) {
+        // Later pages load in the background, with the priority of the request that started the listing
+        McpxRateLimiter.Priority priority = McpxRateLimiter.currentPriority();
+        McpxServerListCache.PageLoader loader = cursor -> fetch(baseUrl, () -> McpxRateLimiter.callWithPriority(priority, () -> pages.fetch(cursor)));
         try {
-            Node target = null;
-            if (job != null && job instanceof AbstractProject) {
-                AbstractProject<?, ?> project = (AbstractProject<?, ?>) job;
-                Label assigned = project.getAssignedLabel();
-                if (assigned != null) {
-                    for (Node n : assigned.getNodes()) {
-                        if (n != null && n.toComputer() != null && n.toComputer().isOnline()) {
-                            target = n;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (target != null) {
-                FilePath root = target.getRootPath();
-                if (root != null) {
-                    String json = root.act(new RemoteServersCallable(cliPath, baseUrl));
-                    return parseServersJson(json);
-                }
-            }
+            List<String> names = forceRefresh
+                    ? cache.refresh(baseUrl, source, loader)
+                    : cache.get(baseUrl, source, loader);
+            return listModel(cache, baseUrl, source, names);
         } catch (Exception e) {
-            LOGGER.log(Level.FINE, "Labeled agent fetch failed: " + e.getMessage(), e);
+            return failedListModel(cache, baseUrl, source, failure, e);
         }
+    }
 
-        // Next, try any online agent
-        try {
-            return fetchServersOnAnyAgent();
-        } catch (Exception e) {
-            LOGGER.log(Level.FINE, "Any-agent fetch failed: " + e.getMessage(), e);
+    /**
+     * Runs a fetch chain through the registry's circuit. Its requests take their rate limit tokens as
+     * they are sent, so every hedged or failover attempt counts: HTTP requests through
+     * {@link #throttled}, mcpx-cli processes on the controller in {@link McpxLoginSessions}, and
+     * batches sent to agents in {@link McpxRemoteBatch#act}.
+     */
+    private static <T> T fetch(String baseUrl, McpxCircuitBreaker.Fetch<T> fetch) throws IOException, InterruptedException {
+        return McpxCircuitBreaker.get().call(baseUrl, fetch);
+    }
+
+    /**
+     * Sends one HTTP request to the registry after taking its token from the controller-wide rate limit.
+     */
+    private static <T> T throttled(String what, McpxCircuitBreaker.Fetch<T> request) throws IOException, InterruptedException {
+        McpxRateLimiter.get().acquire(McpxRateLimiter.currentPriority(), 1, what);
+        return request.call();
+    }
+
+    /**
+     * Builds the dropdown model for a cached listing, marking it stale while the registry's circuit is open.
+     */
+    private static ListBoxModel listModel(McpxServerListCache cache, String baseUrl, String source, List<String> names) {
+        ListBoxModel m = toListBoxModel(names, cache.isComplete(baseUrl, source), cache.isLoading(baseUrl, source));
+        if (McpxCircuitBreaker.get().isOpen(baseUrl) && !names.isEmpty()) {
+            m.add(STALE_LABEL, "");
         }
+        return m;
+    }
 
-        // Finally, try locally on controller as last resort
-        try {
-            McpxCliClient cliClient = new McpxCliClient(cliPath);
-            try { cliClient.login(baseUrl, "anonymous"); } catch (Exception ignore) {}
-            String json = cliClient.listServers(baseUrl);
-            return parseServersJson(json);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Controller local fetch failed: " + e.getMessage(), e);
-            return errorModel("Failed to fetch via mcpx-cli on controller: " + e.getMessage());
+    /**
+     * Falls back to the last cached listing, however old, when fetching failed; an error option otherwise.
+     */
+    private ListBoxModel failedListModel(McpxServerListCache cache, String baseUrl, String source, String message, Exception e) {
+        if (e instanceof McpxCircuitBreaker.OpenException || e instanceof McpxRateLimiter.ThrottledException) {
+            // Expected while the registry is down or the rate limit is reached; logged and counted there
+            LOGGER.log(Level.FINE, message + ": " + e.getMessage());
+        } else {
+            LOGGER.log(Level.WARNING, message + ": " + e.getMessage(), e);
+        }
+        List<String> stale = cache.getIfPresent(baseUrl, source);
+        if (stale != null && !stale.isEmpty()) {
+            ListBoxModel m = toListBoxModel(stale, cache.isComplete(baseUrl, source), cache.isLoading(baseUrl, source));
+            m.add(STALE_LABEL, "");
+            return m;
         }
+        return errorModel(message + ": " + e.getMessage());
     }
 
-    private ListBoxModel fetchServersOnAnyAgent() throws Exception {
-        Jenkins j = Jenkins.get();
-        McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
-        String baseUrl = cfg != null && Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl()) != null
-                ? Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl())
-                : "https://registry.modelcontextprotocol.io";
-        String cliPath = (cfg != null) ? cfg.getCliPath() : null;
-        if (Util.fixEmptyAndTrim(cliPath) == null) {
-            return errorModel("mcpx-cli path not configured. Configure in Manage Jenkins > System > MCPX CLI.");
+    private McpxServerListParser.Result loadServersFromController(String cliPath, String baseUrl, String cursor, int limit) throws IOException, InterruptedException {
+        // Controller first, then any online agent as a fallback
+        List<McpxHedging.Candidate<McpxServerListParser.Result>> candidates = new ArrayList<>();
+        candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.CONTROLLER, () -> listServersOnController(cliPath, baseUrl, cursor, limit)));
+        for (Node n : candidateAgents(null, cliPath, "servers", baseUrl)) {
+            candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.nodeName(n), () -> listServersOnAgent(n, cliPath, baseUrl, cursor, limit, false)));
         }
+        return McpxHedging.firstSuccess("servers", candidates);
+    }
+
+    private McpxServerListParser.Result loadServersForJob(Job<?, ?> job, String cliPath, String baseUrl, String cursor, int limit, boolean refresh) throws IOException, InterruptedException {
+        // Agents matching the job's label, then any online agent, then the controller as last resort
+        List<McpxHedging.Candidate<McpxServerListParser.Result>> candidates = new ArrayList<>();
+        for (Node n : candidateAgents(job, cliPath, "servers", baseUrl)) {
+            candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.nodeName(n), () -> listServersOnAgent(n, cliPath, baseUrl, cursor, limit, refresh)));
+        }
+        candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.CONTROLLER, () -> listServersOnController(cliPath, baseUrl, cursor, limit)));
+        return McpxHedging.firstSuccess("servers", candidates);
+    }
+
+    McpxServerListParser.Result listServersOnController(String cliPath, String baseUrl, String cursor, int limit) throws IOException, InterruptedException {
+        // mcpx-cli logs in (anonymously) only when there is no live session
+        McpxCliClient cliClient = new McpxCliClient(cliPath);
+        return parseServerPage(cliClient.listServers(baseUrl, cursor, limit));
+    }
+
+    private McpxServerListParser.Result listServersOnAgent(Node n, String cliPath, String baseUrl, String cursor, int limit, boolean refresh) throws Exception {
+        // Names are extracted on the agent, so the raw listing never crosses the channel;
+        // a refresh also bypasses the agent's own cache
+        return McpxRemoteBatch.act(n, "servers", cliPath, baseUrl,
+                Collections.singletonList(McpxRemoteBatch.Operation.listNames(cursor, limit)), refresh).get(0).getPage();
+    }
 
-        for (Node n : j.getNodes()) {
-            if (n != null && n.toComputer() != null && n.toComputer().isOnline()) {
-                FilePath root = n.getRootPath();
-                if (root == null) continue;
-                try {
-                    String json = root.act(new RemoteServersCallable(cliPath, baseUrl));
-                    return parseServersJson(json);
-                } catch (Exception ex) {
-                    LOGGER.log(Level.FINE, "Agent " + n.getNodeName() + " fetch failed: " + ex.getMessage(), ex);
+    /**
+     * Online agents in priority order: those matching the job's assigned label (respecting
+     * 'Restrict where this project can be run') first, then all others. Within each group nodes are
+     * ranked by their health for the operation, or, with sticky routing, in consistent-hash order
+     * for the routing key so the same request keeps going to the same agent. Nodes in a failure
+     * backoff and nodes where the capability index says the CLI path does not work are left out.
+     * Only AbstractProject has getAssignedLabel(); pipeline jobs handle labels differently.
+     */
+    static List<Node> candidateAgents(Job<?, ?> job, String cliPath, String operation, String routingKey) {
+        Set<Node> labeled = new LinkedHashSet<>();
+        if (job instanceof AbstractProject) {
+            Label assigned = ((AbstractProject<?, ?>) job).getAssignedLabel();
+            if (assigned != null) {
+                for (Node n : assigned.getNodes()) {
+                    if (isUsable(n, cliPath)) {
+                        labeled.add(n);
+                    }
                 }
             }
         }
-        throw new IOException("No online agents could fetch servers; ensure mcpx-cli is installed on controller or an agent.");
+        labeled.remove(Jenkins.get());
+        List<Node> others = new ArrayList<>();
+        for (Node n : Jenkins.get().getNodes()) {
+            if (isUsable(n, cliPath) && !labeled.contains(n)) {
+                others.add(n);
+            }
+        }
+        McpxNodeHealth health = McpxNodeHealth.get();
+        if (routingKey != null && McpxGlobalConfiguration.stickyRouting()) {
+            List<Node> ordered = sticky(new ArrayList<>(labeled), health, operation, routingKey);
+            ordered.addAll(sticky(others, health, operation, routingKey));
+            return ordered;
+        }
+        List<Node> ordered = new ArrayList<>(health.rank(new ArrayList<>(labeled), McpxDeadlines::nodeName, operation, false));
+        ordered.addAll(health.rank(others, McpxDeadlines::nodeName, operation, false));
+        return ordered;
     }
 
-    ListBoxModel parseServersJson(String jsonText) {
+    private static List<Node> sticky(List<Node> nodes, McpxNodeHealth health, String operation, String routingKey) {
+        // Nodes in a backoff are skipped, so their keys fall through to the next node on the ring
+        nodes.removeIf(n -> health.isBackedOff(McpxDeadlines.nodeName(n), operation));
+        return McpxConsistentHash.order(nodes, McpxDeadlines::nodeName, routingKey);
+    }
+
+    /**
+     * Key under which sticky routing places a request on the ring: the registry and the servers
+     * it asks about, in a stable order.
+     */
+    static String routingKey(String baseUrl, Collection<String> serverNames) {
+        List<String> sorted = new ArrayList<>(serverNames);
+        Collections.sort(sorted);
+        return baseUrl + "\n" + String.join("\n", sorted);
+    }
+
+    private static boolean isUsable(Node n, String cliPath) {
+        return n != null && n.toComputer() != null && n.toComputer().isOnline() && n.getRootPath() != null
+                && !McpxNodeCapabilities.get().isKnownUnavailable(n, cliPath);
+    }
+
+    /**
+     * Builds the dropdown model for a list of fully qualified server names.
+     * The option label is the last path segment, the value the full name.
+     */
+    static ListBoxModel toListBoxModel(List<String> names) {
         ListBoxModel m = new ListBoxModel();
+        for (String name : names) {
+            String shortName = name;
+            int idx = name.lastIndexOf('/');
+            if (idx >= 0 && idx < name.length() - 1) {
+                shortName = name.substring(idx + 1);
+            }
+            m.add(shortName, name);
+        }
+        if (m.isEmpty()) m.add("<no servers>", "");
+        return m;
+    }
+
+    /**
+     * Builds the dropdown model, marking a list whose later pages are still loading or failed to load.
+     */
+    static ListBoxModel toListBoxModel(List<String> names, boolean complete, boolean loading) {
+        ListBoxModel m = toListBoxModel(names);
+        if (!complete && !names.isEmpty()) {
+            m.add(loading ? LOADING_MORE_LABEL : INCOMPLETE_LABEL, "");
+        }
+        return m;
+    }
+
+    /**
+     * Parses one page of {@code servers --json} output.
+     * @throws IOException if the output is not a recognized registry response
+     */
+    static McpxServerListParser.Result parseServerPage(String jsonText) throws IOException {
+        return McpxServerListParser.parsePage(new StringReader(jsonText != null ? jsonText : ""));
+    }
+
+    ListBoxModel parseServersJson(String jsonText) {
         if (jsonText == null || jsonText.trim().isEmpty()) {
-            m.add("<no servers>", "");
-            return m;
+            return toListBoxModel(new ArrayList<>());
         }
         try {
-            Set<String> seen = new HashSet<>();
-            // Primary format: { "servers": [ {"name": "...", "description": "..."}, ...] }
-            Object rootObj = net.sf.json.JSONSerializer.toJSON(jsonText);
-            if (rootObj instanceof JSONObject) {
-                JSONObject root = (JSONObject) rootObj;
-                if (root.has("servers")) {
-                    JSONArray arr = root.getJSONArray("servers");
-                    for (int i = 0; i < arr.size(); i++) {
-                        JSONObject s = arr.getJSONObject(i);
-                        String name = s.optString("name");
-                        if ((name == null || name.isEmpty()) && s.has("server")) {
-                            JSONObject inner = s.getJSONObject("server");
-                            name = inner != null ? inner.optString("name") : name;
-                        }
-                        if (name == null || name.isEmpty()) continue;
-                        if (seen.add(name)) {
-                            String shortName = name;
-                            int idx = name.lastIndexOf('/');
-                            if (idx >= 0 && idx < name.length() - 1) {
-                                shortName = name.substring(idx + 1);
-                            }
-                            m.add(shortName, name);
-                        }
-                    }
-                } else {
-                    m.add("<unrecognized registry response>", "");
-                }
-            } else if (rootObj instanceof JSONArray) {
-                // Fallback: [ {"name": "..."} ]
-                JSONArray arr = (JSONArray) rootObj;
-                for (int i = 0; i < arr.size(); i++) {
-                    JSONObject s = arr.getJSONObject(i);
-                    String name = s.optString("name");
-                    if ((name == null || name.isEmpty()) && s.has("server")) {
-                        JSONObject inner = s.getJSONObject("server");
-                        name = inner != null ? inner.optString("name") : name;
-                    }
-                    if (name == null || name.isEmpty()) continue;
-                    if (seen.add(name)) {
-                        String shortName = name;
-                        int idx = name.lastIndexOf('/');
-                        if (idx >= 0 && idx < name.length() - 1) {
-                            shortName = name.substring(idx + 1);
-                        }
-                        m.add(shortName, name);
-                    }
-                }
-            } else {
+            // Single streaming pass that keeps only the names, rather than building a DOM
+            McpxServerListParser.Result result = McpxServerListParser.parse(new StringReader(jsonText));
+            if (!result.isRecognized()) {
+                ListBoxModel m = new ListBoxModel();
                 m.add("<unrecognized registry response>", "");
+                return m;
             }
-            if (m.isEmpty()) m.add("<no servers>", "");
-            return m;
-        } catch (Exception ex) {
+            return toListBoxModel(result.getNames());
+        } catch (IOException ex) {
             LOGGER.log(Level.WARNING, "Failed to parse servers JSON", ex);
-            // Try a very simple fallback: look for 'name' fields
-            try {
-                JSONArray arr = JSONArray.fromObject(jsonText);
-                ListBoxModel m2 = new ListBoxModel();
-                for (int i = 0; i < arr.size(); i++) {
-                    JSONObject s = arr.getJSONObject(i);
-                    String name = s.optString("name");
-                    if ((name == null || name.isEmpty()) && s.has("server")) {
-                        JSONObject inner = s.getJSONObject("server");
-                        name = inner != null ? inner.optString("name") : name;
-                    }
-                    if (name != null && !name.isEmpty()) {
-                        String shortName = name;
-                        int idx = name.lastIndexOf('/');
-                        if (idx >= 0 && idx < name.length() - 1) {
-                            shortName = name.substring(idx + 1);
-                        }
-                        m2.add(shortName, name);
-                    }
-                }
-                if (m2.isEmpty()) m2.add("<parse error>", "");
-                return m2;
-            } catch (Exception ignored) {
-                ListBoxModel err = new ListBoxModel();
-                err.add("<parse error>", "");
-                return err;
+            ListBoxModel err = new ListBoxModel();
+            err.add("<parse error>", "");
+            return err;
+        }
+    }
+
+    /**
+     * Returns the parsed details for a server, served from the details cache when possible.
+     * @param job The job to use for configuration resolution
+     * @param serverName The server name to fetch details for
+     * @return compact server details with packages
+     */
+    public McpxServerDetails getServerDetails(Job<?, ?> job, String serverName) throws IOException, InterruptedException {
+        if (serverName == null || serverName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Server name cannot be null or empty");
+        }
+        return McpxServerDetailsCache.get().get(resolveBaseUrl(job), serverName,
+                () -> loadServerDetails(job, Collections.singletonList(serverName)).get(serverName));
+    }
+
+    /**
+     * Returns the parsed details for several servers. Cached details are served from the details
+     * cache; the rest are fetched together, in a single round trip when an agent serves them.
+     * Servers whose details could not be fetched are left out of the result.
+     * @param job The job to use for configuration resolution
+     * @param serverNames The server names to fetch details for
+     * @return compact server details by server name, in the order requested
+     */
+    public Map<String, McpxServerDetails> getServerDetails(Job<?, ?> job, Collection<String> serverNames) throws IOException, InterruptedException {
+        String baseUrl = resolveBaseUrl(job);
+        McpxServerDetailsCache cache = McpxServerDetailsCache.get();
+        Map<String, McpxServerDetails> details = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : serverNames) {
+            if (name == null || name.trim().isEmpty() || details.containsKey(name) || missing.contains(name)) {
+                continue;
             }
+            McpxServerDetails cached = cache.getIfPresent(baseUrl, name);
+            if (cached != null) {
+                details.put(name, cached);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return details;
         }
+
+        Map<String, McpxServerDetails> fetched;
+        try {
+            fetched = loadServerDetails(job, missing);
+        } catch (IOException e) {
+            if (missing.stream().allMatch(name -> cache.getLastKnown(baseUrl, name) == null)) {
+                throw e;
+            }
+            LOGGER.log(Level.WARNING, "Serving stale details for " + missing + ": " + e.getMessage());
+            fetched = Collections.emptyMap();
+        }
+        for (String name : missing) {
+            McpxServerDetails loaded = fetched.get(name);
+            if (loaded != null) {
+                details.put(name, cache.get(baseUrl, name, () -> loaded));
+            } else if (cache.getLastKnown(baseUrl, name) != null) {
+                // Expired details rather than none while the registry cannot be reached
+                details.put(name, cache.getLastKnown(baseUrl, name));
+            }
+        }
+        return details;
+    }
+
+    /**
+     * Drops cached details for a server so the next lookup fetches them again.
+     */
+    public void invalidateServerDetails(Job<?, ?> job, String serverName) {
+        McpxServerDetailsCache.get().invalidate(resolveBaseUrl(job), serverName);
+    }
+
+    private static String resolveBaseUrl(Job<?, ?> job) {
+        McpxJobProperty jp = job != null ? job.getProperty(McpxJobProperty.class) : null;
+        if (jp != null && Util.fixEmptyAndTrim(jp.getRegistryBaseUrl()) != null) {
+            return Util.fixEmptyAndTrim(jp.getRegistryBaseUrl());
+        }
+        McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
+        return (cfg != null && Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl()) != null)
+                ? Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl())
+                : "https://registry.modelcontextprotocol.io";
     }
 
     /**
@@ -272,6 +450,10 @@ public class McpxRegistryClient {
                     : "https://registry.modelcontextprotocol.io";
         }
 
+        if (McpxGlobalConfiguration.useHttpBackend()) {
+            return fetch(baseUrl, () -> throttled("Details of " + serverName, () -> new McpxHttpRegistryClient(baseUrl).getServerDetails(serverName)));
+        }
+
         if (jp != null && Util.fixEmptyAndTrim(jp.getCliPath()) != null) {
             cliPath = Util.fixEmptyAndTrim(jp.getCliPath());
         } else {
@@ -282,58 +464,97 @@ public class McpxRegistryClient {
             throw new IOException("mcpx-cli path not configured. Configure in Manage Jenkins > System > MCPX CLI or job overrides.");
         }
 
-        // Try an agent matching the job's assigned label first
+        // Agents matching the job's label, then any online agent, then the controller
+        List<McpxHedging.Candidate<String>> candidates = new ArrayList<>();
+        for (Node n : candidateAgents(job, cliPath, "server", routingKey(baseUrl, Collections.singletonList(serverName)))) {
+            candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.nodeName(n),
+                    () -> McpxRemoteBatch.act(n, "server", cliPath, baseUrl,
+                            Collections.singletonList(McpxRemoteBatch.Operation.details(serverName))).get(0).get()));
+        }
+        candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.CONTROLLER, () -> new McpxCliClient(cliPath).getServerDetails(baseUrl, serverName)));
         try {
-            Node target = null;
-            if (job != null && job instanceof AbstractProject) {
-                AbstractProject<?, ?> project = (AbstractProject<?, ?>) job;
-                Label assigned = project.getAssignedLabel();
-                if (assigned != null) {
-                    for (Node n : assigned.getNodes()) {
-                        if (n != null && n.toComputer() != null && n.toComputer().isOnline()) {
-                            target = n;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (target != null) {
-                FilePath root = target.getRootPath();
-                if (root != null) {
-                    return root.act(new RemoteServerDetailsCallable(cliPath, baseUrl, serverName));
-                }
-            }
-        } catch (Exception e) {
-            LOGGER.log(Level.FINE, "Labeled agent fetch failed: " + e.getMessage(), e);
+            return fetch(baseUrl, () -> McpxHedging.firstSuccess("server", candidates));
+        } catch (McpxCircuitBreaker.OpenException | McpxRateLimiter.ThrottledException e) {
+            throw e;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Server details fetch failed on all nodes: " + e.getMessage(), e);
+            throw new IOException("Failed to fetch server details via mcpx-cli: " + e.getMessage(), e);
         }
+    }
 
-        // Try any online agent
+    /**
+     * Loads the details of several servers. On an agent all of them are fetched in one remoting
+     * round trip, logging in at most once, and only their packages are sent back; servers that
+     * fail are logged and left out.
+     * @throws IOException if no server's details could be loaded
+     */
+    private Map<String, McpxServerDetails> loadServerDetails(Job<?, ?> job, List<String> serverNames) throws IOException, InterruptedException {
+        String baseUrl = resolveBaseUrl(job);
+        if (McpxGlobalConfiguration.useHttpBackend()) {
+            McpxHttpRegistryClient http = new McpxHttpRegistryClient(baseUrl);
+            return fetch(baseUrl, () -> fetchEach(serverNames,
+                    name -> McpxServerDetails.parse(throttled("Details of " + name, () -> http.getServerDetails(name)))));
+        }
+
+        McpxJobProperty jp = job != null ? job.getProperty(McpxJobProperty.class) : null;
+        McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
+        String cliPath = (jp != null && Util.fixEmptyAndTrim(jp.getCliPath()) != null)
+                ? Util.fixEmptyAndTrim(jp.getCliPath())
+                : (cfg != null) ? cfg.getCliPath() : null;
+        if (Util.fixEmptyAndTrim(cliPath) == null) {
+            throw new IOException("mcpx-cli path not configured. Configure in Manage Jenkins > System > MCPX CLI or job overrides.");
+        }
+
+        List<McpxRemoteBatch.Operation> operations = new ArrayList<>();
+        operations.add(McpxRemoteBatch.Operation.login());
+        for (String name : serverNames) {
+            operations.add(McpxRemoteBatch.Operation.packages(name));
+        }
+        // Agents matching the job's label, then any online agent, then the controller
+        List<McpxHedging.Candidate<Map<String, McpxServerDetails>>> candidates = new ArrayList<>();
+        for (Node n : candidateAgents(job, cliPath, "details", routingKey(baseUrl, serverNames))) {
+            candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.nodeName(n), () -> {
+                List<McpxRemoteBatch.Outcome> outcomes = McpxRemoteBatch.act(n, "details", cliPath, baseUrl, operations);
+                return fetchEach(serverNames, name -> outcomes.get(serverNames.indexOf(name) + 1).getDetails());
+            }));
+        }
+        McpxCliClient cliClient = new McpxCliClient(cliPath);
+        candidates.add(new McpxHedging.Candidate<>(McpxDeadlines.CONTROLLER,
+                () -> fetchEach(serverNames, name -> McpxServerDetails.parse(cliClient.getServerDetails(baseUrl, name)))));
         try {
-            Jenkins j = Jenkins.get();
-            for (Node n : j.getNodes()) {
-                if (n != null && n.toComputer() != null && n.toComputer().isOnline()) {
-                    FilePath root = n.getRootPath();
-                    if (root == null) continue;
-                    try {
-                        return root.act(new RemoteServerDetailsCallable(cliPath, baseUrl, serverName));
-                    } catch (Exception ex) {
-                        LOGGER.log(Level.FINE, "Agent " + n.getNodeName() + " fetch failed: " + ex.getMessage(), ex);
-                    }
+            return fetch(baseUrl, () -> McpxHedging.firstSuccess("details", candidates));
+        } catch (McpxCircuitBreaker.OpenException | McpxRateLimiter.ThrottledException e) {
+            throw e;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Server details fetch failed on all nodes: " + e.getMessage(), e);
+            throw new IOException("Failed to fetch server details via mcpx-cli: " + e.getMessage(), e);
+        }
+    }
+
+    private interface DetailsFetcher<T> {
+        T fetch(String serverName) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Collects the details that could be fetched, failing only if none could.
+     */
+    private static <T> Map<String, T> fetchEach(List<String> serverNames, DetailsFetcher<T> fetcher) throws IOException, InterruptedException {
+        Map<String, T> fetched = new LinkedHashMap<>();
+        IOException first = null;
+        for (String name : serverNames) {
+            try {
+                fetched.put(name, fetcher.fetch(name));
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to fetch server details for " + name + ": " + e.getMessage());
+                if (first == null) {
+                    first = e;
                 }
             }
-        } catch (Exception e) {
-            LOGGER.log(Level.FINE, "Any-agent fetch failed: " + e.getMessage(), e);
         }
-
-        // Finally, try locally on controller
-        try {
-            McpxCliClient cliClient = new McpxCliClient(cliPath);
-            try { cliClient.login(baseUrl, "anonymous"); } catch (Exception ignore) {}
-            return cliClient.getServerDetails(baseUrl, serverName);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Controller local fetch failed: " + e.getMessage(), e);
-            throw new IOException("Failed to fetch server details via mcpx-cli: " + e.getMessage());
+        if (fetched.isEmpty() && first != null) {
+            throw first;
         }
+        return fetched;
     }
 
     /**
@@ -370,128 +591,4 @@ public class McpxRegistryClient {
         m.add("<" + message + ">", "");
         return m;
     }
-
-    // Remote callable to fetch servers via mcpx-cli on an agent
-    private static class RemoteServersCallable implements FilePath.FileCallable<String> {
-        private final String rawCliPath;
-        private final String baseUrl;
-
-        RemoteServersCallable(String rawCliPath, String baseUrl) {
-            this.rawCliPath = rawCliPath;
-            this.baseUrl = baseUrl;
-        }
-
-        @Override
-        public String invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws IOException, InterruptedException {
-            String path = expandHome(rawCliPath);
-
-            // Login anonymous (best-effort)
-            ProcessBuilder loginPb = new ProcessBuilder(path, "--base-url=" + baseUrl, "login", "--method", "anonymous");
-            Process loginProc = loginPb.start();
-            int loginCode = loginProc.waitFor();
-            // Ignore non-zero login; we'll still attempt to list servers
-
-            // List servers
-            ProcessBuilder pb = new ProcessBuilder(path, "--base-url=" + baseUrl, "servers", "--json");
-            Process proc = pb.start();
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
-                }
-            }
-            int code = proc.waitFor();
-            if (code != 0) {
-                // capture stderr for diagnostics
-                ByteArrayOutputStream err = new ByteArrayOutputStream();
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        err.write((line + "\n").getBytes(StandardCharsets.UTF_8));
-                    }
-                }
-                throw new IOException("mcpx-cli servers failed with exit code " + code + ": " + err.toString(StandardCharsets.UTF_8));
-            }
-            return out.toString(StandardCharsets.UTF_8);
-        }
-
-        @Override
-        public void checkRoles(org.jenkinsci.remoting.RoleChecker checker) throws SecurityException {
-            // default
-        }
-
-        private static String expandHome(String path) {
-            if (path != null && path.startsWith("~/")) {
-                String home = System.getProperty("user.home");
-                if (home != null && !home.isEmpty()) {
-                    return home + path.substring(1);
-                }
-            }
-            return path;
-        }
-    }
-
-    // Remote callable to fetch server details via mcpx-cli on an agent
-    private static class RemoteServerDetailsCallable implements FilePath.FileCallable<String> {
-        private final String rawCliPath;
-        private final String baseUrl;
-        private final String serverName;
-
-        RemoteServerDetailsCallable(String rawCliPath, String baseUrl, String serverName) {
-            this.rawCliPath = rawCliPath;
-            this.baseUrl = baseUrl;
-            this.serverName = serverName;
-        }
-
-        @Override
-        public String invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws IOException, InterruptedException {
-            String path = expandHome(rawCliPath);
-
-            // Login anonymous (best-effort)
-            ProcessBuilder loginPb = new ProcessBuilder(path, "--base-url=" + baseUrl, "login", "--method", "anonymous");
-            Process loginProc = loginPb.start();
-            int loginCode = loginProc.waitFor();
-            // Ignore non-zero login; we'll still attempt to get server details
-
-            // Get server details
-            ProcessBuilder pb = new ProcessBuilder(path, "--base-url=" + baseUrl, "server", serverName, "--json");
-            Process proc = pb.start();
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
-                }
-            }
-            int code = proc.waitFor();
-            if (code != 0) {
-                // capture stderr for diagnostics
-                ByteArrayOutputStream err = new ByteArrayOutputStream();
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        err.write((line + "\n").getBytes(StandardCharsets.UTF_8));
-                    }
-                }
-                throw new IOException("mcpx-cli server failed with exit code " + code + ": " + err.toString(StandardCharsets.UTF_8));
-            }
-            return out.toString(StandardCharsets.UTF_8);
-        }
-
-        @Override
-        public void checkRoles(org.jenkinsci.remoting.RoleChecker checker) throws SecurityException {
-            // default
-        }
-
-        private static String expandHome(String path) {
-            if (path != null && path.startsWith("~/")) {
-                String home = System.getProperty("user.home");
-                if (home != null && !home.isEmpty()) {
-                    return home + path.substring(1);
-                }
-            }
-            return path;
-        }
-    }
 }
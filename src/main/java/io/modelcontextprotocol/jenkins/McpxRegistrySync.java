@@ -0,0 +1,152 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps cached server listings current without waiting for page loads to find them stale.
+ * <p>
+ * On the configured interval, each registry with a complete listing in {@link McpxServerListCache}
+ * is asked only for the servers updated since its last sync ({@code updated_since}). New servers
+ * are added to the listing, deleted ones removed, and cached details are re-fetched only for
+ * servers whose version changed. A steady-state sync therefore transfers the few changed entries
+ * rather than the whole catalog, and the listing counts as freshly loaded afterwards.
+ * <p>
+ * Only the HTTP backend is synced: mcpx-cli has no filter for recent changes, so CLI listings
+ * keep relying on the cache TTL refresh.
+ */
+@Extension
+public class McpxRegistrySync extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(McpxRegistrySync.class.getName());
+
+    /**
+     * Margin subtracted from the last sync time, covering clock skew between controller and registry.
+     */
+    static final Duration OVERLAP = Duration.ofMinutes(1);
+
+    // Start of the last successful sync per registry
+    private final Map<String, Instant> watermarks = new ConcurrentHashMap<>();
+    private volatile long lastRun;
+
+    public McpxRegistrySync() {
+        super("MCPX registry sync");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        // The configured interval is checked on every run, so changing it takes effect without a restart
+        return MIN;
+    }
+
+    @Override
+    protected Level getNormalLoggingLevel() {
+        return Level.FINE;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        long interval = McpxGlobalConfiguration.syncIntervalMillis();
+        long now = System.currentTimeMillis();
+        if (interval <= 0 || !McpxGlobalConfiguration.useHttpBackend() || now - lastRun < interval) {
+            return;
+        }
+        lastRun = now;
+        McpxServerListCache lists = McpxServerListCache.get();
+        for (String baseUrl : lists.baseUrls(McpxRegistryClient.HTTP_SOURCE)) {
+            try {
+                // While the registry is down this fails fast, and the cached listing is kept as it is
+                McpxCircuitBreaker.get().call(baseUrl, () -> sync(baseUrl, new McpxHttpRegistryClient(baseUrl), lists, McpxServerDetailsCache.get()));
+            } catch (McpxCircuitBreaker.OpenException | McpxRateLimiter.ThrottledException e) {
+                LOGGER.log(Level.FINE, "Registry sync skipped for " + baseUrl + ": " + e.getMessage());
+            } catch (IOException e) {
+                // The next run asks for the same changes again
+                LOGGER.log(Level.WARNING, "Registry sync failed for " + baseUrl + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Applies the registry's changes since the last sync to the cached listing and details.
+     * @return the number of servers updated or removed, or -1 if no complete listing is cached
+     */
+    int sync(String baseUrl, McpxHttpRegistryClient http, McpxServerListCache lists, McpxServerDetailsCache details) throws IOException, InterruptedException {
+        String source = McpxRegistryClient.HTTP_SOURCE;
+        long completedAt = lists.completedAt(baseUrl, source);
+        if (completedAt < 0) {
+            watermarks.remove(baseUrl);
+            return -1;
+        }
+        // The first sync picks up from when the listing was loaded
+        Instant since = watermarks.getOrDefault(baseUrl, Instant.ofEpochMilli(completedAt)).minus(OVERLAP);
+        Instant started = Instant.now();
+
+        Map<String, String> versions = new LinkedHashMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        Set<String> seenCursors = new HashSet<>();
+        String cursor = null;
+        do {
+            throttle("Registry sync page");
+            McpxServerListParser.Result page = http.listServerChanges(since, cursor, McpxGlobalConfiguration.listPageSize());
+            for (Map.Entry<String, String> e : page.getVersions().entrySet()) {
+                versions.put(e.getKey(), e.getValue());
+                removed.remove(e.getKey());
+            }
+            for (String name : page.getRemoved()) {
+                removed.add(name);
+                versions.remove(name);
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null && seenCursors.add(cursor));
+
+        if (!lists.applyChanges(baseUrl, source, versions.keySet(), removed)) {
+            // Replaced or reloading since the check above; that load is current anyway
+            return -1;
+        }
+        for (String name : removed) {
+            details.invalidate(baseUrl, name);
+        }
+        int refetched = 0;
+        for (Map.Entry<String, String> e : versions.entrySet()) {
+            String name = e.getKey();
+            McpxServerDetails cached = details.getIfPresent(baseUrl, name);
+            if (cached == null || cached.getVersion().equals(e.getValue())) {
+                continue;
+            }
+            details.invalidate(baseUrl, name);
+            try {
+                details.get(baseUrl, name, () -> {
+                    throttle("Details of " + name);
+                    return McpxServerDetails.parse(http.getServerDetails(name));
+                });
+                refetched++;
+            } catch (IOException ex) {
+                // Left out of the cache; the next use fetches it
+                LOGGER.log(Level.FINE, "Failed to re-fetch details of " + name + ": " + ex.getMessage(), ex);
+            }
+        }
+        watermarks.put(baseUrl, started);
+        LOGGER.log(Level.FINE, "Synced " + baseUrl + ": " + versions.size() + " updated, " + removed.size()
+                + " removed, " + refetched + " details re-fetched");
+        return versions.size() + removed.size();
+    }
+
+    /**
+     * Takes a request from the registry rate limit; syncing yields to page loads and builds.
+     */
+    private static void throttle(String what) throws McpxRateLimiter.ThrottledException, InterruptedException {
+        McpxRateLimiter.get().acquire(McpxRateLimiter.Priority.BACKGROUND, 1, what);
+    }
+}
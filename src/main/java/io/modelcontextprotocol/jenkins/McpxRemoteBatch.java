@@ -0,0 +1,537 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.FilePath;
+import hudson.model.Node;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Several mcpx-cli operations for one CLI path and registry, run on a node in a single remoting
+ * round trip.
+ * <p>
+ * A batch may log in, list a page of servers and fetch the details of any number of servers.
+ * Logins run first; the other operations then run in parallel, at most {@link #MAX_PARALLEL} at a
+ * time, all within one deadline. Every operation gets its own outcome, so one failing server does
+ * not fail the rest of the batch. Identical list and details operations running at the same time
+ * on a node share one mcpx-cli run.
+ * <p>
+ * Results can be projected on the node to what the controller keeps: the server names (and next
+ * cursor) of a listing, or the {@link McpxServerDetails} of a server. Text results larger than
+ * {@link #COMPRESS_THRESHOLD_BYTES} travel gzip-compressed.
+ * <p>
+ * On agents, mcpx-cli output is kept in a {@link McpxAgentCache} under the node's root path, so
+ * every executor and dropdown routed to the node shares it.
+ */
+public final class McpxRemoteBatch {
+    static final int MAX_PARALLEL = Math.max(1, Integer.getInteger(McpxRemoteBatch.class.getName() + ".maxParallel", 4));
+
+    // Negative disables compression
+    static final int COMPRESS_THRESHOLD_BYTES = Integer.getInteger(McpxRemoteBatch.class.getName() + ".compressThresholdBytes", 16 * 1024);
+
+    // Shared by all batches in this JVM; idle threads exit after a minute
+    private static final ExecutorService OPERATIONS = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), "McpxRemoteBatch.operation"));
+
+    // Coalesces identical mcpx-cli runs within the JVM the batch executes in
+    private static final McpxSingleFlight<String, String> CLI_FLIGHTS = new McpxSingleFlight<>();
+
+    private McpxRemoteBatch() {
+    }
+
+    /**
+     * One operation of a batch.
+     */
+    public static final class Operation implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        enum Kind { LOGIN, LIST, DETAILS }
+
+        private final Kind kind;
+        private final String serverName;
+        private final String cursor;
+        private final int limit;
+        private final boolean projected;
+        // Node cache entries written before this many millis ago are treated as missing; -1 if none are.
+        // Relative, since the controller's and the node's clocks may disagree
+        private final long invalidatedAgo;
+
+        private Operation(Kind kind, String serverName, String cursor, int limit, boolean projected) {
+            this(kind, serverName, cursor, limit, projected, -1);
+        }
+
+        private Operation(Kind kind, String serverName, String cursor, int limit, boolean projected, long invalidatedAgo) {
+            this.kind = kind;
+            this.serverName = serverName;
+            this.cursor = cursor;
+            this.limit = limit;
+            this.projected = projected;
+            this.invalidatedAgo = invalidatedAgo;
+        }
+
+        /** Logs in to the registry unless the node already has a session. */
+        public static Operation login() {
+            return new Operation(Kind.LOGIN, null, null, 0, false);
+        }
+
+        /** Lists one page of servers as raw JSON; a limit of 0 lists the whole catalog. */
+        public static Operation list(String cursor, int limit) {
+            return new Operation(Kind.LIST, null, cursor, limit, false);
+        }
+
+        /** Lists one page of servers, returning only the names and next cursor ({@link Outcome#getPage()}). */
+        public static Operation listNames(String cursor, int limit) {
+            return new Operation(Kind.LIST, null, cursor, limit, true);
+        }
+
+        /** Fetches the details of one server as raw JSON. */
+        public static Operation details(String serverName) {
+            return new Operation(Kind.DETAILS, serverName, null, 0, false);
+        }
+
+        /** Fetches the details of one server, returning only its packages ({@link Outcome#getDetails()}). */
+        public static Operation packages(String serverName) {
+            return new Operation(Kind.DETAILS, serverName, null, 0, true);
+        }
+
+        /** The same operation, ignoring node cache entries written more than the given millis ago. */
+        Operation invalidatedAgo(long millis) {
+            return new Operation(kind, serverName, cursor, limit, projected, millis);
+        }
+
+        /**
+         * The time (epoch millis, by the clock of the node running it) before which node cache
+         * entries are stale, given when the node received the operation; 0 if none are.
+         */
+        long notBefore(long receivedAt) {
+            return invalidatedAgo >= 0 ? receivedAt - invalidatedAgo : 0;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+    }
+
+    /**
+     * Result of one operation: its output, or why it failed.
+     * Text output is kept as UTF-8, gzip-compressed if it was large.
+     */
+    public static final class Outcome implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] text;
+        private final boolean compressed;
+        private final McpxServerDetails details;
+        private final String error;
+        private final boolean timedOut;
+        // Exit code and stderr of an mcpx-cli process that failed, so the controller can tell why
+        private final Integer exitCode;
+        private final String stderr;
+        // mcpx-cli processes the operation ran against the registry; 0 if the node's cache answered
+        private int registryCalls;
+
+        private Outcome(byte[] text, boolean compressed, McpxServerDetails details, String error, boolean timedOut) {
+            this(text, compressed, details, error, timedOut, null, null);
+        }
+
+        private Outcome(byte[] text, boolean compressed, McpxServerDetails details, String error, boolean timedOut, Integer exitCode, String stderr) {
+            this.text = text;
+            this.compressed = compressed;
+            this.details = details;
+            this.error = error;
+            this.timedOut = timedOut;
+            this.exitCode = exitCode;
+            this.stderr = stderr;
+        }
+
+        static Outcome success(String output, int compressThreshold) throws IOException {
+            byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+            if (compressThreshold >= 0 && bytes.length > compressThreshold) {
+                return new Outcome(gzip(bytes), true, null, null, false);
+            }
+            return new Outcome(bytes, false, null, null, false);
+        }
+
+        static Outcome success(McpxServerDetails details) {
+            return new Outcome(null, false, details, null, false);
+        }
+
+        static Outcome failure(Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            if (e instanceof McpxProcessRunner.FailedException) {
+                McpxProcessRunner.FailedException failed = (McpxProcessRunner.FailedException) e;
+                return new Outcome(null, false, null, message, false, failed.getExitCode(), failed.getStderr());
+            }
+            return new Outcome(null, false, null, message, e instanceof InterruptedIOException);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * mcpx-cli processes the operation ran against the registry, logins and retries included.
+         */
+        public int getRegistryCalls() {
+            return registryCalls;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Bytes of output carried by this outcome, as sent over the channel.
+         */
+        public int getPayloadBytes() {
+            return text != null ? text.length : 0;
+        }
+
+        /**
+         * The operation's text output.
+         * @throws IOException if the operation failed; an {@link InterruptedIOException} if it ran out of time
+         */
+        public String get() throws IOException {
+            check();
+            if (text == null) {
+                throw new IOException("Operation returned no text output");
+            }
+            return new String(compressed ? gunzip(text) : text, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * The server names and next cursor of a {@link Operation#listNames} operation.
+         * @throws IOException if the operation failed
+         */
+        public McpxServerListParser.Result getPage() throws IOException {
+            String[] lines = get().split("\n", -1);
+            // First line is the next cursor (empty on the last page), then one name per line
+            List<String> names = new ArrayList<>(Arrays.asList(lines).subList(1, lines.length));
+            names.removeIf(String::isEmpty);
+            return new McpxServerListParser.Result(names, true, lines[0].isEmpty() ? null : lines[0]);
+        }
+
+        /**
+         * The details of a {@link Operation#packages} operation.
+         * @throws IOException if the operation failed
+         */
+        public McpxServerDetails getDetails() throws IOException {
+            check();
+            if (details == null) {
+                throw new IOException("Operation returned no server details");
+            }
+            return details;
+        }
+
+        private void check() throws IOException {
+            if (error != null) {
+                if (exitCode != null) {
+                    throw new McpxProcessRunner.FailedException(error, exitCode, stderr);
+                }
+                throw timedOut ? new InterruptedIOException(error) : new IOException(error);
+            }
+        }
+    }
+
+    /**
+     * How a batch runs on the node, decided by the controller.
+     */
+    static final class Options implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final int maxParallel;
+        final int compressThreshold;
+        final long cacheTtlMillis;
+        final boolean refresh;
+        // Concurrent mcpx-cli processes allowed on the node, applied to its process limiter
+        final int maxProcesses;
+
+        Options(int maxParallel, int compressThreshold, long cacheTtlMillis, boolean refresh) {
+            this(maxParallel, compressThreshold, cacheTtlMillis, refresh, McpxProcessLimiter.DEFAULT_LIMIT);
+        }
+
+        Options(int maxParallel, int compressThreshold, long cacheTtlMillis, boolean refresh, int maxProcesses) {
+            this.maxParallel = maxParallel;
+            this.compressThreshold = compressThreshold;
+            this.cacheTtlMillis = cacheTtlMillis;
+            this.refresh = refresh;
+            this.maxProcesses = maxProcesses;
+        }
+
+        /**
+         * The system properties and configured cache TTL and process limit; {@code refresh} bypasses the node's cache.
+         */
+        static Options configured(boolean refresh) {
+            return new Options(MAX_PARALLEL, COMPRESS_THRESHOLD_BYTES, McpxGlobalConfiguration.cacheTtlMillis(), refresh,
+                    McpxGlobalConfiguration.maxCliProcessesPerNode());
+        }
+    }
+
+    /**
+     * Runs the operations on the node's root path, in one remoting call bounded by the
+     * deadline of the given operation name.
+     * @return one outcome per operation, in order
+     */
+    public static List<Outcome> act(Node node, String operation, String cliPath, String baseUrl, List<Operation> operations) throws IOException, InterruptedException {
+        return act(node, operation, cliPath, baseUrl, operations, false);
+    }
+
+    /**
+     * Runs the operations on the node, bypassing (but updating) the node's cache if {@code refresh} is set.
+     * @return one outcome per operation, in order
+     */
+    public static List<Outcome> act(Node node, String operation, String cliPath, String baseUrl, List<Operation> operations, boolean refresh) throws IOException, InterruptedException {
+        Options options = Options.configured(refresh);
+        List<Operation> stamped = stamp(baseUrl, operations);
+        // The node's own limit is not configured, so every attempt takes one token per operation here
+        // and settles them with the calls the node reports
+        McpxRateLimiter limiter = McpxRateLimiter.get();
+        limiter.acquire(McpxRateLimiter.currentPriority(), operations.size(), operation + " on " + McpxDeadlines.nodeName(node));
+        List<Outcome> outcomes = McpxDeadlines.get().act(node, operation, timeout -> new Callable(cliPath, baseUrl, stamped, timeout, options));
+        int made = 0;
+        for (Outcome outcome : outcomes) {
+            made += outcome.registryCalls;
+        }
+        limiter.settle(operations.size(), made);
+        return outcomes;
+    }
+
+    /**
+     * Marks the operations with how long ago their results were last invalidated (see
+     * {@link McpxInvalidations}), so nodes do not serve older cached output.
+     */
+    private static List<Operation> stamp(String baseUrl, List<Operation> operations) {
+        McpxInvalidations invalidations = McpxInvalidations.get();
+        List<Operation> stamped = new ArrayList<>(operations.size());
+        for (Operation op : operations) {
+            long ago = op.kind == Operation.Kind.LIST ? invalidations.listingsInvalidatedAgo(baseUrl)
+                    : op.kind == Operation.Kind.DETAILS ? invalidations.serverInvalidatedAgo(baseUrl, op.serverName)
+                    : -1;
+            stamped.add(ago >= 0 ? op.invalidatedAgo(ago) : op);
+        }
+        return stamped;
+    }
+
+    /**
+     * Runs the operations in this JVM, with a node cache or, if null, without one.
+     * @return one outcome per operation, in order
+     */
+    static List<Outcome> execute(String cliPath, String baseUrl, List<Operation> operations, long deadlineNanos, Options options, McpxAgentCache cache) throws InterruptedException {
+        int maxParallel = options.maxParallel;
+        long receivedAt = System.currentTimeMillis();
+        Outcome[] outcomes = new Outcome[operations.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (operations.get(i).getKind() == Operation.Kind.LOGIN) {
+                outcomes[i] = run(cliPath, baseUrl, operations.get(i), receivedAt, deadlineNanos, options, cache);
+            } else {
+                pending.add(i);
+            }
+        }
+
+        if (pending.size() == 1 || maxParallel <= 1) {
+            for (int i : pending) {
+                outcomes[i] = run(cliPath, baseUrl, operations.get(i), receivedAt, deadlineNanos, options, cache);
+            }
+            return Arrays.asList(outcomes);
+        }
+
+        // At most maxParallel runners per batch, each taking the next operation until none are left
+        AtomicInteger next = new AtomicInteger();
+        // The operations run side by side, so their processes ran as long as the slowest of them
+        AtomicLong slowest = new AtomicLong();
+        List<Future<Void>> runners = new ArrayList<>();
+        try {
+            for (int r = 0; r < Math.min(maxParallel, pending.size()); r++) {
+                runners.add(OPERATIONS.submit(() -> {
+                    for (int j = next.getAndIncrement(); j < pending.size(); j = next.getAndIncrement()) {
+                        int i = pending.get(j);
+                        long before = McpxProcessRunner.runNanos();
+                        try {
+                            outcomes[i] = run(cliPath, baseUrl, operations.get(i), receivedAt, deadlineNanos, options, cache);
+                        } finally {
+                            slowest.accumulateAndGet(McpxProcessRunner.runNanos() - before, Math::max);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> runner : runners) {
+                try {
+                    runner.get();
+                } catch (ExecutionException e) {
+                    // Only an interrupted runner gets here; its remaining operations are reported below
+                }
+            }
+        } finally {
+            // Interrupting the runners kills any mcpx-cli process still running
+            for (Future<Void> runner : runners) {
+                runner.cancel(true);
+            }
+            McpxProcessRunner.addRunNanos(slowest.get());
+        }
+        for (int i : pending) {
+            if (outcomes[i] == null) {
+                outcomes[i] = Outcome.failure(new InterruptedIOException("Operation was interrupted before it finished"));
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    private static Outcome run(String cliPath, String baseUrl, Operation op, long receivedAt, long deadlineNanos, Options options, McpxAgentCache cache) throws InterruptedException {
+        int before = McpxLoginSessions.registryCalls();
+        Outcome outcome = runOperation(cliPath, baseUrl, op, receivedAt, deadlineNanos, options, cache);
+        outcome.registryCalls = McpxLoginSessions.registryCalls() - before;
+        return outcome;
+    }
+
+    private static Outcome runOperation(String cliPath, String baseUrl, Operation op, long receivedAt, long deadlineNanos, Options options, McpxAgentCache cache) throws InterruptedException {
+        int compressThreshold = options.compressThreshold;
+        try {
+            switch (op.getKind()) {
+                case LOGIN:
+                    McpxLoginSessions.get().ensure(cliPath, baseUrl, McpxLoginSessions.ANONYMOUS, deadlineNanos);
+                    return Outcome.success("", compressThreshold);
+                case LIST:
+                    String listing = load(cache, options.refresh, op.notBefore(receivedAt), "servers\n" + cliPath + "\n" + baseUrl + "\n" + op.cursor + "\n" + op.limit,
+                            () -> listServers(cliPath, baseUrl, op.cursor, op.limit, deadlineNanos));
+                    return Outcome.success(op.projected ? names(listing) : listing, compressThreshold);
+                default:
+                    String json = load(cache, options.refresh, op.notBefore(receivedAt), "server\n" + cliPath + "\n" + baseUrl + "\n" + op.serverName,
+                            () -> getServerDetails(cliPath, baseUrl, op.serverName, deadlineNanos));
+                    return op.projected ? Outcome.success(McpxServerDetails.parse(json)) : Outcome.success(json, compressThreshold);
+            }
+        } catch (IOException | RuntimeException e) {
+            return Outcome.failure(e);
+        }
+    }
+
+    /**
+     * Serves mcpx-cli output from the node's cache, running the command only on a miss.
+     * Concurrent identical requests in this JVM share one lookup and one mcpx-cli run.
+     */
+    private static String load(McpxAgentCache cache, boolean refresh, long notBefore, String key, McpxAgentCache.Loader command) throws IOException, InterruptedException {
+        return coalesce(key, () -> cache != null ? cache.get(key, refresh, notBefore, command) : command.load());
+    }
+
+    /**
+     * Projects a listing to its next cursor and names, one per line.
+     */
+    private static String names(String listing) throws IOException {
+        McpxServerListParser.Result page = McpxServerListParser.parsePage(new StringReader(listing));
+        StringBuilder sb = new StringBuilder(page.getNextCursor() != null ? page.getNextCursor() : "");
+        for (String name : page.getNames()) {
+            sb.append('\n').append(name);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static String listServers(String path, String baseUrl, String cursor, int limit, long deadline) throws IOException, InterruptedException {
+        // The node logs in (anonymously, best-effort) when it has no session, not before every page
+        return McpxCliClient.listPage(path, Arrays.asList(path, "--base-url=" + baseUrl, "servers", "--json"), cursor, limit,
+                command -> McpxLoginSessions.get().run(path, baseUrl, command, deadline));
+    }
+
+    private static String getServerDetails(String path, String baseUrl, String serverName, long deadline) throws IOException, InterruptedException {
+        List<String> command = Arrays.asList(path, "--base-url=" + baseUrl, "server", serverName, "--json");
+        McpxProcessRunner.Result result = McpxLoginSessions.get().run(path, baseUrl, command, deadline);
+        if (result.getExitCode() != 0) {
+            throw new McpxProcessRunner.FailedException(command, result);
+        }
+        return result.getStdout();
+    }
+
+    private static String coalesce(String key, McpxSingleFlight.Call<String> call) throws IOException, InterruptedException {
+        try {
+            return CLI_FLIGHTS.execute(key, call);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Remote callable running a batch via mcpx-cli on an agent, bounded by the given deadline
+    static class Callable implements FilePath.FileCallable<List<Outcome>> {
+        private final String rawCliPath;
+        private final String baseUrl;
+        private final List<Operation> operations;
+        private final long timeoutMillis;
+        private final Options options;
+
+        Callable(String rawCliPath, String baseUrl, List<Operation> operations, long timeoutMillis, Options options) {
+            this.rawCliPath = rawCliPath;
+            this.baseUrl = baseUrl;
+            this.operations = new ArrayList<>(operations);
+            this.timeoutMillis = timeoutMillis;
+            this.options = options;
+        }
+
+        @Override
+        public List<Outcome> invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws IOException, InterruptedException {
+            // f is the node's root path, shared by all executors and processes of the agent
+            McpxProcessLimiter.get().setLimit(options.maxProcesses);
+            List<Outcome> outcomes = execute(expandHome(rawCliPath), baseUrl, operations, McpxProcessRunner.deadline(timeoutMillis),
+                    options, McpxAgentCache.forRoot(f, options.cacheTtlMillis));
+            return new ArrayList<>(outcomes);
+        }
+
+        @Override
+        public void checkRoles(org.jenkinsci.remoting.RoleChecker checker) throws SecurityException {
+            // default
+        }
+
+        private static String expandHome(String path) {
+            if (path != null && path.startsWith("~/")) {
+                String home = System.getProperty("user.home");
+                if (home != null && !home.isEmpty()) {
+                    return home + path.substring(1);
+                }
+            }
+            return path;
+        }
+    }
+}
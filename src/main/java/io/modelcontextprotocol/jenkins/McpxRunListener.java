@@ -1,13 +1,11 @@
 package io.modelcontextprotocol.jenkins;
 
 import hudson.Extension;
-import hudson.EnvVars;
 import hudson.model.Job;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
 
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,62 +27,51 @@ public class McpxRunListener extends RunListener<Run<?, ?>> {
         if (run == null) return;
         Job<?, ?> job = run.getParent();
         if (job != null) {
-            // Check for MCP_SERVER from job property
-            McpxJobProperty prop = job.getProperty(McpxJobProperty.class);
-            String selected = null;
-            if (prop != null) {
-                selected = prop.getSelectedServer();
-            }
-
-            // Also check for MCP_SERVER from parameters (Build with Parameters)
-            if (selected == null || selected.trim().isEmpty()) {
-                try {
-                    hudson.model.ParametersAction paramsAction = run.getAction(hudson.model.ParametersAction.class);
-                    if (paramsAction != null) {
-                        for (hudson.model.ParameterValue paramValue : paramsAction.getParameters()) {
-                            if ("MCP_SERVER".equals(paramValue.getName())) {
-                                selected = paramValue.getValue().toString();
-                                break;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.FINE, "Failed to get MCP_SERVER from parameters", e);
-                }
-            }
-
-            if (selected != null && !selected.trim().isEmpty()) {
-                // Avoid duplicates
+            String selected = selectedServer(job, run.getAction(hudson.model.ParametersAction.class));
+            if (selected != null) {
+                // Avoid duplicates; onStarted finds the action added by onInitialize
                 for (Object a : run.getAllActions()) {
                     if (a instanceof McpxSelectedServerEnvAction) {
+                        ((McpxSelectedServerEnvAction) a).prefetch(job);
                         return;
                     }
                 }
-                run.addAction(new McpxSelectedServerEnvAction(selected));
+                McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction(selected);
+                run.addAction(action);
+
+                // Package parameter defaults are resolved in the background and injected by the
+                // action when the build environment is first needed, so build start does not wait
+                // for the registry
+                action.prefetch(job);
+            }
+        }
+    }
+
+    /**
+     * The MCP server selected for a build: the job property's, else the MCP_SERVER parameter.
+     * @return the server name, or null if none is selected
+     */
+    static String selectedServer(Job<?, ?> job, hudson.model.ParametersAction paramsAction) {
+        // Check for MCP_SERVER from job property
+        McpxJobProperty prop = job.getProperty(McpxJobProperty.class);
+        String selected = null;
+        if (prop != null) {
+            selected = prop.getSelectedServer();
+        }
 
-                // Inject package parameters as environment variables with defaults
-                try {
-                    Map<String, String> defaults = McpxPackageParameterExtractor.getDefaultValues(job, selected);
-                    if (!defaults.isEmpty()) {
-                        // Add environment variables for package parameters
-                        // These will be available in the build environment
-                        for (Map.Entry<String, String> entry : defaults.entrySet()) {
-                            // Only set if not already set by user parameters
-                            try {
-                                EnvVars env = run.getEnvironment(null);
-                                if (!env.containsKey(entry.getKey())) {
-                                    // The environment variable will be set via the action
-                                    LOGGER.log(Level.FINE, "Setting default for " + entry.getKey() + " = " + entry.getValue());
-                                }
-                            } catch (Exception e) {
-                                // Ignore
-                            }
-                        }
+        // Also check for MCP_SERVER from parameters (Build with Parameters)
+        if ((selected == null || selected.trim().isEmpty()) && paramsAction != null) {
+            try {
+                for (hudson.model.ParameterValue paramValue : paramsAction.getParameters()) {
+                    if ("MCP_SERVER".equals(paramValue.getName())) {
+                        selected = paramValue.getValue().toString();
+                        break;
                     }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to get default values from packages for server: " + selected, e);
                 }
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to get MCP_SERVER from parameters", e);
             }
         }
+        return selected != null && !selected.trim().isEmpty() ? selected : null;
     }
 }
@@ -6,75 +6,200 @@ import hudson.model.EnvironmentContributingAction;
 import hudson.model.InvisibleAction;
 import hudson.model.Job;
 import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 import javax.annotation.Nonnull;
+import java.util.Collections;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class McpxSelectedServerEnvAction extends InvisibleAction implements EnvironmentContributingAction {
     private static final Logger LOGGER = Logger.getLogger(McpxSelectedServerEnvAction.class.getName());
+
+    /**
+     * Threads resolving package defaults for starting builds.
+     */
+    static final int RESOLVER_THREADS = Math.max(1, Integer.getInteger(McpxSelectedServerEnvAction.class.getName() + ".resolverThreads", 4));
+
+    private static final ExecutorService RESOLVER;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(RESOLVER_THREADS, RESOLVER_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "McpxSelectedServerEnvAction.resolve"));
+        executor.allowCoreThreadTimeOut(true);
+        RESOLVER = executor;
+    }
+
     private final String selectedServer;
 
+    // The resolved MCPX environment, saved with the build; null until first built
+    private volatile TreeMap<String, String> environment;
+
+    // Package parameter defaults, resolved once per run in the background from build start
+    private transient Future<Map<String, String>> defaults;
+    // When waiting for them stops holding up the build; set by the first environment lookup
+    private transient long awaitDeadlineNanos;
+    private transient boolean awaiting;
+
     public McpxSelectedServerEnvAction(String selectedServer) {
         this.selectedServer = selectedServer;
     }
 
-    @Override
-    public void buildEnvironment(@Nonnull Run<?, ?> run, @Nonnull EnvVars env) {
-        Job<?, ?> job = run.getParent();
+    /**
+     * Starts resolving the package defaults for the selected server, unless already started or
+     * the environment is already resolved.
+     * Returns at once; the environment waits for the result when it is first built.
+     */
+    public void prefetch(Job<?, ?> job) {
+        start(() -> McpxPackageParameterExtractor.getDefaultValues(job, selectedServer));
+    }
 
-        // Set MCPX_CLI_PATH environment variable from configuration
-        // Priority: user parameter > job-level > global > default
-        if (!env.containsKey("MCPX_CLI_PATH") || env.get("MCPX_CLI_PATH").trim().isEmpty()) {
-            String cliPath = getCliPath(job);
-            if (cliPath != null && !cliPath.trim().isEmpty()) {
-                env.put("MCPX_CLI_PATH", cliPath);
-                LOGGER.log(Level.FINE, "Set MCPX_CLI_PATH environment variable: " + cliPath);
-            }
+    synchronized void start(Callable<Map<String, String>> loader) {
+        // A saved environment already holds the defaults
+        if (environment == null && defaults == null && selectedServer != null && !selectedServer.trim().isEmpty()) {
+            defaults = RESOLVER.submit(McpxRateLimiter.withPriority(McpxRateLimiter.Priority.BUILD, loader));
         }
+    }
 
-        // Set MCPX_REGISTRY_BASE_URL environment variable from configuration
-        // Priority: user parameter > job-level > global > default
-        if (!env.containsKey("MCPX_REGISTRY_BASE_URL") || env.get("MCPX_REGISTRY_BASE_URL").trim().isEmpty()) {
-            String baseUrl = getRegistryBaseUrl(job);
-            if (baseUrl != null && !baseUrl.trim().isEmpty()) {
-                env.put("MCPX_REGISTRY_BASE_URL", baseUrl);
-                LOGGER.log(Level.FINE, "Set MCPX_REGISTRY_BASE_URL environment variable: " + baseUrl);
+    /**
+     * The package defaults, starting their resolution if the build did not. The first caller
+     * waits at most {@code awaitMillis}; later callers only wait for what is left of that, so a
+     * slow registry delays the build once rather than on every environment lookup. Defaults that
+     * are not resolved in time are left out.
+     */
+    Map<String, String> defaults(Callable<Map<String, String>> loader, long awaitMillis) {
+        Future<Map<String, String>> future;
+        long deadline;
+        synchronized (this) {
+            start(loader);
+            future = defaults;
+            if (!awaiting) {
+                awaiting = true;
+                awaitDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitMillis);
             }
+            deadline = awaitDeadlineNanos;
+        }
+        if (future == null) {
+            return Collections.emptyMap();
         }
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.log(Level.WARNING, "Package defaults for server " + selectedServer + " not resolved within " + awaitMillis + " ms; continuing without them");
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Failed to resolve package defaults for server: " + selectedServer, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyMap();
+    }
 
-        // Set MCP_SERVER environment variable
-        if (selectedServer != null && !selectedServer.trim().isEmpty()) {
-            // Only set if not already set by user parameters
-            if (!env.containsKey("MCP_SERVER") || env.get("MCP_SERVER").trim().isEmpty()) {
-                env.put("MCP_SERVER", selectedServer);
+    @Override
+    public void buildEnvironment(@Nonnull Run<?, ?> run, @Nonnull EnvVars env) {
+        // Values set by the user (e.g., build parameters) take precedence over the plugin's
+        for (Map.Entry<String, String> entry : snapshot(run).entrySet()) {
+            String name = entry.getKey();
+            if (!env.containsKey(name) || env.get(name).trim().isEmpty()) {
+                env.put(name, entry.getValue());
+                LOGGER.log(Level.FINE, "Set environment variable " + name + " = " + entry.getValue());
+            } else {
+                LOGGER.log(Level.FINE, "Skipping " + name + " (already set to: " + env.get(name) + ")");
             }
         }
+    }
 
-        // Inject package parameters as environment variables with defaults
-        if (selectedServer != null && !selectedServer.trim().isEmpty()) {
-            try {
-                if (job != null) {
-                    Map<String, String> defaults = McpxPackageParameterExtractor.getDefaultValues(job, selectedServer);
-                    for (Map.Entry<String, String> entry : defaults.entrySet()) {
-                        String paramName = entry.getKey();
-                        String defaultValue = entry.getValue();
-
-                        // Only set default if not already set by user parameters
-                        // User-provided parameters take precedence
-                        if (!env.containsKey(paramName) || env.get(paramName).trim().isEmpty()) {
-                            env.put(paramName, defaultValue);
-                            LOGGER.log(Level.FINE, "Set default environment variable " + paramName + " = " + defaultValue + " from packages");
-                        } else {
-                            LOGGER.log(Level.FINE, "Skipping default for " + paramName + " (already set to: " + env.get(paramName) + ")");
+    /**
+     * The MCPX environment of the run, resolved on first use and then kept, and saved with the
+     * build, so every step sees the same values and old builds never contact the registry.
+     * While a running build's package defaults are still being resolved, the environment is
+     * returned without them but not kept (nor saved), so a later lookup picks them up.
+     */
+    Map<String, String> snapshot(Run<?, ?> run) {
+        Map<String, String> snapshot = environment;
+        if (snapshot == null) {
+            // Resolved outside the lock: waiting for the defaults must not block prefetch()
+            TreeMap<String, String> resolved = resolve(run.getParent(), run.isBuilding(),
+                    () -> McpxPackageParameterExtractor.getDefaultValues(run.getParent(), selectedServer));
+            synchronized (this) {
+                if (environment == null) {
+                    if (run.isBuilding() && defaults != null) {
+                        if (!defaults.isDone()) {
+                            return Collections.unmodifiableMap(resolved);
+                        }
+                        // The defaults may have arrived just after the wait for them ended
+                        for (Map.Entry<String, String> entry : completed(defaults).entrySet()) {
+                            resolved.putIfAbsent(entry.getKey(), entry.getValue());
                         }
                     }
+                    environment = resolved;
+                }
+                snapshot = environment;
+            }
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * The kept (and saved) environment, or null while there is none.
+     */
+    Map<String, String> environment() {
+        return environment;
+    }
+
+    private static Map<String, String> completed(Future<Map<String, String>> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException | CancellationException e) {
+            // Already reported by the lookup that waited for them
+            return Collections.emptyMap();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Resolves the MCPX environment: CLI path, registry base URL, selected server and the package
+     * defaults. Builds that are no longer running (recorded before environments were saved) do
+     * not fetch the package defaults.
+     */
+    TreeMap<String, String> resolve(Job<?, ?> job, boolean building, Callable<Map<String, String>> loader) {
+        TreeMap<String, String> resolved = new TreeMap<>();
+
+        // Priority: user parameter > job-level > global > default
+        String cliPath = getCliPath(job);
+        if (cliPath != null && !cliPath.trim().isEmpty()) {
+            resolved.put("MCPX_CLI_PATH", cliPath);
+        }
+        String baseUrl = getRegistryBaseUrl(job);
+        if (baseUrl != null && !baseUrl.trim().isEmpty()) {
+            resolved.put("MCPX_REGISTRY_BASE_URL", baseUrl);
+        }
+
+        if (selectedServer != null && !selectedServer.trim().isEmpty()) {
+            resolved.put("MCP_SERVER", selectedServer);
+
+            // Inject package parameters as environment variables with defaults
+            if (job != null && building) {
+                // Bounded by the CLI timeout ceiling, like a single mcpx-cli call
+                for (Map.Entry<String, String> entry : defaults(loader, McpxGlobalConfiguration.cliTimeoutMillis()).entrySet()) {
+                    resolved.putIfAbsent(entry.getKey(), entry.getValue());
                 }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Failed to inject package parameters for server: " + selectedServer, e);
             }
         }
+        return resolved;
     }
 
     /**
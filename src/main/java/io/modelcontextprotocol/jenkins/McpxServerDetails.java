@@ -0,0 +1,211 @@
+package io.modelcontextprotocol.jenkins;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact, immutable view of an MCP server's registry details.
+ * Only the fields the plugin uses to derive package parameters are retained,
+ * so cached details cost a fraction of the parsed JSON tree.
+ */
+public final class McpxServerDetails implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String version;
+    private final List<Package> packages;
+
+    public McpxServerDetails(String name, String version, List<Package> packages) {
+        this.name = name != null ? name : "";
+        this.version = version != null ? version : "";
+        this.packages = Collections.unmodifiableList(new ArrayList<>(packages));
+    }
+
+    /**
+     * Builds the compact model from the parsed {@code server --json} output.
+     */
+    public static McpxServerDetails fromJson(JSONObject json) {
+        // The registry API wraps the server as {"server": {...}, "_meta": {...}}
+        if (!json.has("packages") && json.optJSONObject("server") != null) {
+            json = json.getJSONObject("server");
+        }
+        List<Package> packages = new ArrayList<>();
+        JSONArray arr = json.optJSONArray("packages");
+        if (arr != null) {
+            for (int i = 0; i < arr.size(); i++) {
+                JSONObject p = arr.optJSONObject(i);
+                if (p != null) {
+                    packages.add(new Package(
+                            p.optString("registryType", ""),
+                            arguments(p.optJSONArray("runtimeArguments")),
+                            arguments(p.optJSONArray("environmentVariables"))));
+                }
+            }
+        }
+        return new McpxServerDetails(json.optString("name", ""), json.optString("version", ""), packages);
+    }
+
+    /**
+     * Parses {@code server --json} output, which may also be a single-element array.
+     * @throws IOException if the output is empty or not a server object
+     */
+    public static McpxServerDetails parse(String jsonText) throws IOException {
+        JSONObject json = null;
+        try {
+            Object root = jsonText != null && !jsonText.trim().isEmpty() ? JSONSerializer.toJSON(jsonText) : null;
+            if (root instanceof JSONObject) {
+                json = (JSONObject) root;
+            } else if (root instanceof JSONArray && !((JSONArray) root).isEmpty() && ((JSONArray) root).get(0) instanceof JSONObject) {
+                json = (JSONObject) ((JSONArray) root).get(0);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Unparseable server details: " + e.getMessage(), e);
+        }
+        if (json == null || json.isNullObject() || json.isEmpty()) {
+            throw new IOException("Empty or unparseable server details");
+        }
+        return fromJson(json);
+    }
+
+    private static List<Argument> arguments(JSONArray arr) {
+        List<Argument> args = new ArrayList<>();
+        if (arr == null) {
+            return args;
+        }
+        for (int i = 0; i < arr.size(); i++) {
+            JSONObject a = arr.optJSONObject(i);
+            if (a != null) {
+                args.add(new Argument(
+                        a.optString("type", "positional"),
+                        a.optString("name", ""),
+                        a.optString("valueHint", ""),
+                        a.optString("default", ""),
+                        a.optString("description", ""),
+                        a.optBoolean("isRequired", false)));
+            }
+        }
+        return args;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public List<Package> getPackages() {
+        return packages;
+    }
+
+    /**
+     * The package parameters are derived from (typically there's one package per server).
+     * @return the first package, or null if the server has none
+     */
+    public Package getPrimaryPackage() {
+        return packages.isEmpty() ? null : packages.get(0);
+    }
+
+    /**
+     * Rough retained size in bytes, used to bound the details cache by memory rather than entry count.
+     */
+    long estimatedWeight() {
+        long weight = 64 + chars(name) + chars(version);
+        for (Package p : packages) {
+            weight += 48 + chars(p.registryType);
+            for (Argument a : p.runtimeArguments) weight += a.estimatedWeight();
+            for (Argument a : p.environmentVariables) weight += a.estimatedWeight();
+        }
+        return weight;
+    }
+
+    private static long chars(String s) {
+        return 40 + 2L * s.length();
+    }
+
+    public static final class Package implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String registryType;
+        private final List<Argument> runtimeArguments;
+        private final List<Argument> environmentVariables;
+
+        public Package(String registryType, List<Argument> runtimeArguments, List<Argument> environmentVariables) {
+            this.registryType = registryType != null ? registryType : "";
+            this.runtimeArguments = Collections.unmodifiableList(new ArrayList<>(runtimeArguments));
+            this.environmentVariables = Collections.unmodifiableList(new ArrayList<>(environmentVariables));
+        }
+
+        public String getRegistryType() {
+            return registryType;
+        }
+
+        public List<Argument> getRuntimeArguments() {
+            return runtimeArguments;
+        }
+
+        public List<Argument> getEnvironmentVariables() {
+            return environmentVariables;
+        }
+    }
+
+    /**
+     * A runtime argument or environment variable declared by a package.
+     */
+    public static final class Argument implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final String name;
+        private final String valueHint;
+        private final String defaultValue;
+        private final String description;
+        private final boolean required;
+
+        public Argument(String type, String name, String valueHint, String defaultValue, String description, boolean required) {
+            this.type = type != null ? type : "";
+            this.name = name != null ? name : "";
+            this.valueHint = valueHint != null ? valueHint : "";
+            this.defaultValue = defaultValue != null ? defaultValue : "";
+            this.description = description != null ? description : "";
+            this.required = required;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getValueHint() {
+            return valueHint;
+        }
+
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isRequired() {
+            return required;
+        }
+
+        long estimatedWeight() {
+            return 32 + chars(type) + chars(name) + chars(valueHint) + chars(defaultValue) + chars(description);
+        }
+    }
+}
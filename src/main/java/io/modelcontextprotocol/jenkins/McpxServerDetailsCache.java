@@ -0,0 +1,259 @@
+package io.modelcontextprotocol.jenkins;
+
+import jenkins.util.SystemProperties;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded cache of parsed server details keyed by registry base URL and server name.
+ * <p>
+ * Entries expire after the configured cache TTL. The cache is bounded by the estimated
+ * retained size of its entries rather than their count, evicting least recently used
+ * details first once the weight limit is exceeded.
+ * <p>
+ * Expired entries are kept as the last known-good details until they are evicted or invalidated:
+ * if reloading fails (e.g., the registry is down and {@link McpxCircuitBreaker} is failing fast),
+ * the expired details are served instead of the error.
+ */
+public final class McpxServerDetailsCache {
+    private static final Logger LOGGER = Logger.getLogger(McpxServerDetailsCache.class.getName());
+
+    static final long DEFAULT_MAX_WEIGHT_BYTES = SystemProperties.getLong(
+            McpxServerDetailsCache.class.getName() + ".maxWeightBytes", 8L * 1024 * 1024);
+
+    private static final McpxServerDetailsCache INSTANCE =
+            new McpxServerDetailsCache(System::currentTimeMillis, McpxGlobalConfiguration::cacheTtlMillis, DEFAULT_MAX_WEIGHT_BYTES);
+
+    /**
+     * Fetches and parses the details for a cache key, typically by running mcpx-cli.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        McpxServerDetails load() throws IOException, InterruptedException;
+    }
+
+    // Access-ordered so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    private final McpxSingleFlight<Key, McpxServerDetails> flights = new McpxSingleFlight<>();
+
+    private final LongSupplier clock;
+    private final LongSupplier ttlMillis;
+    private final long maxWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    McpxServerDetailsCache(LongSupplier clock, LongSupplier ttlMillis, long maxWeight) {
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        this.maxWeight = maxWeight;
+    }
+
+    public static McpxServerDetailsCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached details, running the loader if they are missing or expired.
+     * Concurrent misses for the same key share a single load. If the load fails, expired
+     * details are served in its place.
+     */
+    public McpxServerDetails get(String baseUrl, String serverName, Loader loader) throws IOException, InterruptedException {
+        Key key = new Key(baseUrl, serverName);
+        McpxServerDetails cached = getIfPresent(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        try {
+            return flights.execute(key, () -> {
+                // Re-check in case a load for this key finished since the lookup above
+                McpxServerDetails current = getIfPresent(key);
+                if (current != null) {
+                    hits.incrementAndGet();
+                    return current;
+                }
+                misses.incrementAndGet();
+                McpxServerDetails details;
+                try {
+                    details = loader.load();
+                } catch (IOException e) {
+                    McpxServerDetails stale = getLastKnown(key);
+                    if (stale == null) {
+                        throw e;
+                    }
+                    staleHits.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Serving stale details for " + key + ": " + e.getMessage());
+                    return stale;
+                }
+                put(key, details);
+                return details;
+            });
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the cached details if present and not expired, without loading.
+     */
+    public McpxServerDetails getIfPresent(String baseUrl, String serverName) {
+        return getIfPresent(new Key(baseUrl, serverName));
+    }
+
+    /**
+     * Returns the last details loaded for a server, even if expired, without loading.
+     */
+    public McpxServerDetails getLastKnown(String baseUrl, String serverName) {
+        return getLastKnown(new Key(baseUrl, serverName));
+    }
+
+    public synchronized void invalidate(String baseUrl, String serverName) {
+        remove(new Key(baseUrl, serverName));
+    }
+
+    /**
+     * Drops all cached details for a registry.
+     */
+    public synchronized void invalidate(String baseUrl) {
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().baseUrl.equals(baseUrl)) {
+                totalWeight -= e.getValue().weight;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return totalWeight;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Lookups answered with expired details because loading them failed.
+     */
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+
+    private synchronized McpxServerDetails getIfPresent(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long ttl = ttlMillis.getAsLong();
+        if (ttl <= 0) {
+            remove(key);
+            return null;
+        }
+        // Expired entries stay until replaced or evicted, as a fallback for failed reloads
+        return clock.getAsLong() - entry.loadedAt < ttl ? entry.details : null;
+    }
+
+    private synchronized McpxServerDetails getLastKnown(Key key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.details : null;
+    }
+
+    private synchronized void put(Key key, McpxServerDetails details) {
+        if (ttlMillis.getAsLong() <= 0) {
+            return;
+        }
+        long weight = details.estimatedWeight();
+        if (weight > maxWeight) {
+            LOGGER.log(Level.FINE, "Not caching details for " + key + ": " + weight + " bytes exceeds cache limit");
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(details, clock.getAsLong(), weight));
+        totalWeight += weight;
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); totalWeight > maxWeight && it.hasNext(); ) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            totalWeight -= eldest.getValue().weight;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            totalWeight -= old.weight;
+        }
+    }
+
+    private static final class Key {
+        private final String baseUrl;
+        private final String serverName;
+
+        Key(String baseUrl, String serverName) {
+            this.baseUrl = baseUrl;
+            this.serverName = serverName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return baseUrl.equals(other.baseUrl) && serverName.equals(other.serverName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseUrl, serverName);
+        }
+
+        @Override
+        public String toString() {
+            return serverName + " @ " + baseUrl;
+        }
+    }
+
+    private static final class Entry {
+        private final McpxServerDetails details;
+        private final long loadedAt;
+        private final long weight;
+
+        Entry(McpxServerDetails details, long loadedAt, long weight) {
+            this.details = details;
+            this.loadedAt = loadedAt;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory cache of registry server listings keyed by registry base URL and source
+ * (the CLI path, or a backend identifier for backends that do not fork mcpx-cli).
+ * <p>
+ * Fresh entries are served straight from memory. Once an entry is older than the configured TTL
+ * it is still served, and a single background refresh is scheduled to replace it. Only a cache
+ * miss or an explicit {@link #refresh} runs the loader on the calling thread, and concurrent
+ * loads for the same key are coalesced into one.
+ * <p>
+ * Paged listings are loaded incrementally: the first page is cached and returned as soon as it
+ * arrives, and the remaining pages are fetched in the background and merged into the entry
+ * page by page, so callers see a growing catalog until {@link #isComplete} reports true. If a later
+ * page fails, the pages loaded so far are kept and the entry counts as expired, so the next lookup
+ * schedules a full reload.
+ */
+public final class McpxServerListCache {
+    private static final Logger LOGGER = Logger.getLogger(McpxServerListCache.class.getName());
+
+    private static final McpxServerListCache INSTANCE =
+            new McpxServerListCache(System::currentTimeMillis, McpxGlobalConfiguration::cacheTtlMillis);
+
+    /**
+     * Fetches the server names for a cache key, typically by running mcpx-cli.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<String> load() throws Exception;
+    }
+
+    /**
+     * Fetches one page of a listing.
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+        /**
+         * @param cursor the cursor returned with the previous page, or null for the first page
+         */
+        McpxServerListParser.Result load(String cursor) throws Exception;
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final McpxSingleFlight<Key, List<String>> flights = new McpxSingleFlight<>();
+    private final ExecutorService refresher;
+    private final LongSupplier clock;
+    private final LongSupplier ttlMillis;
+
+    McpxServerListCache(LongSupplier clock, LongSupplier ttlMillis) {
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "McpxServerListCache.refresh"));
+        executor.allowCoreThreadTimeOut(true);
+        this.refresher = executor;
+    }
+
+    public static McpxServerListCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached server names, loading them on a miss.
+     * Stale entries are returned as-is while a background refresh replaces them.
+     */
+    public List<String> get(String baseUrl, String source, Loader loader) throws Exception {
+        return get(baseUrl, source, singlePage(loader));
+    }
+
+    /**
+     * Returns the cached server names, loading the first page on a miss and the rest in the background.
+     * Stale entries are returned as-is while a background refresh replaces them.
+     */
+    public List<String> get(String baseUrl, String source, PageLoader loader) throws Exception {
+        Key key = new Key(baseUrl, source);
+        long ttl = ttlMillis.getAsLong();
+        Entry entry = entries.get(key);
+        if (ttl > 0 && entry != null) {
+            // A listing whose later pages failed to load is reloaded as if it had expired
+            if (!entry.loading && (!entry.complete || clock.getAsLong() - entry.loadedAt >= ttl)) {
+                scheduleRefresh(key, entry, loader);
+            }
+            return entry.names;
+        }
+        // Concurrent misses for the same key share one load; re-check in case a load just finished
+        return flights.execute(key, () -> {
+            Entry current = entries.get(key);
+            if (ttl > 0 && current != null) {
+                return current.names;
+            }
+            return ttl > 0 ? loadIncrementally(key, loader) : loadAll(key, loader);
+        });
+    }
+
+    /**
+     * Runs the loader on the calling thread and replaces any cached entry with the result.
+     */
+    public List<String> refresh(String baseUrl, String source, Loader loader) throws Exception {
+        return refresh(baseUrl, source, singlePage(loader));
+    }
+
+    /**
+     * Loads the first page on the calling thread, replacing any cached entry, and the rest in the background.
+     */
+    public List<String> refresh(String baseUrl, String source, PageLoader loader) throws Exception {
+        Key key = new Key(baseUrl, source);
+        return flights.execute(key, () -> loadIncrementally(key, loader));
+    }
+
+    /**
+     * Returns the cached server names, however old, without loading; null if nothing is cached.
+     */
+    public List<String> getIfPresent(String baseUrl, String source) {
+        Entry entry = entries.get(new Key(baseUrl, source));
+        return entry != null ? entry.names : null;
+    }
+
+    /**
+     * Whether the cached listing holds every page; false while later pages are still loading,
+     * if loading them failed, or if nothing is cached.
+     */
+    public boolean isComplete(String baseUrl, String source) {
+        Entry entry = entries.get(new Key(baseUrl, source));
+        return entry != null && entry.complete;
+    }
+
+    /**
+     * Whether later pages of the cached listing are still being fetched in the background.
+     */
+    public boolean isLoading(String baseUrl, String source) {
+        Entry entry = entries.get(new Key(baseUrl, source));
+        return entry != null && entry.loading;
+    }
+
+    /**
+     * Applies registry changes to a complete cached listing: updated servers not yet listed are
+     * appended, removed servers are dropped, and the entry counts as freshly loaded.
+     * @return false if there is no complete listing to update
+     */
+    public boolean applyChanges(String baseUrl, String source, Collection<String> updated, Collection<String> removed) {
+        Entry applied = entries.computeIfPresent(new Key(baseUrl, source), (k, e) -> {
+            if (!e.complete || e.loading) {
+                return e;
+            }
+            Set<String> merged = new LinkedHashSet<>(e.names);
+            merged.addAll(updated);
+            merged.removeAll(removed);
+            return new Entry(snapshot(merged), clock.getAsLong(), true, false, e.generation);
+        });
+        return applied != null && applied.complete && !applied.loading;
+    }
+
+    /**
+     * Applies registry changes to every complete cached listing of a registry, whatever its source.
+     * @return the number of listings updated
+     */
+    public int applyChanges(String baseUrl, Collection<String> updated, Collection<String> removed) {
+        int applied = 0;
+        for (Key k : new ArrayList<>(entries.keySet())) {
+            if (k.baseUrl.equals(baseUrl) && applyChanges(baseUrl, k.source, updated, removed)) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * When the complete listing cached for a key was loaded or last updated, or -1 if there is none.
+     */
+    public long completedAt(String baseUrl, String source) {
+        Entry entry = entries.get(new Key(baseUrl, source));
+        return entry != null && entry.complete ? entry.loadedAt : -1;
+    }
+
+    /**
+     * Registries with a listing cached for a source.
+     */
+    public Set<String> baseUrls(String source) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (Key k : entries.keySet()) {
+            if (k.source.equals(source)) {
+                urls.add(k.baseUrl);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Drops all cached listings for a registry, regardless of source.
+     */
+    public void invalidate(String baseUrl) {
+        entries.keySet().removeIf(k -> k.baseUrl.equals(baseUrl));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private static PageLoader singlePage(Loader loader) {
+        return cursor -> new McpxServerListParser.Result(loader.load(), true, null);
+    }
+
+    /**
+     * Publishes the first page immediately and merges the remaining pages in the background.
+     */
+    private List<String> loadIncrementally(Key key, PageLoader loader) throws Exception {
+        McpxServerListParser.Result first = loader.load(null);
+        Set<String> merged = new LinkedHashSet<>(first.getNames());
+        String cursor = first.getNextCursor();
+        Object generation = new Object();
+        Entry entry = new Entry(snapshot(merged), clock.getAsLong(), cursor == null, cursor != null, generation);
+        entries.put(key, entry);
+        if (cursor != null) {
+            loadRemainingPages(key, loader, merged, cursor, generation);
+        }
+        return entry.names;
+    }
+
+    /**
+     * Loads every page on the calling thread and publishes the merged listing once complete.
+     */
+    private List<String> loadAll(Key key, PageLoader loader) throws Exception {
+        Set<String> merged = new LinkedHashSet<>();
+        Set<String> seenCursors = new HashSet<>();
+        String cursor = null;
+        do {
+            McpxServerListParser.Result page = loader.load(cursor);
+            merged.addAll(page.getNames());
+            cursor = page.getNextCursor();
+        } while (cursor != null && seenCursors.add(cursor));
+        Entry entry = new Entry(snapshot(merged), clock.getAsLong(), true, false, new Object());
+        entries.put(key, entry);
+        return entry.names;
+    }
+
+    private void loadRemainingPages(Key key, PageLoader loader, Set<String> merged, String firstCursor, Object generation) {
+        try {
+            refresher.execute(() -> {
+                Set<String> seenCursors = new HashSet<>();
+                String cursor = firstCursor;
+                try {
+                    while (cursor != null && seenCursors.add(cursor)) {
+                        McpxServerListParser.Result page = loader.load(cursor);
+                        merged.addAll(page.getNames());
+                        cursor = page.getNextCursor();
+                        if (!publish(key, generation, merged, cursor == null, cursor != null)) {
+                            LOGGER.log(Level.FINE, "Server list for " + key + " was replaced; abandoning remaining pages");
+                            return;
+                        }
+                    }
+                    if (cursor != null) {
+                        LOGGER.log(Level.WARNING, "Registry repeated page cursor for " + key + "; stopping after " + merged.size() + " servers");
+                        publish(key, generation, merged, true, false);
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Loading remaining pages failed for " + key + "; serving " + merged.size() + " servers", e);
+                    publish(key, generation, merged, false, false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Loading remaining pages rejected for " + key, e);
+            publish(key, generation, merged, false, false);
+        }
+    }
+
+    /**
+     * Replaces the entry with the merged pages, unless a newer load has replaced it since.
+     */
+    private boolean publish(Key key, Object generation, Set<String> merged, boolean complete, boolean loading) {
+        List<String> names = snapshot(merged);
+        Entry updated = entries.computeIfPresent(key, (k, e) -> e.generation == generation
+                ? new Entry(names, e.loadedAt, complete, loading, generation)
+                : e);
+        return updated != null && updated.generation == generation;
+    }
+
+    private static List<String> snapshot(Set<String> names) {
+        return Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    private void scheduleRefresh(Key key, Entry entry, PageLoader loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    // The stale listing stays in place until the new one is complete
+                    flights.execute(key, () -> loadAll(key, loader));
+                    LOGGER.log(Level.FINE, "Refreshed server list for " + key);
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Background refresh of server list failed for " + key + "; keeping stale entry", e);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+            LOGGER.log(Level.FINE, "Background refresh rejected for " + key, e);
+        }
+    }
+
+    private static final class Key {
+        private final String baseUrl;
+        private final String source;
+
+        Key(String baseUrl, String source) {
+            this.baseUrl = baseUrl;
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return baseUrl.equals(other.baseUrl) && source.equals(other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseUrl, source);
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl + " (" + source + ")";
+        }
+    }
+
+    private static final class Entry {
+        private final List<String> names;
+        private final long loadedAt;
+        private final boolean complete;
+        // True while later pages of this load are still being fetched in the background
+        private final boolean loading;
+        // Identifies the load that produced this entry, so superseded page loads stop publishing
+        private final Object generation;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(List<String> names, long loadedAt, boolean complete, boolean loading, Object generation) {
+            this.names = names;
+            this.loadedAt = loadedAt;
+            this.complete = complete;
+            this.loading = loading;
+            this.generation = generation;
+        }
+    }
+}
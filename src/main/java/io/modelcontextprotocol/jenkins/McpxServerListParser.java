@@ -0,0 +1,486 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass, token-level reader for registry server listings.
+ * <p>
+ * Only server names are materialized: every other value in the stream (descriptions, packages,
+ * metadata) is skipped without being built, so memory use is bounded by the number of distinct
+ * names rather than by the size of the listing. Accepts the object-wrapped shape
+ * {@code {"servers": [...]}} and a bare array, where each entry carries either {@code name}
+ * or {@code server.name}. For paged listings the cursor of the next page is read from
+ * {@code metadata.nextCursor} (or {@code next_cursor}).
+ * <p>
+ * {@link #parseChanges} also reads each entry's version and registry status, for applying a
+ * listing of recently updated servers to a cached catalog.
+ */
+public final class McpxServerListParser {
+    private static final int EOF = -1;
+
+    private final Reader in;
+    // Whether versions and statuses are read along with names
+    private final boolean changes;
+    private final Map<String, String> versions = new LinkedHashMap<>();
+    private final Set<String> removed = new LinkedHashSet<>();
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int limit;
+    private long offset;
+    private final StringBuilder scratch = new StringBuilder();
+
+    private McpxServerListParser(Reader in, boolean changes) {
+        this.in = in;
+        this.changes = changes;
+    }
+
+    /**
+     * Outcome of parsing a listing.
+     */
+    public static final class Result {
+        private final List<String> names;
+        private final boolean recognized;
+        private final String nextCursor;
+        private final Map<String, String> versions;
+        private final Set<String> removed;
+
+        Result(List<String> names, boolean recognized, String nextCursor) {
+            this(names, recognized, nextCursor, Collections.emptyMap(), Collections.emptySet());
+        }
+
+        Result(List<String> names, boolean recognized, String nextCursor, Map<String, String> versions, Set<String> removed) {
+            this.names = Collections.unmodifiableList(names);
+            this.recognized = recognized;
+            this.nextCursor = nextCursor;
+            this.versions = Collections.unmodifiableMap(versions);
+            this.removed = Collections.unmodifiableSet(removed);
+        }
+
+        /** Distinct server names in listing order. */
+        public List<String> getNames() {
+            return names;
+        }
+
+        /** False when the input was valid JSON but not a registry listing. */
+        public boolean isRecognized() {
+            return recognized;
+        }
+
+        /** Cursor of the following page, or null if this is the last (or only) page. */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        /** Latest version of each listed server, when parsed with {@link #parseChanges}. */
+        public Map<String, String> getVersions() {
+            return versions;
+        }
+
+        /** Servers the registry marks as deleted, when parsed with {@link #parseChanges}; not in {@link #getNames}. */
+        public Set<String> getRemoved() {
+            return removed;
+        }
+    }
+
+    /**
+     * Parses a listing from the reader. Empty input yields an empty, recognized result.
+     * @throws IOException if the input is not well-formed JSON
+     */
+    public static Result parse(Reader in) throws IOException {
+        return new McpxServerListParser(in, false).parseRoot();
+    }
+
+    /**
+     * Parses a listing of changed servers, reading each entry's version and registry status
+     * ({@code _meta.<registry>.status}) as well. Deleted servers are reported by
+     * {@link Result#getRemoved}; entries the registry marks as not the latest version are ignored.
+     * @throws IOException if the input is malformed or not a registry listing
+     */
+    public static Result parseChanges(Reader in) throws IOException {
+        Result result = new McpxServerListParser(in, true).parseRoot();
+        if (!result.isRecognized()) {
+            throw new IOException("Unable to parse registry response: <unrecognized registry response>");
+        }
+        return result;
+    }
+
+    /**
+     * Parses a listing, rejecting input that is not a registry listing.
+     * @throws IOException if the input is malformed or not a registry listing
+     */
+    public static Result parsePage(Reader in) throws IOException {
+        Result result = parse(in);
+        if (!result.isRecognized()) {
+            throw new IOException("Unable to parse registry response: <unrecognized registry response>");
+        }
+        return result;
+    }
+
+    /**
+     * Parses a listing and returns its server names.
+     * @throws IOException if the input is malformed or not a registry listing
+     */
+    public static List<String> parseNames(Reader in) throws IOException {
+        return parsePage(in).getNames();
+    }
+
+    private Result parseRoot() throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        int c = peekNonWhitespace();
+        if (c == EOF) {
+            return new Result(new ArrayList<>(), true, null);
+        }
+        boolean recognized = false;
+        String nextCursor = null;
+        if (c == '{') {
+            pos++;
+            if (!endOfContainer('}')) {
+                do {
+                    String key = readKey();
+                    if ("servers".equals(key)) {
+                        if (peekNonWhitespace() != '[') {
+                            throw malformed("expected servers array");
+                        }
+                        readServerArray(names);
+                        recognized = true;
+                    } else if ("metadata".equals(key) && peekNonWhitespace() == '{') {
+                        nextCursor = readStringMember("nextCursor", "next_cursor");
+                    } else if ("nextCursor".equals(key) || "next_cursor".equals(key)) {
+                        nextCursor = readOptionalString();
+                    } else {
+                        skipValue();
+                    }
+                } while (nextMember('}'));
+            }
+        } else if (c == '[') {
+            readServerArray(names);
+            recognized = true;
+        } else {
+            skipValue();
+        }
+        if (nextCursor != null && nextCursor.isEmpty()) {
+            nextCursor = null;
+        }
+        return new Result(new ArrayList<>(names), recognized, nextCursor, versions, removed);
+    }
+
+    private void readServerArray(Set<String> names) throws IOException {
+        expect('[');
+        if (endOfContainer(']')) {
+            return;
+        }
+        do {
+            if (peekNonWhitespace() == '{') {
+                Entry entry = readServerEntry();
+                if (entry.name == null || (changes && !entry.latest)) {
+                    continue;
+                }
+                if (changes && "deleted".equalsIgnoreCase(entry.status)) {
+                    removed.add(entry.name);
+                    names.remove(entry.name);
+                    versions.remove(entry.name);
+                } else {
+                    names.add(entry.name);
+                    removed.remove(entry.name);
+                    if (changes) {
+                        versions.put(entry.name, entry.version != null ? entry.version : "");
+                    }
+                }
+            } else {
+                skipValue();
+            }
+        } while (nextMember(']'));
+    }
+
+    private Entry readServerEntry() throws IOException {
+        expect('{');
+        Entry entry = new Entry();
+        Entry inner = null;
+        if (!endOfContainer('}')) {
+            do {
+                String key = readKey();
+                if ("name".equals(key)) {
+                    entry.name = readOptionalString();
+                } else if ("server".equals(key) && peekNonWhitespace() == '{') {
+                    if (changes) {
+                        inner = readServerEntry();
+                    } else {
+                        inner = new Entry();
+                        inner.name = readStringMember("name");
+                    }
+                } else if (changes && "version".equals(key)) {
+                    entry.version = readOptionalString();
+                } else if (changes && "_meta".equals(key) && peekNonWhitespace() == '{') {
+                    readMeta(entry);
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        if (entry.name == null || entry.name.isEmpty()) {
+            entry.name = inner != null && inner.name != null && !inner.name.isEmpty() ? inner.name : null;
+        }
+        if (inner != null && entry.version == null) {
+            entry.version = inner.version;
+        }
+        return entry;
+    }
+
+    /**
+     * Reads the status and latest flag from an entry's {@code _meta}, where each registry keeps
+     * them in an object of its own.
+     */
+    private void readMeta(Entry entry) throws IOException {
+        expect('{');
+        if (endOfContainer('}')) {
+            return;
+        }
+        do {
+            readKey();
+            if (peekNonWhitespace() != '{') {
+                skipValue();
+                continue;
+            }
+            expect('{');
+            if (!endOfContainer('}')) {
+                do {
+                    String key = readKey();
+                    if ("status".equals(key)) {
+                        entry.status = readOptionalString();
+                    } else if ("isLatest".equals(key) && peekNonWhitespace() == 'f') {
+                        skipValue();
+                        entry.latest = false;
+                    } else {
+                        skipValue();
+                    }
+                } while (nextMember('}'));
+            }
+        } while (nextMember('}'));
+    }
+
+    /**
+     * Reads an object and returns the string value of the first of the given members present.
+     */
+    private String readStringMember(String... keys) throws IOException {
+        expect('{');
+        String value = null;
+        if (!endOfContainer('}')) {
+            do {
+                String key = readKey();
+                if (value == null && Arrays.asList(keys).contains(key)) {
+                    value = readOptionalString();
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        return value;
+    }
+
+    private String readKey() throws IOException {
+        if (peekNonWhitespace() != '"') {
+            throw malformed("expected member name");
+        }
+        String key = readString();
+        expect(':');
+        return key;
+    }
+
+    private String readOptionalString() throws IOException {
+        if (peekNonWhitespace() == '"') {
+            return readString();
+        }
+        skipValue();
+        return null;
+    }
+
+    /**
+     * Consumes the closing bracket if the container is empty.
+     */
+    private boolean endOfContainer(char close) throws IOException {
+        if (peekNonWhitespace() == close) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes a member separator, returning false once the container is closed.
+     */
+    private boolean nextMember(char close) throws IOException {
+        int c = peekNonWhitespace();
+        pos++;
+        if (c == ',') {
+            return true;
+        }
+        if (c == close) {
+            return false;
+        }
+        throw malformed("expected ',' or '" + close + "'");
+    }
+
+    private void skipValue() throws IOException {
+        int c = peekNonWhitespace();
+        if (c == '"') {
+            skipString();
+            return;
+        }
+        if (c == '{' || c == '[') {
+            // Skip nested containers by depth without materializing them
+            int depth = 0;
+            do {
+                c = peekNonWhitespace();
+                if (c == EOF) {
+                    throw malformed("unterminated container");
+                }
+                if (c == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+            return;
+        }
+        if (c == EOF) {
+            throw malformed("expected value");
+        }
+        // Literal: number, true, false or null
+        long start = offset + pos;
+        while ((c = peek()) != EOF && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            if (c == '{' || c == '[' || c == '"' || c == ':') {
+                throw malformed("unexpected '" + (char) c + "'");
+            }
+            pos++;
+        }
+        if (offset + pos == start) {
+            throw malformed("expected value");
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        scratch.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return scratch.toString();
+            }
+            if (c == '\\') {
+                scratch.append(readEscape());
+            } else if (c == EOF) {
+                throw malformed("unterminated string");
+            } else {
+                scratch.append((char) c);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        expect('"');
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            } else if (c == EOF) {
+                throw malformed("unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"': case '\\': case '/':
+                return (char) c;
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw malformed("invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw malformed("invalid escape");
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peekNonWhitespace();
+        if (c != expected) {
+            throw malformed("expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != EOF && Character.isWhitespace(c)) {
+            pos++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return EOF;
+        }
+        return buf[pos];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) {
+            pos++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private IOException malformed(String reason) {
+        return new IOException("Malformed registry JSON at offset " + (offset + pos) + ": " + reason);
+    }
+
+    private static final class Entry {
+        private String name;
+        private String version;
+        private String status;
+        private boolean latest = true;
+    }
+}
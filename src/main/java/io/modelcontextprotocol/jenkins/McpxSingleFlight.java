@@ -0,0 +1,62 @@
+package io.modelcontextprotocol.jenkins;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent calls for the same key into a single in-flight execution.
+ * <p>
+ * The first caller for a key runs the call; callers arriving while it is in flight wait for
+ * and share its result or failure. Registration is an atomic {@code putIfAbsent}, so callers for
+ * unrelated keys never contend, and no lock is held while the call itself runs.
+ */
+public final class McpxSingleFlight<K, V> {
+    /**
+     * The work to run once per in-flight key.
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws Exception;
+    }
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call for the key, or joins the execution already in flight for it.
+     */
+    public V execute(K key, Call<V> call) throws Exception {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> future = inFlight.putIfAbsent(key, created);
+        if (future == null) {
+            future = created;
+            try {
+                V value = call.call();
+                future.complete(value);
+                return value;
+            } catch (Exception | Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Number of keys with an execution currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,318 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Job;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.Secret;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Webhook for invalidating cached registry data as soon as servers are published.
+ * <p>
+ * A registry or publish hook POSTs a JSON body to {@code /mcpx-webhook/}, signed with the shared
+ * secret from the global configuration: the {@value #TIMESTAMP_HEADER} header carries the time of
+ * the call (epoch seconds) and the {@value #SIGNATURE_HEADER} header
+ * {@code sha256=<hex HMAC-SHA256 of "<timestamp>.<body>">}. Calls more than
+ * {@link #MAX_SKEW_SECONDS} away from the controller's time are rejected, and so is a signature
+ * already used within that window, so a captured call cannot be replayed. The body names the
+ * registry (the global base URL if omitted), the servers, and the action:
+ * <ul>
+ *   <li>{@code refresh} (default): drop the servers' cached details and fetch them again in the
+ *   background; servers the fetch finds are added to cached listings. Other registries than the
+ *   global one are only invalidated, since details are fetched with the global settings</li>
+ *   <li>{@code invalidate}: drop the servers' cached details and the registry's cached listings,
+ *   which may now include them; the next use fetches them</li>
+ *   <li>{@code delete}: drop the servers' cached details and remove them from cached listings</li>
+ * </ul>
+ * Names from the body are never added to listings as such, since the call only proves it knows the
+ * secret, not that the servers exist.
+ * Without servers, everything cached for the registry is dropped. Agents' disk caches are
+ * bypassed for the affected entries through {@link McpxInvalidations}.
+ */
+@Extension
+public class McpxWebhook implements UnprotectedRootAction {
+    private static final Logger LOGGER = Logger.getLogger(McpxWebhook.class.getName());
+
+    static final String URL_NAME = "mcpx-webhook";
+    static final String SIGNATURE_HEADER = "X-Mcpx-Signature";
+    static final String TIMESTAMP_HEADER = "X-Mcpx-Timestamp";
+    static final int MAX_BODY_BYTES = 64 * 1024;
+
+    /**
+     * How far the signed timestamp of a call may be from the controller's time.
+     */
+    static final long MAX_SKEW_SECONDS = Math.max(1, Long.getLong(McpxWebhook.class.getName() + ".maxSkewSeconds", 300));
+
+    static final String ACTION_REFRESH = "refresh";
+    static final String ACTION_INVALIDATE = "invalidate";
+    static final String ACTION_DELETE = "delete";
+
+    // Signatures accepted within the last MAX_SKEW_SECONDS, by the timestamp they were signed with
+    private static final Map<String, Long> SEEN = new ConcurrentHashMap<>();
+
+    private static final ExecutorService REFRESHER;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "McpxWebhook.refresh"));
+        executor.allowCoreThreadTimeOut(true);
+        REFRESHER = executor;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    @RequirePOST
+    public HttpResponse doIndex(StaplerRequest req) throws IOException {
+        String secret = secret();
+        if (secret == null) {
+            return HttpResponses.errorWithoutStack(404, "The MCPX webhook is not enabled");
+        }
+        byte[] body = read(req.getInputStream());
+        if (body == null) {
+            return HttpResponses.errorWithoutStack(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+        }
+        String timestamp = req.getHeader(TIMESTAMP_HEADER);
+        String signature = req.getHeader(SIGNATURE_HEADER);
+        if (!verify(secret, timestamp, body, signature)) {
+            LOGGER.log(Level.WARNING, "Rejected MCPX webhook call with a missing or invalid signature from " + req.getRemoteAddr());
+            return HttpResponses.errorWithoutStack(403, "Invalid signature");
+        }
+        long now = System.currentTimeMillis();
+        if (!isFresh(timestamp, now)) {
+            LOGGER.log(Level.WARNING, "Rejected MCPX webhook call with a timestamp more than " + MAX_SKEW_SECONDS + " s off from " + req.getRemoteAddr());
+            return HttpResponses.errorWithoutStack(403, "Timestamp outside the allowed window");
+        }
+        if (!firstUse(SEEN, signature, Long.parseLong(timestamp.trim()), now)) {
+            LOGGER.log(Level.WARNING, "Rejected replayed MCPX webhook call from " + req.getRemoteAddr());
+            return HttpResponses.errorWithoutStack(403, "Signature already used");
+        }
+
+        String action;
+        String baseUrl;
+        List<String> servers;
+        try {
+            JSONObject json = JSONObject.fromObject(new String(body, StandardCharsets.UTF_8));
+            action = json.optString("action", ACTION_REFRESH);
+            baseUrl = Util.fixEmptyAndTrim(json.optString("registry", ""));
+            servers = names(json.optJSONArray("servers"));
+        } catch (JSONException e) {
+            return HttpResponses.errorWithoutStack(400, "Malformed JSON: " + e.getMessage());
+        }
+        if (!Arrays.asList(ACTION_REFRESH, ACTION_INVALIDATE, ACTION_DELETE).contains(action)) {
+            return HttpResponses.errorWithoutStack(400, "Unknown action: " + action);
+        }
+        String globalBaseUrl = globalBaseUrl();
+        if (baseUrl == null) {
+            baseUrl = globalBaseUrl;
+        }
+        if (ACTION_REFRESH.equals(action) && !baseUrl.equals(globalBaseUrl)) {
+            // Details are fetched with the global settings, so only the global registry is refreshed
+            action = ACTION_INVALIDATE;
+        }
+
+        apply(action, baseUrl, servers, McpxServerListCache.get(), McpxServerDetailsCache.get(), McpxInvalidations.get());
+        LOGGER.log(Level.INFO, "MCPX webhook: " + action + " " + (servers.isEmpty() ? "all servers" : servers) + " of " + baseUrl);
+        if (ACTION_REFRESH.equals(action) && !servers.isEmpty()) {
+            refreshLater(baseUrl, servers);
+        }
+        return HttpResponses.ok();
+    }
+
+    /**
+     * Drops the cached data the action affects.
+     */
+    static void apply(String action, String baseUrl, List<String> servers, McpxServerListCache lists,
+                      McpxServerDetailsCache details, McpxInvalidations invalidations) {
+        if (servers.isEmpty()) {
+            lists.invalidate(baseUrl);
+            details.invalidate(baseUrl);
+            invalidations.invalidateRegistry(baseUrl);
+            return;
+        }
+        for (String name : servers) {
+            details.invalidate(baseUrl, name);
+            invalidations.invalidateServer(baseUrl, name);
+        }
+        if (ACTION_DELETE.equals(action)) {
+            lists.applyChanges(baseUrl, Collections.emptyList(), servers);
+        } else if (ACTION_INVALIDATE.equals(action)) {
+            // A published server may be new to the listing; the next use lists the registry again
+            lists.invalidate(baseUrl);
+        }
+        // On refresh, the servers are added to listings once fetching their details confirms them
+    }
+
+    /**
+     * Whether the signature header matches the HMAC-SHA256 of {@code <timestamp>.<body>} under the secret.
+     */
+    static boolean verify(String secret, String timestamp, byte[] body, String signature) {
+        if (timestamp == null || signature == null) {
+            return false;
+        }
+        String given = signature.trim();
+        if (given.startsWith("sha256=")) {
+            given = given.substring("sha256=".length());
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update((timestamp.trim() + ".").getBytes(StandardCharsets.UTF_8));
+            String expected = Util.toHexString(mac.doFinal(body));
+            // Constant-time comparison, so the signature cannot be guessed byte by byte
+            return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII), given.toLowerCase().getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            LOGGER.log(Level.WARNING, "HmacSHA256 is not available", e);
+            return false;
+        }
+    }
+
+    /**
+     * Whether the timestamp (epoch seconds) is within {@link #MAX_SKEW_SECONDS} of now (epoch millis).
+     */
+    static boolean isFresh(String timestamp, long nowMillis) {
+        try {
+            long seconds = Long.parseLong(timestamp.trim());
+            return Math.abs(TimeUnit.MILLISECONDS.toSeconds(nowMillis) - seconds) <= MAX_SKEW_SECONDS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records a verified, fresh signature, returning false if it was already used. Signatures are
+     * kept only while their timestamp is fresh; older ones are rejected by {@link #isFresh} anyway.
+     */
+    static boolean firstUse(Map<String, Long> seen, String signature, long timestampSeconds, long nowMillis) {
+        long oldest = TimeUnit.MILLISECONDS.toSeconds(nowMillis) - MAX_SKEW_SECONDS;
+        seen.values().removeIf(t -> t < oldest);
+        // The same signature may be sent with or without the prefix, in either case
+        String key = signature.trim().toLowerCase();
+        if (key.startsWith("sha256=")) {
+            key = key.substring("sha256=".length());
+        }
+        return seen.putIfAbsent(key, timestampSeconds) == null;
+    }
+
+    private static void refreshLater(String baseUrl, List<String> servers) {
+        REFRESHER.execute(McpxRateLimiter.withPriority(McpxRateLimiter.Priority.BACKGROUND, () -> {
+            try {
+                Map<String, McpxServerDetails> found = new McpxRegistryClient().getServerDetails((Job<?, ?>) null, servers);
+                // A published server may be new to the listing, but only if the registry has it
+                McpxServerListCache.get().applyChanges(baseUrl, new ArrayList<>(found.keySet()), Collections.emptyList());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to refresh details of " + servers + ": " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    /**
+     * Reads the body, or returns null if it is larger than {@link #MAX_BODY_BYTES}.
+     */
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+            out.write(buf, 0, n);
+            if (out.size() > MAX_BODY_BYTES) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<String> names(JSONArray array) {
+        List<String> names = new ArrayList<>();
+        if (array != null) {
+            for (int i = 0; i < array.size(); i++) {
+                String name = Util.fixEmptyAndTrim(array.optString(i));
+                if (name != null && !names.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String secret() {
+        try {
+            McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
+            return cfg != null ? Util.fixEmpty(Secret.toString(cfg.getWebhookSecret())) : null;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static String globalBaseUrl() {
+        McpxGlobalConfiguration cfg = McpxGlobalConfiguration.get();
+        return cfg != null && Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl()) != null
+                ? Util.fixEmptyAndTrim(cfg.getRegistryBaseUrl())
+                : "https://registry.modelcontextprotocol.io";
+    }
+
+    /**
+     * Lets the registry call the webhook without a CSRF crumb; calls are authenticated by signature instead.
+     */
+    @Extension
+    public static class CrumbExclusionImpl extends CrumbExclusion {
+        @Override
+        public boolean process(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+            String path = req.getPathInfo();
+            if (path != null && (path.equals("/" + URL_NAME) || path.startsWith("/" + URL_NAME + "/"))) {
+                chain.doFilter(req, resp);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -9,6 +9,13 @@ import hudson.model.ParameterValue;
 import hudson.model.SimpleParameterDefinition;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import io.modelcontextprotocol.jenkins.McpxDeadlines;
+import io.modelcontextprotocol.jenkins.McpxLoginSessions;
+import io.modelcontextprotocol.jenkins.McpxNodeCapabilities;
+import io.modelcontextprotocol.jenkins.McpxNodeHealth;
+import io.modelcontextprotocol.jenkins.McpxProcessLimiter;
+import io.modelcontextprotocol.jenkins.McpxProcessRunner;
+import io.modelcontextprotocol.jenkins.McpxRateLimiter;
 import io.modelcontextprotocol.jenkins.McpxRegistryClient;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.Stapler;
@@ -193,9 +200,11 @@ public class McpxServerParameterDefinition extends SimpleParameterDefinition {
             try {
                 // Trigger a fresh fetch to validate availability; UI will repopulate on reload
                 hudson.util.ListBoxModel model = (job != null)
-                        ? new McpxRegistryClient().fetchServers(job)
-                        : new McpxRegistryClient().fetchServers();
+                        ? new McpxRegistryClient().refreshServers(job)
+                        : new McpxRegistryClient().refreshServers(null);
                 int count = 0;
+                boolean loadingMore = false;
+                boolean incomplete = false;
                 StringBuilder list = new StringBuilder();
                 for (hudson.util.ListBoxModel.Option opt : model) {
                     if (opt != null && opt.value != null && !opt.value.isEmpty()) {
@@ -203,9 +212,17 @@ public class McpxServerParameterDefinition extends SimpleParameterDefinition {
                         if (list.length() > 0) list.append("\n");
                         // Show only the full identifier (value), consistent with the preview area
                         list.append(opt.value);
+                    } else if (opt != null && io.modelcontextprotocol.jenkins.McpxRegistryClient.LOADING_MORE_LABEL.equals(opt.name)) {
+                        loadingMore = true;
+                    } else if (opt != null && io.modelcontextprotocol.jenkins.McpxRegistryClient.INCOMPLETE_LABEL.equals(opt.name)) {
+                        incomplete = true;
+                    } else if (opt != null && io.modelcontextprotocol.jenkins.McpxRegistryClient.STALE_LABEL.equals(opt.name)) {
+                        return FormValidation.warning("Registry unavailable; showing " + count + " cached MCP servers.\n\n" + list);
                     }
                 }
                 String msg = "Refreshed MCP servers from registry (" + count + " items).";
+                if (loadingMore) msg += " Remaining pages are loading in the background.";
+                if (incomplete) msg += " Loading remaining pages failed; the list will be reloaded.";
                 if (count > 0) msg += "\n\n" + list.toString();
                 return FormValidation.ok(msg);
             } catch (Exception e) {
@@ -271,30 +288,40 @@ public class McpxServerParameterDefinition extends SimpleParameterDefinition {
             if (hudson.Util.fixEmptyAndTrim(cliPath) == null) {
                 return FormValidation.error("mcpx-cli path not configured (global or job override).");
             }
+            int maxProcesses = cfg != null ? cfg.getMaxCliProcesses() : McpxProcessLimiter.DEFAULT_LIMIT;
 
             // Build ordered candidate nodes: job's labeled nodes -> any online agents -> controller (last resort)
             // Note: Only AbstractProject has getAssignedLabel(), pipeline jobs handle labels differently
-            java.util.LinkedHashMap<hudson.model.Node, String> candidates = new java.util.LinkedHashMap<>();
             jenkins.model.Jenkins j = jenkins.model.Jenkins.get();
-
+            java.util.List<hudson.model.Node> labeled = new java.util.ArrayList<>();
             if (job != null && job instanceof AbstractProject) {
                 AbstractProject<?, ?> project = (AbstractProject<?, ?>) job;
                 Label assigned = project.getAssignedLabel();
                 if (assigned != null) {
                     for (hudson.model.Node n : assigned.getNodes()) {
-                        if (n != null && n.toComputer() != null && n.toComputer().isOnline()) {
-                            candidates.put(n, n.getNodeName());
+                        if (n != null && n != j && n.toComputer() != null && n.toComputer().isOnline()) {
+                            labeled.add(n);
                         }
                     }
                 }
             }
-
+            java.util.List<hudson.model.Node> others = new java.util.ArrayList<>();
             for (hudson.model.Node n : j.getNodes()) {
-                if (n != null && n.toComputer() != null && n.toComputer().isOnline() && !candidates.containsKey(n)) {
-                    candidates.put(n, n.getNodeName());
+                if (n != null && n.toComputer() != null && n.toComputer().isOnline() && !labeled.contains(n)) {
+                    others.add(n);
                 }
             }
 
+            // Within each group, healthy nodes first; nodes in a failure backoff are still probed, last,
+            // and a successful probe (which lists servers) brings them back into routing
+            McpxNodeHealth health = McpxNodeHealth.get();
+            java.util.LinkedHashMap<hudson.model.Node, String> candidates = new java.util.LinkedHashMap<>();
+            for (hudson.model.Node n : health.rank(labeled, McpxDeadlines::nodeName, "servers", true)) {
+                candidates.put(n, n.getNodeName());
+            }
+            for (hudson.model.Node n : health.rank(others, McpxDeadlines::nodeName, "servers", true)) {
+                candidates.put(n, n.getNodeName());
+            }
             candidates.put(j, "controller");
 
             java.util.List<String> errors = new java.util.ArrayList<>();
@@ -302,12 +329,33 @@ public class McpxServerParameterDefinition extends SimpleParameterDefinition {
                 hudson.model.Node node = entry.getKey();
                 String where = entry.getValue();
                 try {
-                    hudson.FilePath root = node.getRootPath();
-                    if (root == null) { errors.add(where + ": no root path"); continue; }
-                    String json = root.act(new ProbeCallable(cliPath, baseUrl));
-                    String snippet = (json != null) ? json : "<null>";
+                    if (node.getRootPath() == null) { errors.add(where + ": no root path"); continue; }
+                    // Nodes already probed without a working CLI are reported from the capability index
+                    McpxNodeCapabilities.Capability capability = McpxNodeCapabilities.get().lookup(McpxDeadlines.nodeName(node), cliPath);
+                    if (capability != null && !capability.isAvailable()) {
+                        errors.add(where + ": mcpx-cli unavailable (" + capability.getError() + ")");
+                        continue;
+                    }
+                    // Each node probed is a registry request, counted against the controller-wide rate limit: the
+                    // controller's own mcpx-cli calls take their tokens as they run, an agent's are taken here
+                    // and settled with the calls it reports
+                    boolean remote = node != j;
+                    if (remote) {
+                        McpxRateLimiter.get().acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, "Probe of " + where);
+                    }
+                    ProbeResult probe = health.track(McpxDeadlines.nodeName(node), "servers",
+                            () -> McpxDeadlines.get().act(node, "probe", timeout -> new ProbeCallable(cliPath, baseUrl, timeout, maxProcesses)));
+                    if (remote) {
+                        McpxRateLimiter.get().settle(1, probe.registryCalls);
+                    }
+                    String snippet = (probe.json != null) ? probe.json : "<null>";
                     if (snippet.length() > 400) snippet = snippet.substring(0, 400) + "...";
-                    return FormValidation.ok("Probe OK on " + where + " | baseUrl=" + baseUrl + " | cliPath=" + cliPath + " | json: " + snippet);
+                    return FormValidation.ok("Probe OK on " + where + " | baseUrl=" + baseUrl + " | cliPath=" + cliPath + " | " + probe.logins
+                            + " | " + probe.processes + " | " + McpxRateLimiter.get().describe() + " | json: " + snippet);
+                } catch (McpxRateLimiter.ThrottledException ex) {
+                    // The other nodes would wait for the same tokens
+                    errors.add(where + ": " + ex.getMessage() + " (" + McpxRateLimiter.get().describe() + ")");
+                    break;
                 } catch (Exception ex) {
                     String msg = ex.getMessage();
                     if (msg == null) msg = ex.toString();
@@ -353,37 +401,51 @@ public class McpxServerParameterDefinition extends SimpleParameterDefinition {
             }
         }
 
+        // Raw JSON and the node's login session and process limiter counters, for diagnostics
+        private static final class ProbeResult implements java.io.Serializable {
+            private static final long serialVersionUID = 1L;
+            private final String json;
+            private final String logins;
+            private final String processes;
+            // mcpx-cli processes the probe ran against the registry, logins included
+            private final int registryCalls;
+
+            ProbeResult(String json, String logins, String processes, int registryCalls) {
+                this.json = json;
+                this.logins = logins;
+                this.processes = processes;
+                this.registryCalls = registryCalls;
+            }
+        }
+
         // Minimal callable to fetch raw JSON for diagnostics
-        private static class ProbeCallable implements hudson.FilePath.FileCallable<String> {
+        private static class ProbeCallable implements hudson.FilePath.FileCallable<ProbeResult> {
             private final String rawCliPath;
             private final String baseUrl;
+            private final long timeoutMillis;
+            private final int maxProcesses;
 
-            ProbeCallable(String cliPath, String baseUrl) {
+            ProbeCallable(String cliPath, String baseUrl, long timeoutMillis, int maxProcesses) {
                 this.rawCliPath = cliPath; // expand on remote to use remote user.home
                 this.baseUrl = baseUrl;
+                this.timeoutMillis = timeoutMillis;
+                this.maxProcesses = maxProcesses;
             }
 
             @Override
-            public String invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws java.io.IOException, InterruptedException {
+            public ProbeResult invoke(java.io.File f, hudson.remoting.VirtualChannel channel) throws java.io.IOException, InterruptedException {
                 String cliPath = expandHome(rawCliPath);
-                // Best-effort login
-                new ProcessBuilder(cliPath, "--base-url=" + baseUrl, "login", "--method", "anonymous").start().waitFor();
-                // List servers JSON
-                Process p = new ProcessBuilder(cliPath, "--base-url=" + baseUrl, "servers", "--json").start();
-                java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
-                try (java.io.InputStream is = p.getInputStream()) {
-                    byte[] buf = new byte[4096];
-                    int r; while ((r = is.read(buf)) >= 0) { out.write(buf, 0, r); }
-                }
-                int code = p.waitFor();
-                if (code != 0) {
-                    java.io.ByteArrayOutputStream err = new java.io.ByteArrayOutputStream();
-                    try (java.io.InputStream es = p.getErrorStream()) {
-                        byte[] buf = new byte[4096]; int r; while ((r = es.read(buf)) >= 0) { err.write(buf, 0, r); }
-                    }
-                    throw new java.io.IOException("mcpx-cli servers exit=" + code + ": " + err.toString(java.nio.charset.StandardCharsets.UTF_8));
+                McpxProcessLimiter.get().setLimit(maxProcesses);
+                long deadline = McpxProcessRunner.deadline(timeoutMillis);
+                int before = McpxLoginSessions.registryCalls();
+                // List servers JSON; the node logs in only if it has no live session
+                java.util.List<String> command = java.util.Arrays.asList(cliPath, "--base-url=" + baseUrl, "servers", "--json");
+                McpxProcessRunner.Result result = McpxLoginSessions.get().run(cliPath, baseUrl, command, deadline);
+                if (result.getExitCode() != 0) {
+                    throw new McpxProcessRunner.FailedException(command, result);
                 }
-                return out.toString(java.nio.charset.StandardCharsets.UTF_8);
+                return new ProbeResult(result.getStdout(), McpxLoginSessions.get().describe(), McpxProcessLimiter.get().describe(),
+                        McpxLoginSessions.registryCalls() - before);
             }
 
             @Override
@@ -0,0 +1,185 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxAgentCache.
+ */
+public class McpxAgentCacheTest {
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testMissLoadsAndStores() throws Exception {
+        McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get("k", false, () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get("k", false, () -> "v" + loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+        assertEquals("v1", cache.getIfPresent("k"));
+    }
+
+    @Test
+    public void testEntriesAreSharedBetweenInstances() throws Exception {
+        new McpxAgentCache(tmp.getRoot(), TTL).put("servers\nhttps://registry.example.com", "{\"servers\":[]}");
+
+        assertEquals("{\"servers\":[]}", new McpxAgentCache(tmp.getRoot(), TTL).getIfPresent("servers\nhttps://registry.example.com"));
+        assertNull(new McpxAgentCache(tmp.getRoot(), TTL).getIfPresent("servers\nhttps://other.example.com"));
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() throws Exception {
+        McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+        cache.put("k", "old");
+        for (File f : entries()) {
+            assertTrue(f.setLastModified(System.currentTimeMillis() - TTL - 1000));
+        }
+
+        assertNull(cache.getIfPresent("k"));
+        assertEquals("new", cache.get("k", false, () -> "new"));
+    }
+
+    @Test
+    public void testRefreshBypassesAndUpdatesEntry() throws Exception {
+        McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+        cache.put("k", "old");
+
+        assertEquals("new", cache.get("k", true, () -> "new"));
+        assertEquals("new", cache.getIfPresent("k"));
+    }
+
+    @Test
+    public void testFailedLoadIsNotStored() throws Exception {
+        McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+        try {
+            cache.get("k", false, () -> {
+                throw new IOException("mcpx-cli failed");
+            });
+            fail("The loader's failure should propagate");
+        } catch (IOException expected) {
+            assertEquals("mcpx-cli failed", expected.getMessage());
+        }
+
+        assertNull(cache.getIfPresent("k"));
+        assertEquals(0, entries().length);
+    }
+
+    @Test
+    public void testWritesLeaveNoTemporaryFiles() throws Exception {
+        McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+        for (int i = 0; i < 5; i++) {
+            cache.put("k", "value " + i);
+        }
+
+        File[] temporary = tmp.getRoot().listFiles((d, n) -> n.endsWith(".tmp"));
+        assertEquals(0, temporary.length);
+        assertEquals(1, entries().length);
+        assertEquals("value 4", cache.getIfPresent("k"));
+    }
+
+    @Test
+    public void testSweepRemovesStaleLockAndTemporaryFiles() throws Exception {
+        long old = System.currentTimeMillis() - Math.max(TTL, McpxAgentCache.STALE_TEMP_MILLIS) - 1000;
+        File expired = file("expired.json", old);
+        File staleLock = file("expired.lock", old);
+        File heldLock = file("held.lock", old);
+        File orphan = file("orphan.tmp", old);
+        File writing = file("writing.tmp", System.currentTimeMillis());
+
+        try (FileChannel channel = FileChannel.open(heldLock.toPath(), StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // The first write in a directory sweeps it
+            new McpxAgentCache(tmp.getRoot(), TTL).put("k", "v");
+        }
+
+        assertFalse(expired.exists());
+        assertFalse(staleLock.exists());
+        assertFalse(orphan.exists());
+        assertTrue("A lock in use is kept", heldLock.exists());
+        assertTrue("A temporary file still being written is kept", writing.exists());
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                // One cache instance per caller, like separate executors or agent processes
+                McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("k", false, () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(100);
+                        return "loaded";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("loaded", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testEntryWrittenBeforeInvalidationIsReloaded() throws Exception {
+        McpxAgentCache cache = new McpxAgentCache(tmp.getRoot(), TTL);
+        cache.put("k", "old");
+        for (File f : entries()) {
+            assertTrue(f.setLastModified(System.currentTimeMillis() - 10_000));
+        }
+        long invalidatedAt = System.currentTimeMillis() - 5_000;
+
+        assertEquals("old", cache.getIfPresent("k"));
+        assertNull(cache.getIfPresent("k", invalidatedAt));
+        assertEquals("new", cache.get("k", false, invalidatedAt, () -> "new"));
+        assertEquals("new", cache.get("k", false, invalidatedAt, () -> "newer"));
+    }
+
+    @Test
+    public void testDisabledWithoutTtl() {
+        assertNull(McpxAgentCache.forRoot(tmp.getRoot(), 0));
+        assertNotNull(McpxAgentCache.forRoot(tmp.getRoot(), TTL));
+    }
+
+    private File[] entries() {
+        return tmp.getRoot().listFiles((d, n) -> n.endsWith(".json"));
+    }
+
+    private File file(String name, long modified) throws IOException {
+        File f = tmp.newFile(name);
+        assertTrue(f.setLastModified(modified));
+        return f;
+    }
+}
@@ -0,0 +1,82 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.model.Job;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersDefinitionProperty;
+import io.modelcontextprotocol.jenkins.parameters.McpxServerParameterDefinition;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for McpxCacheWarmer.
+ */
+@SuppressWarnings("unchecked")
+public class McpxCacheWarmerTest {
+
+    @Test
+    public void testWarmIsBoundedAndCountsFailures() {
+        List<McpxCacheWarmer.Target> targets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            targets.add(new McpxCacheWarmer.Target(null));
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger warmed = new AtomicInteger();
+
+        int failed = McpxCacheWarmer.warm(targets, 2, target -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+                if (warmed.incrementAndGet() % 4 == 0) {
+                    throw new IOException("registry unavailable");
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertEquals(8, warmed.get());
+        assertEquals(2, failed);
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    public void testWarmWithoutTargets() {
+        assertEquals(0, McpxCacheWarmer.warm(Collections.emptyList(), 2, target -> fail("Nothing to warm")));
+    }
+
+    @Test
+    public void testPlanGroupsJobsBySettings() {
+        Job<?, ?> selected = Mockito.mock(Job.class);
+        when(selected.getProperty(McpxJobProperty.class)).thenReturn(new McpxJobProperty(null, null, "io.github/a"));
+
+        Job<?, ?> parameterized = Mockito.mock(Job.class);
+        ParametersDefinitionProperty params = Mockito.mock(ParametersDefinitionProperty.class);
+        when(params.getParameterDefinitions()).thenReturn(Arrays.<ParameterDefinition>asList(
+                new McpxServerParameterDefinition("MCP_SERVER", null, "io.github/b")));
+        when(parameterized.getProperty(ParametersDefinitionProperty.class)).thenReturn(params);
+
+        Job<?, ?> overridden = Mockito.mock(Job.class);
+        when(overridden.getProperty(McpxJobProperty.class)).thenReturn(new McpxJobProperty(null, "https://other.example.com", "io.github/c"));
+
+        Job<?, ?> unrelated = Mockito.mock(Job.class);
+
+        List<McpxCacheWarmer.Target> targets = McpxCacheWarmer.plan(Arrays.asList(selected, parameterized, overridden, unrelated));
+
+        assertEquals(2, targets.size());
+        assertSame(selected, targets.get(0).job);
+        assertEquals(Arrays.asList("io.github/a", "io.github/b"), new ArrayList<>(targets.get(0).servers));
+        assertSame(overridden, targets.get(1).job);
+        assertEquals(Collections.singletonList("io.github/c"), new ArrayList<>(targets.get(1).servers));
+    }
+}
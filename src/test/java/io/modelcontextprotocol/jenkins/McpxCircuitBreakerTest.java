@@ -0,0 +1,279 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxCircuitBreaker with a manual clock.
+ */
+public class McpxCircuitBreakerTest {
+    private static final String REGISTRY = "https://registry.example.com";
+    private static final long OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final AtomicLong now = new AtomicLong();
+    private final McpxCircuitBreaker breaker = new McpxCircuitBreaker(now::get, 3, OPEN_MILLIS);
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @Test
+    public void testOpensAfterConsecutiveFailuresAndFailsFast() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertFails(IOException.class);
+        }
+        assertEquals(McpxCircuitBreaker.State.OPEN, breaker.state(REGISTRY));
+        assertTrue(breaker.isOpen(REGISTRY));
+
+        assertFails(McpxCircuitBreaker.OpenException.class);
+        assertEquals("The open circuit does not fetch", 3, fetches.get());
+        assertFalse("Circuits are per registry", breaker.isOpen("https://other.example.com"));
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() throws Exception {
+        assertFails(IOException.class);
+        assertFails(IOException.class);
+        assertEquals("ok", breaker.call(REGISTRY, () -> "ok"));
+        assertFails(IOException.class);
+        assertFails(IOException.class);
+
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+    }
+
+    @Test
+    public void testSuccessfulProbeClosesCircuit() throws Exception {
+        open();
+        advance(OPEN_MILLIS);
+
+        assertEquals("ok", breaker.call(REGISTRY, () -> "ok"));
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+    }
+
+    @Test
+    public void testOnlyOneProbeAtATime() throws Exception {
+        open();
+        advance(OPEN_MILLIS);
+
+        String result = breaker.call(REGISTRY, () -> {
+            assertEquals(McpxCircuitBreaker.State.HALF_OPEN, breaker.state(REGISTRY));
+            assertFails(McpxCircuitBreaker.OpenException.class);
+            return "probe";
+        });
+
+        assertEquals("probe", result);
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+    }
+
+    @Test
+    public void testFailedProbeReopensForLonger() throws Exception {
+        open();
+        advance(OPEN_MILLIS);
+        assertFails(IOException.class);
+        assertEquals(McpxCircuitBreaker.State.OPEN, breaker.state(REGISTRY));
+
+        advance(OPEN_MILLIS);
+        assertFails(McpxCircuitBreaker.OpenException.class);
+        advance(OPEN_MILLIS);
+        assertEquals("ok", breaker.call(REGISTRY, () -> "ok"));
+    }
+
+    @Test
+    public void testCancelledProbeLetsNextCallerProbe() throws Exception {
+        open();
+        advance(OPEN_MILLIS);
+        try {
+            breaker.call(REGISTRY, () -> {
+                throw new InterruptedException();
+            });
+            fail("Interruption should propagate");
+        } catch (InterruptedException expected) {
+            // Not held against the registry
+        }
+
+        assertEquals("ok", breaker.call(REGISTRY, () -> "ok"));
+    }
+
+    @Test
+    public void testClientErrorsDoNotOpenCircuit() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            try {
+                breaker.call(REGISTRY, () -> {
+                    throw new McpxHttpRegistryClient.StatusException(URI.create(REGISTRY + "/v0/servers/unknown"), 404);
+                });
+                fail("Fetch failure should propagate");
+            } catch (McpxHttpRegistryClient.StatusException expected) {
+                assertEquals(404, expected.getStatus());
+            }
+        }
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                breaker.call(REGISTRY, () -> {
+                    throw new McpxHttpRegistryClient.StatusException(URI.create(REGISTRY + "/v0/servers"), 503);
+                });
+                fail("Fetch failure should propagate");
+            } catch (McpxHttpRegistryClient.StatusException expected) {
+                // Server errors count
+            }
+        }
+        assertEquals(McpxCircuitBreaker.State.OPEN, breaker.state(REGISTRY));
+    }
+
+    @Test
+    public void testCliClientErrorsDoNotOpenCircuit() throws Exception {
+        String[] answers = {
+                "Error: server io.example/unknown not found",
+                "Error: GET https://registry.example.com/v0/servers/x: 404 Not Found",
+                "Error: 401 Unauthorized",
+                "Error: forbidden: token has expired",
+        };
+        for (int i = 0; i < 5; i++) {
+            for (String stderr : answers) {
+                // Failover wraps the last node's failure
+                assertRethrown(() -> {
+                    throw new IOException("All 2 candidates failed", cliFailure(1, stderr));
+                });
+            }
+        }
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+
+        // An answer also closes the circuit after a probe, like a success
+        open();
+        advance(OPEN_MILLIS);
+        assertRethrown(() -> {
+            throw cliFailure(1, "Error: server io.example/unknown not found");
+        });
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+    }
+
+    @Test
+    public void testCliUnavailabilityCounts() throws Exception {
+        String[] failures = {
+                "Error: dial tcp 10.0.0.1:443: connect: connection refused",
+                "Error: Get \"https://registry.example.com/v0/servers\": context deadline exceeded",
+                "Error: registry returned 503 Service Unavailable",
+        };
+        for (String stderr : failures) {
+            assertRethrown(() -> {
+                throw cliFailure(1, stderr);
+            });
+        }
+        assertEquals(McpxCircuitBreaker.State.OPEN, breaker.state(REGISTRY));
+        assertEquals(McpxCircuitBreaker.Verdict.UNAVAILABLE, McpxCircuitBreaker.classify(
+                new IOException("All 2 candidates failed", new InterruptedIOException("mcpx-cli timed out"))));
+    }
+
+    @Test
+    public void testCliNodeFailuresAreNotCounted() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            // Killed, not runnable, or an error that says nothing about the registry
+            assertRethrown(() -> {
+                throw cliFailure(137, "");
+            });
+            assertRethrown(() -> {
+                throw cliFailure(127, "mcpx-cli: not found");
+            });
+            assertRethrown(() -> {
+                throw cliFailure(2, "panic: runtime error: index out of range");
+            });
+            assertRethrown(() -> {
+                throw new McpxProcessLimiter.NoSlotException("No process slot on the node");
+            });
+        }
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+
+        // Nor do they close an open circuit; the next caller probes instead
+        open();
+        advance(OPEN_MILLIS);
+        assertRethrown(() -> {
+            throw cliFailure(137, "");
+        });
+        assertEquals(McpxCircuitBreaker.State.HALF_OPEN, breaker.state(REGISTRY));
+        assertEquals("ok", breaker.call(REGISTRY, () -> "ok"));
+    }
+
+    @Test
+    public void testTimeoutsCount() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try {
+                breaker.call(REGISTRY, () -> {
+                    throw new InterruptedIOException("timed out");
+                });
+                fail("Timeout should propagate");
+            } catch (InterruptedIOException expected) {
+                // Counted as a failure since the thread was not interrupted
+            }
+        }
+        assertEquals(McpxCircuitBreaker.State.OPEN, breaker.state(REGISTRY));
+    }
+
+    @Test
+    public void testThrottledFetchesDoNotCount() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            try {
+                breaker.call(REGISTRY, () -> {
+                    throw new McpxRateLimiter.ThrottledException("rate limit reached");
+                });
+                fail("Throttling should propagate");
+            } catch (McpxRateLimiter.ThrottledException expected) {
+                // Never sent to the registry
+            }
+        }
+        assertEquals(McpxCircuitBreaker.State.CLOSED, breaker.state(REGISTRY));
+
+        open();
+        advance(OPEN_MILLIS);
+        try {
+            breaker.call(REGISTRY, () -> {
+                throw new McpxRateLimiter.ThrottledException("rate limit reached");
+            });
+            fail("Throttling should propagate");
+        } catch (McpxRateLimiter.ThrottledException expected) {
+            // The probe slot is released, not failed
+        }
+        assertEquals("ok", breaker.call(REGISTRY, () -> "ok"));
+    }
+
+    private void assertRethrown(McpxCircuitBreaker.Fetch<String> fetch) throws InterruptedException {
+        try {
+            breaker.call(REGISTRY, fetch);
+            fail("Fetch failure should propagate");
+        } catch (IOException expected) {
+            // Classified by the breaker, then rethrown
+        }
+    }
+
+    private static McpxProcessRunner.FailedException cliFailure(int exitCode, String stderr) {
+        return new McpxProcessRunner.FailedException("mcpx-cli failed with exit code " + exitCode + ": " + stderr, exitCode, stderr);
+    }
+
+    private void open() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertFails(IOException.class);
+        }
+        assertTrue(breaker.isOpen(REGISTRY));
+    }
+
+    private void assertFails(Class<? extends IOException> expected) throws InterruptedException {
+        try {
+            breaker.call(REGISTRY, () -> {
+                fetches.incrementAndGet();
+                throw new IOException("registry down");
+            });
+            fail("Expected " + expected.getSimpleName());
+        } catch (IOException e) {
+            assertTrue("Unexpected " + e, expected.isInstance(e));
+        }
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -1,12 +1,27 @@
 package io.modelcontextprotocol.jenkins;
 
+import org.junit.After;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
 public class McpxCliClientTest {
+    private static final List<String> LISTING = Arrays.asList("mcpx-cli", "--base-url=https://r", "servers", "--json");
+    private static final String UNKNOWN_FLAG = "Error: unknown flag: --limit";
+
+    private final List<List<String>> commands = new ArrayList<>();
+
+    @After
+    public void forgetPagingSupport() {
+        McpxCliClient.clearPagingSupport();
+    }
+
     @Test
     public void testVersionCommandConstruction() throws Exception {
         // Test that the client can be instantiated
@@ -20,4 +35,63 @@ public class McpxCliClientTest {
         // Should not throw, uses default "mcpx-cli"
         assertNotNull(client);
     }
+
+    @Test
+    public void testPagingFlagsAreSent() throws Exception {
+        assertEquals("page", McpxCliClient.listPage("mcpx-cli", LISTING, "c1", 50, respond(0, "page", "")));
+
+        assertEquals(List.of(concat(LISTING, "--limit", "50", "--cursor", "c1")), commands);
+    }
+
+    @Test
+    public void testOtherFailuresAreNotRetriedUnpaged() throws Exception {
+        try {
+            McpxCliClient.listPage("mcpx-cli", LISTING, null, 50, respond(1, "", "Error: 401 Unauthorized"));
+            fail("The failure should be reported");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("401"));
+        }
+        assertEquals("No full-catalog retry", 1, commands.size());
+    }
+
+    @Test
+    public void testUnknownPagingFlagsFallBackOnceAndAreRemembered() throws Exception {
+        McpxCliClient.Command cli = command -> {
+            commands.add(command);
+            return command.contains("--limit")
+                    ? new McpxProcessRunner.Result(2, "", UNKNOWN_FLAG)
+                    : new McpxProcessRunner.Result(0, "catalog", "");
+        };
+
+        assertEquals("catalog", McpxCliClient.listPage("mcpx-cli", LISTING, null, 50, cli));
+        assertEquals(List.of(concat(LISTING, "--limit", "50"), LISTING), commands);
+
+        commands.clear();
+        assertEquals("catalog", McpxCliClient.listPage("mcpx-cli", LISTING, null, 50, cli));
+        assertEquals("Paging is not tried again for the same CLI", List.of(LISTING), commands);
+    }
+
+    @Test
+    public void testContinuationKeepsItsCursor() throws Exception {
+        try {
+            McpxCliClient.listPage("mcpx-cli", LISTING, "c2", 50, respond(2, "", "Error: unknown flag: --cursor"));
+            fail("A continuation must not fall back to the whole catalog");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("unknown flag"));
+        }
+        assertEquals(List.of(concat(LISTING, "--limit", "50", "--cursor", "c2")), commands);
+    }
+
+    private McpxCliClient.Command respond(int exitCode, String stdout, String stderr) {
+        return command -> {
+            commands.add(command);
+            return new McpxProcessRunner.Result(exitCode, stdout, stderr);
+        };
+    }
+
+    private static List<String> concat(List<String> base, String... extra) {
+        List<String> all = new ArrayList<>(base);
+        all.addAll(Arrays.asList(extra));
+        return all;
+    }
 }
@@ -0,0 +1,90 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxConsistentHash.
+ */
+public class McpxConsistentHashTest {
+    private static final List<String> NODES = Arrays.asList("agent-1", "agent-2", "agent-3", "agent-4", "agent-5");
+
+    @Test
+    public void testRingIsBuiltOncePerMembership() {
+        Set<String> members = new HashSet<>(NODES);
+        List<String> reversed = new ArrayList<>(NODES);
+        Collections.reverse(reversed);
+
+        assertSame(McpxConsistentHash.ring(members), McpxConsistentHash.ring(new LinkedHashSet<>(reversed)));
+        assertEquals(NODES.size() * McpxConsistentHash.VIRTUAL_NODES, McpxConsistentHash.ring(members).size());
+
+        Set<String> shrunk = new HashSet<>(members);
+        shrunk.remove("agent-3");
+        assertNotSame(McpxConsistentHash.ring(members), McpxConsistentHash.ring(shrunk));
+        assertFalse(McpxConsistentHash.ring(shrunk).containsValue("agent-3"));
+    }
+
+    @Test
+    public void testSameKeyGoesToSameNode() {
+        List<String> first = McpxConsistentHash.order(NODES, Function.identity(), "https://registry.example.com\nio.github/server");
+        List<String> reversed = new ArrayList<>(NODES);
+        Collections.reverse(reversed);
+
+        assertEquals(first, McpxConsistentHash.order(NODES, Function.identity(), "https://registry.example.com\nio.github/server"));
+        assertEquals(first, McpxConsistentHash.order(reversed, Function.identity(), "https://registry.example.com\nio.github/server"));
+    }
+
+    @Test
+    public void testOrderContainsEveryNodeOnce() {
+        List<String> order = McpxConsistentHash.order(NODES, Function.identity(), "key");
+
+        assertEquals(NODES.size(), order.size());
+        assertEquals(new HashSet<>(NODES), new HashSet<>(order));
+    }
+
+    @Test
+    public void testRemovedNodeFallsBackToNextOnRing() {
+        for (int i = 0; i < 1000; i++) {
+            String key = "server-" + i;
+            List<String> order = McpxConsistentHash.order(NODES, Function.identity(), key);
+            List<String> remaining = new ArrayList<>(NODES);
+            remaining.remove(order.get(0));
+
+            // Keys of the removed node move to its fallback; all other keys stay put
+            assertEquals(order.subList(1, order.size()), McpxConsistentHash.order(remaining, Function.identity(), key));
+        }
+    }
+
+    @Test
+    public void testKeysSpreadEvenly() {
+        int keys = 10000;
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            counts.merge(McpxConsistentHash.order(NODES, Function.identity(), "server-" + i).get(0), 1, Integer::sum);
+        }
+
+        int expected = keys / NODES.size();
+        for (String node : NODES) {
+            int count = counts.getOrDefault(node, 0);
+            assertTrue(node + " owns " + count + " of " + keys + " keys", Math.abs(count - expected) < expected * 0.3);
+        }
+    }
+
+    @Test
+    public void testSingleOrNoNode() {
+        assertEquals(Arrays.asList("agent-1"), McpxConsistentHash.order(Arrays.asList("agent-1"), Function.identity(), "key"));
+        assertTrue(McpxConsistentHash.order(new ArrayList<String>(), Function.identity(), "key").isEmpty());
+    }
+}
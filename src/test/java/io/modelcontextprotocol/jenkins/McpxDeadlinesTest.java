@@ -0,0 +1,126 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxDeadlines.
+ */
+public class McpxDeadlinesTest {
+    private static final long CEILING = TimeUnit.SECONDS.toMillis(60);
+
+    private final McpxDeadlines deadlines = new McpxDeadlines(() -> CEILING);
+
+    @Test
+    public void testCeilingAppliesUntilEnoughSamples() {
+        for (int i = 1; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            deadlines.record("agent-1", "servers", 2_000);
+        }
+
+        assertEquals(CEILING, deadlines.timeoutMillis("agent-1", "servers"));
+        assertEquals(-1, deadlines.percentile("agent-1", "servers", 99));
+    }
+
+    @Test
+    public void testDeadlineFollowsObservedP99() {
+        for (int i = 0; i < 99; i++) {
+            deadlines.record("agent-1", "servers", 1_000);
+        }
+        deadlines.record("agent-1", "servers", 4_000);
+
+        assertEquals(4_000, deadlines.percentile("agent-1", "servers", 99));
+        assertEquals(12_000, deadlines.timeoutMillis("agent-1", "servers"));
+    }
+
+    @Test
+    public void testFloorAndCeiling() {
+        for (int i = 0; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            deadlines.record("agent-1", "version", 10);
+            deadlines.record("agent-1", "servers", 50_000);
+        }
+
+        assertEquals(McpxDeadlines.FLOOR_MILLIS, deadlines.timeoutMillis("agent-1", "version"));
+        assertEquals(CEILING, deadlines.timeoutMillis("agent-1", "servers"));
+    }
+
+    @Test
+    public void testNodesAndOperationsAreTrackedSeparately() {
+        for (int i = 0; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            deadlines.record("agent-1", "servers", 3_000);
+        }
+
+        assertEquals(9_000, deadlines.timeoutMillis("agent-1", "servers"));
+        assertEquals(CEILING, deadlines.timeoutMillis("agent-2", "servers"));
+        assertEquals(CEILING, deadlines.timeoutMillis("agent-1", "server"));
+    }
+
+    @Test
+    public void testTimeoutsRaiseTheDeadline() throws Exception {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        McpxDeadlines fast = new McpxDeadlines(() -> 1_000);
+        for (int i = 0; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            fast.record(McpxDeadlines.CONTROLLER, "servers", 10);
+        }
+        assertEquals(1_000, fast.timeoutMillis(McpxDeadlines.CONTROLLER, "servers"));
+
+        try {
+            fast.run("servers", Arrays.asList("sh", "-c", "sleep 30"));
+            fail("The call should time out");
+        } catch (InterruptedIOException expected) {
+            // killed at the deadline
+        }
+
+        // The timed out call is recorded at its deadline, so the p99 reflects the slow registry
+        assertEquals(1_000, fast.percentile(McpxDeadlines.CONTROLLER, "servers", 99));
+    }
+
+    @Test
+    public void testRunRecordsLatency() throws Exception {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        for (int i = 0; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            McpxProcessRunner.Result result = deadlines.run("version", Arrays.asList("sh", "-c", "echo 1.2.3"));
+            assertEquals("1.2.3", result.getStdout().trim());
+        }
+
+        assertTrue(deadlines.percentile(McpxDeadlines.CONTROLLER, "version", 50) >= 0);
+        assertEquals(McpxDeadlines.FLOOR_MILLIS, deadlines.timeoutMillis(McpxDeadlines.CONTROLLER, "version"));
+    }
+
+    @Test
+    public void testOnlyProcessRunTimeIsRecorded() throws Exception {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        for (int i = 0; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            deadlines.run("servers", deadline -> {
+                // An untimed process stands in for logging in first
+                McpxProcessRunner.runUntil(Arrays.asList("sh", "-c", "sleep 0.5"), deadline, false);
+                return McpxProcessRunner.runUntil(Arrays.asList("sh", "-c", "echo ok"), deadline);
+            });
+        }
+
+        assertTrue(deadlines.percentile(McpxDeadlines.CONTROLLER, "servers", 99) < 500);
+    }
+
+    @Test
+    public void testCallsWithoutProcessesOrSlotsAreNotRecorded() throws Exception {
+        for (int i = 0; i < McpxDeadlines.MIN_SAMPLES; i++) {
+            assertEquals("cached", deadlines.run("servers", deadline -> "cached"));
+            try {
+                deadlines.run("servers", deadline -> {
+                    throw new McpxProcessLimiter.NoSlotException("mcpx-cli servers was not started");
+                });
+                fail("The call should time out");
+            } catch (McpxProcessLimiter.NoSlotException expected) {
+                // the node was busy, which says nothing about the registry
+            }
+        }
+
+        assertEquals(-1, deadlines.percentile(McpxDeadlines.CONTROLLER, "servers", 99));
+        assertEquals(CEILING, deadlines.timeoutMillis(McpxDeadlines.CONTROLLER, "servers"));
+    }
+}
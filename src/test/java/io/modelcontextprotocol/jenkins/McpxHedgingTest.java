@@ -0,0 +1,215 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxHedging.
+ */
+public class McpxHedgingTest {
+
+    @Test
+    public void testFastPrimaryNeedsNoBackup() throws Exception {
+        AtomicInteger backups = new AtomicInteger();
+        List<McpxHedging.Candidate<String>> candidates = Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", () -> "primary"),
+                new McpxHedging.Candidate<>("agent-2", () -> {
+                    backups.incrementAndGet();
+                    return "backup";
+                }));
+
+        assertEquals("primary", McpxHedging.firstSuccess(candidates, c -> 1_000, 3));
+        assertEquals(0, backups.get());
+    }
+
+    @Test
+    public void testSlowPrimaryIsHedgedAndCancelled() throws Exception {
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+        List<McpxHedging.Candidate<String>> candidates = Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", () -> {
+                    try {
+                        Thread.sleep(30_000);
+                    } catch (InterruptedException e) {
+                        primaryCancelled.countDown();
+                        throw e;
+                    }
+                    return "primary";
+                }),
+                new McpxHedging.Candidate<>("agent-2", () -> "backup"));
+
+        long start = System.nanoTime();
+        assertEquals("backup", McpxHedging.firstSuccess(candidates, c -> 100, 3));
+
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+        assertTrue("The losing attempt should be cancelled", primaryCancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailureStartsNextCandidateImmediately() throws Exception {
+        List<McpxHedging.Candidate<String>> candidates = Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", () -> {
+                    throw new IOException("mcpx-cli not found");
+                }),
+                new McpxHedging.Candidate<>("controller", () -> "controller"));
+
+        long start = System.nanoTime();
+        assertEquals("controller", McpxHedging.firstSuccess(candidates, c -> 30_000, 3));
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+    }
+
+    @Test
+    public void testParallelismIsBounded() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicBoolean lastStarted = new AtomicBoolean();
+        List<McpxHedging.Candidate<String>> candidates = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String node = "agent-" + i;
+            candidates.add(new McpxHedging.Candidate<>(node, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    if (node.equals("agent-3")) {
+                        lastStarted.set(true);
+                        return node;
+                    }
+                    Thread.sleep(node.equals("agent-0") ? 300 : node.equals("agent-1") ? 600 : 30_000);
+                    throw new IOException(node + " is broken");
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        assertEquals("agent-3", McpxHedging.firstSuccess(candidates, c -> 10, 2));
+        assertTrue(lastStarted.get());
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testAllFailuresAreReported() {
+        List<McpxHedging.Candidate<String>> candidates = Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", () -> {
+                    throw new IOException("no mcpx-cli");
+                }),
+                new McpxHedging.Candidate<>("controller", () -> {
+                    throw new IOException("registry unreachable");
+                }));
+
+        try {
+            McpxHedging.firstSuccess(candidates, c -> 10, 3);
+            fail("Should fail when every candidate fails");
+        } catch (Exception expected) {
+            assertTrue(expected instanceof IOException);
+            assertTrue(expected.getMessage().contains("agent-1: no mcpx-cli"));
+            assertTrue(expected.getMessage().contains("controller: registry unreachable"));
+        }
+    }
+
+    @Test
+    public void testThrottledCandidateStopsFailover() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        List<McpxHedging.Candidate<String>> candidates = Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", () -> {
+                    started.incrementAndGet();
+                    throw new McpxRateLimiter.ThrottledException("servers on agent-1 was not sent");
+                }),
+                new McpxHedging.Candidate<>("agent-2", () -> {
+                    started.incrementAndGet();
+                    return "ok";
+                }));
+
+        // The next candidate would wait for the same tokens
+        for (int maxParallel : new int[] {1, 3}) {
+            started.set(0);
+            try {
+                McpxHedging.firstSuccess(candidates, c -> 10_000, maxParallel);
+                fail("Throttling should propagate");
+            } catch (McpxRateLimiter.ThrottledException expected) {
+                assertEquals(1, started.get());
+            }
+        }
+    }
+
+    @Test
+    public void testCandidatesRunWithCallerPriority() throws Exception {
+        List<McpxHedging.Candidate<McpxRateLimiter.Priority>> candidates = Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", McpxRateLimiter::currentPriority),
+                new McpxHedging.Candidate<>("controller", McpxRateLimiter::currentPriority));
+
+        assertEquals(McpxRateLimiter.Priority.BACKGROUND, McpxRateLimiter.withPriority(McpxRateLimiter.Priority.BACKGROUND,
+                () -> McpxHedging.firstSuccess(candidates, c -> 10_000, 3)).call());
+    }
+
+    @Test
+    public void testSingleCandidateRunsInline() throws Exception {
+        Thread caller = Thread.currentThread();
+        AtomicBoolean inline = new AtomicBoolean();
+        List<McpxHedging.Candidate<String>> candidates = Collections.singletonList(
+                new McpxHedging.Candidate<>("controller", () -> {
+                    inline.set(Thread.currentThread() == caller);
+                    return "ok";
+                }));
+
+        assertEquals("ok", McpxHedging.firstSuccess(candidates, c -> 10, 3));
+        assertTrue(inline.get());
+    }
+
+    @Test
+    public void testSameRegistryErrorEverywhereBacksOffNoNode() throws Exception {
+        McpxNodeHealth health = new McpxNodeHealth(System::nanoTime);
+        McpxProcessRunner.Result notFound = new McpxProcessRunner.Result(1, "", "Error: 404 Not Found: server io.example/missing");
+        List<String> command = Arrays.asList("mcpx-cli", "server", "io.example/missing", "--json");
+        List<McpxHedging.Candidate<String>> candidates = new ArrayList<>();
+        for (String node : Arrays.asList("agent-1", "agent-2", "controller")) {
+            candidates.add(new McpxHedging.Candidate<>(node, () -> {
+                throw new McpxProcessRunner.FailedException(command, notFound);
+            }));
+        }
+
+        try {
+            McpxHedging.firstSuccess("server", candidates, health);
+            fail("Should fail when every candidate fails");
+        } catch (IOException expected) {
+            // the registry answered the same way on every node
+        }
+
+        for (String node : Arrays.asList("agent-1", "agent-2", "controller")) {
+            assertFalse(node + " should stay in routing", health.isBackedOff(node, "server"));
+        }
+    }
+
+    @Test
+    public void testNodeFaultsAreBackedOffOnlyIfAnotherNodeAnswered() throws Exception {
+        McpxNodeHealth health = new McpxNodeHealth(System::nanoTime);
+        McpxHedging.Attempt<String> missingCli = () -> {
+            throw new IOException("Cannot run program \"mcpx-cli\": error=2, No such file or directory");
+        };
+
+        try {
+            McpxHedging.firstSuccess("servers", Arrays.asList(
+                    new McpxHedging.Candidate<>("agent-1", missingCli),
+                    new McpxHedging.Candidate<>("agent-2", missingCli)), health);
+            fail("Should fail when every candidate fails");
+        } catch (IOException expected) {
+            // a shared cause, e.g. the same broken tool installation everywhere
+        }
+        assertFalse(health.isBackedOff("agent-1", "servers"));
+
+        assertEquals("ok", McpxHedging.firstSuccess("servers", Arrays.asList(
+                new McpxHedging.Candidate<>("agent-1", missingCli),
+                new McpxHedging.Candidate<>("controller", () -> "ok")), health));
+        assertTrue(health.isBackedOff("agent-1", "servers"));
+        assertFalse(health.isBackedOff("controller", "servers"));
+    }
+}
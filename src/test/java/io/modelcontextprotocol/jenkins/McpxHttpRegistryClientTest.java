@@ -0,0 +1,173 @@
+package io.modelcontextprotocol.jenkins;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxHttpRegistryClient against a local stub registry.
+ */
+public class McpxHttpRegistryClientTest {
+    private static final String SERVERS_JSON = "{\"servers\":[{\"name\":\"io.example/a\"},{\"server\":{\"name\":\"io.example/b\"}}]}";
+    private static final String DETAILS_JSON = "{\"name\":\"io.example/a\",\"version\":\"1.0.0\",\"packages\":[]}";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final List<String> requestedPaths = new ArrayList<>();
+
+    @Before
+    public void startRegistry() throws IOException {
+        bodies.put("/v0/servers?limit=100", SERVERS_JSON);
+        bodies.put("/v0/servers/io.example%2Fa", DETAILS_JSON);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        McpxHttpRegistryClient.clearValidators();
+    }
+
+    @After
+    public void stopRegistry() {
+        server.stop(0);
+        McpxHttpRegistryClient.clearValidators();
+    }
+
+    @Test
+    public void testListServers() throws Exception {
+        List<String> names = new McpxHttpRegistryClient(baseUrl).listServers();
+
+        assertEquals(Arrays.asList("io.example/a", "io.example/b"), names);
+    }
+
+    @Test
+    public void testListServersFollowsPages() throws Exception {
+        bodies.put("/v0/servers?limit=100", "{\"servers\":[{\"name\":\"io.example/a\"}],\"metadata\":{\"nextCursor\":\"io.example/a:1\"}}");
+        bodies.put("/v0/servers?limit=100&cursor=io.example%2Fa%3A1", "{\"servers\":[{\"name\":\"io.example/b\"}],\"metadata\":{}}");
+
+        List<String> names = new McpxHttpRegistryClient(baseUrl).listServers();
+
+        assertEquals(Arrays.asList("io.example/a", "io.example/b"), names);
+    }
+
+    @Test
+    public void testListServersPage() throws Exception {
+        bodies.put("/v0/servers?limit=1", "{\"servers\":[{\"name\":\"io.example/a\"}],\"metadata\":{\"nextCursor\":\"c1\"}}");
+
+        McpxServerListParser.Result page = new McpxHttpRegistryClient(baseUrl).listServersPage(null, 1);
+
+        assertEquals(Collections.singletonList("io.example/a"), page.getNames());
+        assertEquals("c1", page.getNextCursor());
+    }
+
+    @Test
+    public void testServerDetailsUsesEncodedName() throws Exception {
+        String json = new McpxHttpRegistryClient(baseUrl).getServerDetails("io.example/a");
+
+        assertEquals(DETAILS_JSON, json);
+        synchronized (requestedPaths) {
+            assertEquals("/v0/servers/io.example%2Fa", requestedPaths.get(0));
+        }
+    }
+
+    @Test
+    public void testUnchangedResponseIsRevalidatedWithETag() throws Exception {
+        McpxHttpRegistryClient client = new McpxHttpRegistryClient(baseUrl);
+
+        String first = client.getServerDetails("io.example/a");
+        String second = client.getServerDetails("io.example/a");
+
+        assertEquals(first, second);
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModified.get());
+    }
+
+    @Test
+    public void testChangedResponseIsRefetched() throws Exception {
+        McpxHttpRegistryClient client = new McpxHttpRegistryClient(baseUrl);
+        client.getServerDetails("io.example/a");
+
+        String changed = "{\"name\":\"io.example/a\",\"version\":\"2.0.0\",\"packages\":[]}";
+        bodies.put("/v0/servers/io.example%2Fa", changed);
+
+        assertEquals(changed, client.getServerDetails("io.example/a"));
+        assertEquals(2, fullResponses.get());
+    }
+
+    @Test
+    public void testChangeQueriesAreNotRemembered() throws Exception {
+        McpxHttpRegistryClient client = new McpxHttpRegistryClient(baseUrl);
+        client.getServerDetails("io.example/a");
+        bodies.put("/v0/servers?updated_since=2025-01-01T00%3A00%3A00Z&limit=100", "{\"servers\":[],\"metadata\":{}}");
+
+        client.listServerChanges(java.time.Instant.parse("2025-01-01T00:00:00Z"), null, 100);
+        client.listServerChanges(java.time.Instant.parse("2025-01-01T00:00:00Z"), null, 100);
+
+        assertEquals("Only the details validator is kept", 1, McpxHttpRegistryClient.validatorCount());
+        assertEquals(0, notModified.get());
+    }
+
+    @Test
+    public void testHttpErrorIsReported() throws Exception {
+        try {
+            new McpxHttpRegistryClient(baseUrl).getServerDetails("io.example/missing");
+            fail("A 404 should fail the fetch");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("404"));
+        }
+    }
+
+    @Test
+    public void testServerNameIsPercentEncodedInPath() throws Exception {
+        bodies.put("/v0/servers/io.example%2Fmy%20server%2Bplus", DETAILS_JSON);
+
+        assertEquals(DETAILS_JSON, new McpxHttpRegistryClient(baseUrl).getServerDetails("io.example/my server+plus"));
+        assertEquals("io.example%2Fa%20b", McpxHttpRegistryClient.pathSegment("io.example/a b"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String path = exchange.getRequestURI().getRawPath() + (query != null ? "?" + query : "");
+        synchronized (requestedPaths) {
+            requestedPaths.add(path);
+        }
+        String body = bodies.get(path);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            fullResponses.incrementAndGet();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(200, bytes.length);
+            out.write(bytes);
+        }
+    }
+}
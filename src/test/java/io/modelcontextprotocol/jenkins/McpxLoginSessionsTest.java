@@ -0,0 +1,183 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxLoginSessions using a shell script in place of mcpx-cli whose session is a file.
+ */
+public class McpxLoginSessionsTest {
+    private static final String BASE_URL = "https://registry.example.com";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File cli;
+    private File session;
+    private File calls;
+
+    @Before
+    public void createCli() throws IOException {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        session = new File(tmp.getRoot(), "session");
+        calls = new File(tmp.getRoot(), "calls.log");
+        cli = new File(tmp.getRoot(), "mcpx-cli");
+        // "login" creates the session file; "servers" needs it; "login" with method "broken" fails
+        Files.write(cli.toPath(), ("#!/bin/sh\n"
+                + "echo \"$2\" >> '" + calls.getAbsolutePath() + "'\n"
+                + "case \"$2\" in\n"
+                + "  login) [ \"$4\" = broken ] && exit 1; touch '" + session.getAbsolutePath() + "' ;;\n"
+                + "  servers) [ -f '" + session.getAbsolutePath() + "' ] || { echo 'Error: 401 Unauthorized' >&2; exit 1; }; echo '{\"servers\":[]}' ;;\n"
+                + "esac\n").getBytes(StandardCharsets.UTF_8));
+        assertTrue(cli.setExecutable(true));
+    }
+
+    @Test
+    public void testLoginOnlyWithoutSession() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, run(sessions, "anonymous").getExitCode());
+        }
+
+        assertEquals(1, sessions.getLoginsPerformed());
+        assertEquals(2, sessions.getLoginsAvoided());
+        assertTrue(sessions.hasSession(cli.getAbsolutePath(), BASE_URL, "anonymous"));
+        assertEquals(Arrays.asList("login", "servers", "servers", "servers"), calls());
+    }
+
+    @Test
+    public void testReloginAfterAuthFailure() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000);
+        // The plugin thinks it has a session, but the CLI has lost it
+        sessions.loggedIn(cli.getAbsolutePath(), BASE_URL, "anonymous");
+
+        int before = McpxLoginSessions.registryCalls();
+        McpxProcessRunner.Result result = run(sessions, "anonymous");
+
+        assertEquals(0, result.getExitCode());
+        assertEquals(1, sessions.getLoginsPerformed());
+        assertEquals(1, sessions.getLoginsAfterAuthFailure());
+        assertEquals(Arrays.asList("servers", "login", "servers"), calls());
+        // Each process reached the registry, so each took a rate limit token
+        assertEquals(3, McpxLoginSessions.registryCalls() - before);
+    }
+
+    @Test
+    public void testSessionExpires() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(0);
+
+        run(sessions, "anonymous");
+        run(sessions, "anonymous");
+
+        assertEquals(2, sessions.getLoginsPerformed());
+        assertEquals(0, sessions.getLoginsAvoided());
+    }
+
+    @Test
+    public void testSessionDroppedAfterIdleTimeout() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000, 0);
+
+        run(sessions, "anonymous");
+        Thread.sleep(5);
+        run(sessions, "anonymous");
+
+        assertEquals(2, sessions.getLoginsPerformed());
+    }
+
+    @Test
+    public void testSessionDroppedAfterTimeout() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000);
+        run(sessions, "anonymous");
+
+        try {
+            sessions.run(cli.getAbsolutePath(), BASE_URL, Arrays.asList("sh", "-c", "sleep 30"), McpxProcessRunner.deadline(200));
+            fail("The command should time out");
+        } catch (InterruptedIOException expected) {
+            // killed at the deadline
+        }
+        run(sessions, "anonymous");
+
+        assertEquals(2, sessions.getLoginsPerformed());
+    }
+
+    @Test
+    public void testConcurrentCommandsShareOneLogin() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    run(sessions, "anonymous");
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(1, sessions.getLoginsPerformed());
+        assertEquals(7, sessions.getLoginsAvoided());
+        assertEquals(1, calls().stream().filter("login"::equals).count());
+    }
+
+    @Test
+    public void testSessionsAreKeyedByMethodAndRegistry() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000);
+        sessions.loggedIn(cli.getAbsolutePath(), BASE_URL, "anonymous");
+
+        assertFalse(sessions.hasSession(cli.getAbsolutePath(), BASE_URL, "github"));
+        assertFalse(sessions.hasSession(cli.getAbsolutePath(), "https://other.example.com", "anonymous"));
+
+        sessions.invalidate(cli.getAbsolutePath(), BASE_URL, "anonymous");
+        assertFalse(sessions.hasSession(cli.getAbsolutePath(), BASE_URL, "anonymous"));
+    }
+
+    @Test
+    public void testFailedLoginIsNotRemembered() throws Exception {
+        McpxLoginSessions sessions = new McpxLoginSessions(60_000);
+
+        McpxProcessRunner.Result result = run(sessions, "broken");
+
+        // The command still runs, and its auth failure is reported after one retry
+        assertEquals(1, result.getExitCode());
+        assertFalse(sessions.hasSession(cli.getAbsolutePath(), BASE_URL, "broken"));
+        assertEquals(2, sessions.getLoginsPerformed());
+        assertEquals(Arrays.asList("login", "servers", "login", "servers"), calls());
+    }
+
+    @Test
+    public void testAuthFailureDetection() {
+        assertTrue(McpxLoginSessions.isAuthFailure(new McpxProcessRunner.Result(1, "", "HTTP 401: Unauthorized")));
+        assertTrue(McpxLoginSessions.isAuthFailure(new McpxProcessRunner.Result(1, "Error: token expired", "")));
+        assertTrue(McpxLoginSessions.isAuthFailure(new McpxProcessRunner.Result(2, "", "not logged in; run mcpx-cli login")));
+        assertFalse(McpxLoginSessions.isAuthFailure(new McpxProcessRunner.Result(1, "", "server io.example/a not found")));
+        assertFalse(McpxLoginSessions.isAuthFailure(new McpxProcessRunner.Result(0, "{\"description\":\"401 Unauthorized handler\"}", "")));
+    }
+
+    private McpxProcessRunner.Result run(McpxLoginSessions sessions, String method) throws Exception {
+        List<String> command = new ArrayList<>(Arrays.asList(cli.getAbsolutePath(), "--base-url=" + BASE_URL, "servers", "--json"));
+        return sessions.run(cli.getAbsolutePath(), BASE_URL, method, command, McpxProcessRunner.deadline(10_000));
+    }
+
+    private List<String> calls() throws IOException {
+        return Files.readAllLines(calls.toPath(), StandardCharsets.UTF_8);
+    }
+}
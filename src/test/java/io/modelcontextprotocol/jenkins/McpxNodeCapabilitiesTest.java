@@ -0,0 +1,120 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxNodeCapabilities.
+ */
+public class McpxNodeCapabilitiesTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final McpxNodeCapabilities capabilities = new McpxNodeCapabilities();
+
+    @After
+    public void clear() {
+        capabilities.clear();
+    }
+
+    @Test
+    public void testUnprobedNodeIsUnknown() {
+        assertNull(capabilities.lookup("agent-1", "mcpx-cli"));
+        assertFalse(capabilities.isKnownUnavailable("agent-1", "mcpx-cli"));
+    }
+
+    @Test
+    public void testIndexIsKeyedByNodeAndCliPath() {
+        capabilities.record("agent-1", "mcpx-cli", new McpxNodeCapabilities.Capability(true, "1.2.3", null, "Linux", "amd64"));
+        capabilities.record("agent-1", "/opt/mcpx-cli", new McpxNodeCapabilities.Capability(false, null, "not found", "Linux", "amd64"));
+
+        assertEquals("1.2.3", capabilities.lookup("agent-1", "mcpx-cli").getVersion());
+        assertFalse(capabilities.isKnownUnavailable("agent-1", "mcpx-cli"));
+        assertTrue(capabilities.isKnownUnavailable("agent-1", "/opt/mcpx-cli"));
+        assertNull(capabilities.lookup("agent-2", "mcpx-cli"));
+    }
+
+    @Test
+    public void testUnavailableEntriesAreReprobedAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        McpxNodeCapabilities timed = new McpxNodeCapabilities(now::get);
+        timed.record("agent-1", "mcpx-cli", new McpxNodeCapabilities.Capability(true, "1.2.3", null, "Linux", "amd64"));
+        timed.record("agent-2", "mcpx-cli", new McpxNodeCapabilities.Capability(false, null, "not found", "Linux", "amd64"));
+
+        assertFalse(timed.claimReprobe("agent-2", "mcpx-cli"));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(McpxNodeCapabilities.UNAVAILABLE_TTL_MILLIS));
+        assertTrue(timed.claimReprobe("agent-2", "mcpx-cli"));
+        assertFalse("Only one caller re-probes", timed.claimReprobe("agent-2", "mcpx-cli"));
+        assertTrue("Still unavailable until the new probe answers", timed.isKnownUnavailable("agent-2", "mcpx-cli"));
+        assertFalse("Working nodes are not re-probed", timed.claimReprobe("agent-1", "mcpx-cli"));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(McpxNodeCapabilities.UNAVAILABLE_TTL_MILLIS));
+        assertTrue("A probe that never answered is retried", timed.claimReprobe("agent-2", "mcpx-cli"));
+    }
+
+    @Test
+    public void testForgetDropsOnlyThatNode() {
+        capabilities.record("agent-1", "mcpx-cli", new McpxNodeCapabilities.Capability(true, "1.2.3", null, "Linux", "amd64"));
+        capabilities.record("agent-10", "mcpx-cli", new McpxNodeCapabilities.Capability(true, "1.2.3", null, "Linux", "amd64"));
+
+        capabilities.forget("agent-1");
+
+        assertNull(capabilities.lookup("agent-1", "mcpx-cli"));
+        assertNotNull(capabilities.lookup("agent-10", "mcpx-cli"));
+    }
+
+    @Test
+    public void testCallableReportsVersionAndPlatform() throws Exception {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        File cli = script("echo 'mcpx-cli 0.4.1'\n");
+
+        McpxNodeCapabilities.Capability c = new McpxNodeCapabilities.CapabilityCallable(cli.getAbsolutePath(), 10_000).invoke(tmp.getRoot(), null);
+
+        assertTrue(c.isAvailable());
+        assertEquals("mcpx-cli 0.4.1", c.getVersion());
+        assertEquals(System.getProperty("os.name"), c.getOs());
+        assertEquals(System.getProperty("os.arch"), c.getArch());
+    }
+
+    @Test
+    public void testCallableReportsFailingCli() throws Exception {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        File cli = script("echo 'broken install' >&2\nexit 3\n");
+
+        McpxNodeCapabilities.Capability c = new McpxNodeCapabilities.CapabilityCallable(cli.getAbsolutePath(), 10_000).invoke(tmp.getRoot(), null);
+
+        assertFalse(c.isAvailable());
+        assertTrue(c.getError().contains("exit code 3"));
+        assertTrue(c.getError().contains("broken install"));
+    }
+
+    @Test
+    public void testCallableReportsMissingCli() throws Exception {
+        File missing = new File(tmp.getRoot(), "no-such-mcpx-cli");
+
+        McpxNodeCapabilities.Capability c = new McpxNodeCapabilities.CapabilityCallable(missing.getAbsolutePath(), 10_000).invoke(tmp.getRoot(), null);
+
+        assertFalse(c.isAvailable());
+        assertNotNull(c.getError());
+    }
+
+    private File script(String body) throws Exception {
+        File cli = new File(tmp.getRoot(), "mcpx-cli");
+        Files.write(cli.toPath(), ("#!/bin/sh\n" + body).getBytes(StandardCharsets.UTF_8));
+        assertTrue(cli.setExecutable(true));
+        return cli;
+    }
+}
@@ -0,0 +1,140 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxNodeHealth with a manual clock.
+ */
+public class McpxNodeHealthTest {
+    private final AtomicLong now = new AtomicLong();
+    private final McpxNodeHealth health = new McpxNodeHealth(now::get);
+
+    @Test
+    public void testFailureBacksOffUntilWindowEnds() {
+        health.failure("agent-1", "servers");
+
+        assertTrue(health.isBackedOff("agent-1", "servers"));
+        assertFalse("Backoff is per operation", health.isBackedOff("agent-1", "server"));
+
+        advance(McpxNodeHealth.BASE_BACKOFF_MILLIS);
+        assertFalse(health.isBackedOff("agent-1", "servers"));
+    }
+
+    @Test
+    public void testBackoffDoublesAndIsCapped() {
+        health.failure("agent-1", "servers");
+        health.failure("agent-1", "servers");
+
+        advance(McpxNodeHealth.BASE_BACKOFF_MILLIS);
+        assertTrue(health.isBackedOff("agent-1", "servers"));
+        advance(McpxNodeHealth.BASE_BACKOFF_MILLIS);
+        assertFalse(health.isBackedOff("agent-1", "servers"));
+
+        for (int i = 0; i < 30; i++) {
+            health.failure("agent-1", "servers");
+        }
+        advance(McpxNodeHealth.MAX_BACKOFF_MILLIS);
+        assertFalse(health.isBackedOff("agent-1", "servers"));
+    }
+
+    @Test
+    public void testSuccessEndsBackoff() {
+        health.failure("agent-1", "servers");
+        health.success("agent-1", "servers", 200);
+
+        assertFalse(health.isBackedOff("agent-1", "servers"));
+    }
+
+    @Test
+    public void testRankPrefersFastReliableNodesAndDropsBackedOff() {
+        health.success("slow", "servers", 4_000);
+        health.success("fast", "servers", 100);
+        health.failure("broken", "servers");
+
+        List<String> nodes = Arrays.asList("slow", "broken", "unknown", "fast");
+
+        assertEquals(Arrays.asList("fast", "unknown", "slow"), health.rank(nodes, Function.identity(), "servers", false));
+        assertEquals(Arrays.asList("fast", "unknown", "slow", "broken"), health.rank(nodes, Function.identity(), "servers", true));
+    }
+
+    @Test
+    public void testRankKeepsPriorityOrderForEqualScores() {
+        List<String> nodes = Arrays.asList("agent-3", "agent-1", "agent-2");
+
+        assertEquals(nodes, health.rank(nodes, Function.identity(), "servers", false));
+    }
+
+    @Test
+    public void testTrackRecordsOutcome() throws Exception {
+        assertEquals("ok", health.track("agent-1", "servers", () -> {
+            advance(250);
+            return "ok";
+        }));
+        try {
+            health.track("agent-2", "servers", () -> {
+                throw new IOException("Cannot run program \"mcpx-cli\": error=2, No such file or directory");
+            });
+            fail("Failures should propagate");
+        } catch (IOException expected) {
+            // recorded below
+        }
+
+        assertFalse(health.isBackedOff("agent-1", "servers"));
+        assertTrue(health.isBackedOff("agent-2", "servers"));
+        assertEquals(Collections.singletonList("agent-1"), health.rank(Arrays.asList("agent-2", "agent-1"), Function.identity(), "servers", false));
+    }
+
+    @Test
+    public void testAnsweredFailuresAreNotNodeFaults() throws Exception {
+        List<String> command = Arrays.asList("mcpx-cli", "servers", "--json");
+        try {
+            health.track("agent-1", "servers", () -> {
+                throw new McpxProcessRunner.FailedException(command, new McpxProcessRunner.Result(1, "", "401 Unauthorized"));
+            });
+            fail("Failures should propagate");
+        } catch (IOException expected) {
+            assertFalse(health.isBackedOff("agent-1", "servers"));
+        }
+
+        assertFalse(McpxNodeHealth.isNodeFault(new McpxHttpRegistryClient.StatusException(java.net.URI.create("https://r/v0/servers"), 503)));
+        assertTrue(McpxNodeHealth.isNodeFault(new McpxProcessRunner.FailedException(command, new McpxProcessRunner.Result(137, "", ""))));
+        assertTrue(McpxNodeHealth.isNodeFault(new McpxProcessRunner.FailedException(command, new McpxProcessRunner.Result(127, "", "mcpx-cli: not found"))));
+        assertTrue(McpxNodeHealth.isNodeFault(new IOException("No root path on agent-1")));
+    }
+
+    @Test
+    public void testTimeoutCountsButCancellationDoesNot() throws Exception {
+        try {
+            health.track("agent-1", "servers", () -> {
+                throw new InterruptedIOException("did not finish within 5000 ms");
+            });
+            fail("Timeouts should propagate");
+        } catch (InterruptedIOException expected) {
+            assertTrue(health.isBackedOff("agent-1", "servers"));
+        }
+
+        try {
+            health.track("agent-2", "servers", () -> {
+                throw new InterruptedException();
+            });
+            fail("Cancellation should propagate");
+        } catch (InterruptedException expected) {
+            assertFalse(health.isBackedOff("agent-2", "servers"));
+        }
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -385,4 +385,26 @@ public class McpxPackageParameterExtractorTest {
             // If mcpx-cli is not available, this test will fail - that's expected
         }
     }
+
+    @Test
+    public void testDefaultValuesFromServerDetailsModel() {
+        McpxServerDetails.Package pkg = new McpxServerDetails.Package("docker",
+            java.util.Arrays.asList(
+                new McpxServerDetails.Argument("named", "-p", "port_mapping", "8004:8000", "", false),
+                new McpxServerDetails.Argument("named", "--port", "", "8005", "", false),
+                new McpxServerDetails.Argument("positional", "", "", "ignored", "", false)),
+            java.util.Arrays.asList(
+                new McpxServerDetails.Argument("", "GERRIT_BASE_URL", "", "https://gerrit", "", false),
+                new McpxServerDetails.Argument("", "MCP_LOG_LEVEL", "", "", "", false)));
+        McpxServerDetails details = new McpxServerDetails("io.example/server", "1.0.0", java.util.Collections.singletonList(pkg));
+
+        Map<String, String> defaults = McpxPackageParameterExtractor.getDefaultValues(details);
+
+        assertEquals("docker", defaults.get("MCPX_REGISTRY_TYPE"));
+        assertEquals("8004:8000", defaults.get("MCPX_PORT_MAPPING"));
+        assertEquals("8005", defaults.get("MCPX_PORT"));
+        assertEquals("https://gerrit", defaults.get("MCPX_GERRIT_BASE_URL"));
+        assertFalse("Parameters without defaults should not be in the map", defaults.containsKey("MCP_LOG_LEVEL"));
+        assertEquals(4, defaults.size());
+    }
 }
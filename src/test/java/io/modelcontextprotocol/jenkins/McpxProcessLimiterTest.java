@@ -0,0 +1,115 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxProcessLimiter.
+ */
+public class McpxProcessLimiterTest {
+    private static final long LONG_DEADLINE = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void testSlotsAreLimited() throws Exception {
+        McpxProcessLimiter limiter = new McpxProcessLimiter(2, System::nanoTime);
+
+        McpxProcessLimiter.Permit a = limiter.acquire(deadline(LONG_DEADLINE), "a");
+        McpxProcessLimiter.Permit b = limiter.acquire(deadline(LONG_DEADLINE), "b");
+        assertEquals(2, limiter.getRunning());
+        try {
+            limiter.acquire(deadline(TimeUnit.MILLISECONDS.toNanos(50)), "c");
+            fail("The third caller should time out while both slots are held");
+        } catch (InterruptedIOException expected) {
+            assertEquals(1, limiter.getTimedOutCount());
+        }
+
+        a.close();
+        a.close();
+        assertEquals("Closing twice releases once", 1, limiter.getRunning());
+        limiter.acquire(deadline(LONG_DEADLINE), "c").close();
+        b.close();
+        assertEquals(0, limiter.getRunning());
+        assertEquals(3, limiter.getAcquiredCount());
+    }
+
+    @Test
+    public void testWaitersAreServedInArrivalOrder() throws Exception {
+        McpxProcessLimiter limiter = new McpxProcessLimiter(1, System::nanoTime);
+        McpxProcessLimiter.Permit held = limiter.acquire(deadline(LONG_DEADLINE), "held");
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<?>> waiters = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                int id = i;
+                waiters.add(executor.submit(() -> {
+                    try (McpxProcessLimiter.Permit ignored = limiter.acquire(deadline(LONG_DEADLINE), "waiter " + id)) {
+                        order.add(id);
+                    }
+                    return null;
+                }));
+                // Queue them one after the other
+                while (limiter.getQueued() < i + 1) {
+                    Thread.sleep(5);
+                }
+            }
+            held.close();
+            for (Future<?> waiter : waiters) {
+                waiter.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+        assertEquals(5, limiter.getWaitedCount());
+        assertTrue(limiter.getMaxWaitMillis() >= 0);
+    }
+
+    @Test
+    public void testLimitCanBeRaisedAndLowered() throws Exception {
+        McpxProcessLimiter limiter = new McpxProcessLimiter(1, System::nanoTime);
+        McpxProcessLimiter.Permit a = limiter.acquire(deadline(LONG_DEADLINE), "a");
+
+        limiter.setLimit(3);
+        McpxProcessLimiter.Permit b = limiter.acquire(deadline(LONG_DEADLINE), "b");
+        McpxProcessLimiter.Permit c = limiter.acquire(deadline(LONG_DEADLINE), "c");
+        assertEquals(3, limiter.getRunning());
+
+        // Running processes keep their slots; new ones wait until enough have finished
+        limiter.setLimit(1);
+        a.close();
+        b.close();
+        try {
+            limiter.acquire(deadline(TimeUnit.MILLISECONDS.toNanos(50)), "d");
+            fail("One process is still running under a limit of one");
+        } catch (InterruptedIOException expected) {
+            // Still at the limit
+        }
+        c.close();
+        limiter.acquire(deadline(LONG_DEADLINE), "d").close();
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testDescribeReportsUsage() throws Exception {
+        McpxProcessLimiter limiter = new McpxProcessLimiter(2, System::nanoTime);
+        try (McpxProcessLimiter.Permit ignored = limiter.acquire(deadline(LONG_DEADLINE), "a")) {
+            assertEquals("cli processes 1/2 running, 0 queued; 0 of 1 waited (avg 0 ms, max 0 ms), 0 timed out", limiter.describe());
+        }
+    }
+
+    private static long deadline(long nanos) {
+        return System.nanoTime() + nanos;
+    }
+}
@@ -0,0 +1,181 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxProcessRunner using small shell scripts in place of mcpx-cli.
+ */
+public class McpxProcessRunnerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void requirePosixShell() {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+    }
+
+    @Test
+    public void testCapturesStdoutAndStderr() throws Exception {
+        File cli = script("echo '{\"servers\":[]}'\necho 'registry unreachable' >&2\nexit 3\n");
+
+        McpxProcessRunner.Result result = McpxProcessRunner.run(Arrays.asList(cli.getAbsolutePath(), "servers", "--json"), 10_000);
+
+        assertEquals(3, result.getExitCode());
+        assertEquals("{\"servers\":[]}", result.getStdout().trim());
+        assertEquals("registry unreachable", result.getStderr().trim());
+        assertEquals("mcpx-cli servers failed with exit code 3: registry unreachable",
+                McpxProcessRunner.failure(Arrays.asList(cli.getAbsolutePath(), "--base-url=x", "servers", "--json"), result));
+    }
+
+    @Test
+    public void testStdinIsClosed() throws Exception {
+        // A CLI prompting for input sees end of file instead of waiting forever
+        File cli = script("read answer || echo 'no input'\n");
+
+        McpxProcessRunner.Result result = McpxProcessRunner.run(Collections.singletonList(cli.getAbsolutePath()), 10_000);
+
+        assertEquals("no input", result.getStdout().trim());
+    }
+
+    @Test
+    public void testDeadlineKillsProcessTree() throws Exception {
+        File pidFile = new File(tmp.getRoot(), "child.pid");
+        File cli = script("sleep 30 &\necho $! > '" + pidFile.getAbsolutePath() + "'\nsleep 30\n");
+
+        long start = System.nanoTime();
+        try {
+            McpxProcessRunner.run(Collections.singletonList(cli.getAbsolutePath()), 500);
+            fail("The process should have been killed at its deadline");
+        } catch (InterruptedIOException expected) {
+            assertTrue(expected.getMessage().contains("did not finish within 500 ms"));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+
+        long childPid = Long.parseLong(new String(Files.readAllBytes(pidFile.toPath()), StandardCharsets.UTF_8).trim());
+        Optional<ProcessHandle> child = ProcessHandle.of(childPid);
+        if (child.isPresent()) {
+            child.get().onExit().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testInterruptKillsProcess() throws Exception {
+        File cli = script("sleep 30\n");
+        Thread caller = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ignored) {
+            }
+            caller.interrupt();
+        });
+        interrupter.start();
+
+        long start = System.nanoTime();
+        try {
+            McpxProcessRunner.run(Collections.singletonList(cli.getAbsolutePath()), 30_000);
+            fail("Interrupting the caller should stop the process");
+        } catch (InterruptedException expected) {
+            // the remoting call was cancelled
+        } finally {
+            interrupter.join();
+            Thread.interrupted();
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+    }
+
+    @Test
+    public void testExpiredDeadlineDoesNotStartProcess() throws Exception {
+        File marker = new File(tmp.getRoot(), "started");
+        File cli = script("touch '" + marker.getAbsolutePath() + "'\n");
+
+        try {
+            McpxProcessRunner.runUntil(Collections.singletonList(cli.getAbsolutePath()), McpxProcessRunner.deadline(-1));
+            fail("An expired deadline should fail without running the command");
+        } catch (InterruptedIOException expected) {
+            assertFalse(marker.exists());
+        }
+    }
+
+    @Test
+    public void testBurstIsLimitedPerNode() throws Exception {
+        File running = new File(tmp.getRoot(), "running");
+        // Each process records the number of processes running alongside it
+        File cli = script("d='" + running.getAbsolutePath() + "'; mkdir -p \"$d\"; touch \"$d/$$\"\n"
+                + "ls \"$d\" | wc -l\nsleep 0.2\nrm \"$d/$$\"\n");
+        McpxProcessLimiter limiter = McpxProcessLimiter.get();
+        int previous = limiter.getLimit();
+        long waitedBefore = limiter.getWaitedCount();
+        limiter.setLimit(2);
+        ExecutorService burst = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<McpxProcessRunner.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(burst.submit(() -> McpxProcessRunner.run(Collections.singletonList(cli.getAbsolutePath()), 30_000)));
+            }
+            int peak = 0;
+            for (Future<McpxProcessRunner.Result> result : results) {
+                peak = Math.max(peak, Integer.parseInt(result.get(30, TimeUnit.SECONDS).getStdout().trim()));
+            }
+            assertTrue("At most 2 processes at once, saw " + peak, peak <= 2);
+            assertTrue(limiter.getWaitedCount() - waitedBefore >= 8);
+        } finally {
+            burst.shutdownNow();
+            limiter.setLimit(previous);
+        }
+    }
+
+    @Test
+    public void testQueueWaitCountsAgainstTimeout() throws Exception {
+        File cli = script("sleep 1\n");
+        McpxProcessLimiter limiter = McpxProcessLimiter.get();
+        int previous = limiter.getLimit();
+        limiter.setLimit(1);
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        try {
+            Future<McpxProcessRunner.Result> first = holder.submit(() -> McpxProcessRunner.run(Collections.singletonList(cli.getAbsolutePath()), 10_000));
+            while (limiter.getRunning() == 0) {
+                Thread.sleep(10);
+            }
+            try {
+                McpxProcessRunner.run(Collections.singletonList(cli.getAbsolutePath()), 200);
+                fail("No slot frees up within the timeout");
+            } catch (InterruptedIOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("was not started"));
+            }
+            assertEquals(0, first.get(10, TimeUnit.SECONDS).getExitCode());
+        } finally {
+            holder.shutdownNow();
+            limiter.setLimit(previous);
+        }
+    }
+
+    private File script(String body) throws IOException {
+        File cli = new File(tmp.getRoot(), "mcpx-cli");
+        Files.write(cli.toPath(), ("#!/bin/sh\n" + body).getBytes(StandardCharsets.UTF_8));
+        assertTrue(cli.setExecutable(true));
+        return cli;
+    }
+}
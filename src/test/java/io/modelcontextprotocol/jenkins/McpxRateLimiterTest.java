@@ -0,0 +1,187 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxRateLimiter.
+ */
+public class McpxRateLimiterTest {
+    private static final long LONG_DEADLINE = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void testUnlimitedByDefault() throws Exception {
+        McpxRateLimiter limiter = new McpxRateLimiter(0, 10);
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(McpxRateLimiter.Priority.BACKGROUND, 5, deadline(0), "request " + i);
+        }
+        assertEquals(0, limiter.getWaitedCount());
+        assertEquals("registry rate unlimited", limiter.describe());
+    }
+
+    @Test
+    public void testBurstThenThrottled() throws Exception {
+        // 60 per minute with a 5 second burst: 5 at once, then one per second
+        McpxRateLimiter limiter = new McpxRateLimiter(60, 5);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, deadline(0), "burst " + i);
+        }
+        try {
+            limiter.acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, deadline(TimeUnit.MILLISECONDS.toNanos(50)), "over");
+            fail("The request after the burst should wait longer than its deadline");
+        } catch (McpxRateLimiter.ThrottledException expected) {
+            assertTrue(expected.getMessage().startsWith("over was not sent"));
+        }
+        assertEquals(1, limiter.getThrottledCount());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void testWaitsForRefill() throws Exception {
+        // 1200 per minute, one token every 50 ms
+        McpxRateLimiter limiter = new McpxRateLimiter(1200, 1);
+        drain(limiter);
+
+        long start = System.nanoTime();
+        limiter.acquire(McpxRateLimiter.Priority.BUILD, 1, deadline(LONG_DEADLINE), "after refill");
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Waited " + waitedMillis + " ms", waitedMillis >= 20);
+        assertEquals(1, limiter.getWaitedCount());
+    }
+
+    @Test
+    public void testWaitersAreServedByPriority() throws Exception {
+        // 600 per minute, one token every 100 ms, no burst
+        McpxRateLimiter limiter = new McpxRateLimiter(600, 0);
+        drain(limiter);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> waiters = new ArrayList<>();
+            // Queued lowest priority first
+            String[] names = {"background", "build", "interactive 1", "interactive 2"};
+            McpxRateLimiter.Priority[] priorities = {McpxRateLimiter.Priority.BACKGROUND, McpxRateLimiter.Priority.BUILD,
+                    McpxRateLimiter.Priority.INTERACTIVE, McpxRateLimiter.Priority.INTERACTIVE};
+            synchronized (limiter) {
+                // Holding the monitor keeps every waiter from being served until all are queued
+                for (int i = 0; i < names.length; i++) {
+                    String name = names[i];
+                    McpxRateLimiter.Priority priority = priorities[i];
+                    waiters.add(executor.submit((Callable<Void>) () -> {
+                        limiter.acquire(priority, 1, deadline(LONG_DEADLINE), name);
+                        order.add(name);
+                        return null;
+                    }));
+                    while (limiter.getQueued() < i + 1) {
+                        limiter.wait(5);
+                    }
+                }
+            }
+            for (Future<?> waiter : waiters) {
+                waiter.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of("interactive 1", "interactive 2", "build", "background"), order);
+    }
+
+    @Test
+    public void testBackgroundLeavesHeadroom() throws Exception {
+        // 4 tokens; background work leaves one of them
+        McpxRateLimiter limiter = new McpxRateLimiter(60, 4);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(McpxRateLimiter.Priority.BACKGROUND, 1, deadline(0), "background " + i);
+        }
+        try {
+            limiter.acquire(McpxRateLimiter.Priority.BACKGROUND, 1, deadline(TimeUnit.MILLISECONDS.toNanos(50)), "background 3");
+            fail("Background work should not take the last token");
+        } catch (McpxRateLimiter.ThrottledException expected) {
+            // Left for interactive requests
+        }
+        limiter.acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, deadline(0), "interactive");
+    }
+
+    @Test
+    public void testLargeBatchTakesTokensOnCredit() throws Exception {
+        McpxRateLimiter limiter = new McpxRateLimiter(60, 2);
+        limiter.acquire(McpxRateLimiter.Priority.BUILD, 10, deadline(0), "batch");
+        assertTrue(limiter.getAvailable() < -7);
+        try {
+            limiter.acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, deadline(TimeUnit.MILLISECONDS.toNanos(50)), "next");
+            fail("The next request should wait until the batch is paid off");
+        } catch (McpxRateLimiter.ThrottledException expected) {
+            // Pays for the batch
+        }
+    }
+
+    @Test
+    public void testAgentCallsAreSettled() throws Exception {
+        McpxRateLimiter limiter = new McpxRateLimiter(60, 10);
+        // A batch of 3 operations sent to an agent, answered from its cache except for one
+        limiter.acquire(McpxRateLimiter.Priority.BUILD, 3, deadline(0), "details on agent-1");
+        limiter.settle(3, 1);
+        assertEquals(9, limiter.getAvailable(), 0.5);
+
+        // A login and a retry the controller could not foresee are paid without waiting
+        limiter.acquire(McpxRateLimiter.Priority.BUILD, 2, deadline(0), "servers on agent-1");
+        limiter.settle(2, 12);
+        assertTrue(limiter.getAvailable() < -2);
+
+        // Nothing is given back beyond a full bucket
+        McpxRateLimiter full = new McpxRateLimiter(60, 10);
+        full.settle(5, 0);
+        assertEquals(10, full.getAvailable(), 0.5);
+    }
+
+    @Test
+    public void testDisablingReleasesWaiters() throws Exception {
+        McpxRateLimiter limiter = new McpxRateLimiter(1, 1);
+        drain(limiter);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> waiter = executor.submit((Callable<Void>) () -> {
+                limiter.acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, deadline(LONG_DEADLINE), "waiter");
+                return null;
+            });
+            while (limiter.getQueued() < 1) {
+                Thread.sleep(5);
+            }
+            limiter.setRequestsPerMinute(0);
+            waiter.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void testPriorityFollowsWrappedWork() throws Exception {
+        assertEquals(McpxRateLimiter.Priority.INTERACTIVE, McpxRateLimiter.currentPriority());
+        assertEquals(McpxRateLimiter.Priority.BACKGROUND,
+                McpxRateLimiter.withPriority(McpxRateLimiter.Priority.BACKGROUND, McpxRateLimiter::currentPriority).call());
+        assertEquals(McpxRateLimiter.Priority.INTERACTIVE, McpxRateLimiter.currentPriority());
+    }
+
+    private static void drain(McpxRateLimiter limiter) throws Exception {
+        while (limiter.getAvailable() >= 1) {
+            limiter.acquire(McpxRateLimiter.Priority.INTERACTIVE, 1, deadline(0), "drain");
+        }
+    }
+
+    private static long deadline(long inNanos) {
+        return System.nanoTime() + inNanos;
+    }
+}
@@ -124,4 +124,26 @@ public class McpxRegistryClientTest {
         assertNotNull(result);
         assertTrue("Should return empty JSONObject", result.isEmpty());
     }
+
+    @Test
+    public void testServerDetailsParseProjectsPackages() throws Exception {
+        String json = "[{\"server\": {\"name\": \"io.example/a\", \"version\": \"1.0.0\", \"description\": \"dropped\","
+                + " \"packages\": [{\"registryType\": \"oci\", \"environmentVariables\": [{\"name\": \"TOKEN\", \"isRequired\": true}]}]}}]";
+        McpxServerDetails details = McpxServerDetails.parse(json);
+        assertEquals("io.example/a", details.getName());
+        assertEquals("oci", details.getPrimaryPackage().getRegistryType());
+        assertTrue(details.getPrimaryPackage().getEnvironmentVariables().get(0).isRequired());
+    }
+
+    @Test
+    public void testServerDetailsParseRejectsEmptyOutput() {
+        for (String json : new String[] {null, "", "{}", "[]"}) {
+            try {
+                McpxServerDetails.parse(json);
+                fail("Should reject: " + json);
+            } catch (java.io.IOException expected) {
+                assertTrue(expected.getMessage().contains("server details"));
+            }
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package io.modelcontextprotocol.jenkins;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxRegistrySync against a local stub registry.
+ */
+public class McpxRegistrySyncTest {
+    private static final Logger LOGGER = Logger.getLogger(McpxRegistrySyncTest.class.getName());
+
+    private static final int CATALOG_SIZE = 20000;
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private HttpServer server;
+    private String baseUrl;
+    private volatile String fullListing;
+    private volatile String changes = "{\"servers\":[],\"metadata\":{}}";
+    private final AtomicLong listingBytes = new AtomicLong();
+    private final AtomicLong changeBytes = new AtomicLong();
+    private final List<String> requested = Collections.synchronizedList(new ArrayList<>());
+
+    private McpxServerListCache lists;
+    private McpxServerDetailsCache details;
+
+    @Before
+    public void startRegistry() throws IOException {
+        StringBuilder sb = new StringBuilder("{\"servers\":[");
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            sb.append(i > 0 ? "," : "").append("{\"server\":{\"name\":\"io.example/server-").append(i)
+                    .append("\",\"description\":\"Example server number ").append(i)
+                    .append("\",\"version\":\"1.0.0\",\"packages\":[{\"registryType\":\"npm\",\"identifier\":\"@example/server-").append(i)
+                    .append("\"}]},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"active\",\"isLatest\":true}}}");
+        }
+        fullListing = sb.append("],\"metadata\":{}}").toString();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        McpxHttpRegistryClient.clearValidators();
+
+        lists = new McpxServerListCache(System::currentTimeMillis, () -> TTL);
+        details = new McpxServerDetailsCache(System::currentTimeMillis, () -> TTL, 8L * 1024 * 1024);
+    }
+
+    @After
+    public void stopRegistry() {
+        server.stop(0);
+        McpxHttpRegistryClient.clearValidators();
+    }
+
+    @Test
+    public void testSyncAppliesOnlyChanges() throws Exception {
+        McpxHttpRegistryClient http = new McpxHttpRegistryClient(baseUrl);
+        loadCatalog(http);
+        details.get(baseUrl, "io.example/server-1", () -> new McpxServerDetails("io.example/server-1", "1.0.0", Collections.emptyList()));
+        details.get(baseUrl, "io.example/server-2", () -> new McpxServerDetails("io.example/server-2", "1.0.0", Collections.emptyList()));
+        changes = "{\"servers\":["
+                + "{\"server\":{\"name\":\"io.example/server-1\",\"version\":\"1.1.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"active\",\"isLatest\":true}}},"
+                + "{\"server\":{\"name\":\"io.example/server-2\",\"version\":\"1.0.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"deprecated\",\"isLatest\":true}}},"
+                + "{\"server\":{\"name\":\"io.example/server-3\",\"version\":\"1.0.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"deleted\",\"isLatest\":true}}},"
+                + "{\"server\":{\"name\":\"io.example/new\",\"version\":\"0.1.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"active\",\"isLatest\":true}}}"
+                + "],\"metadata\":{}}";
+
+        int changed = new McpxRegistrySync().sync(baseUrl, http, lists, details);
+
+        assertEquals(4, changed);
+        List<String> names = lists.get(baseUrl, McpxRegistryClient.HTTP_SOURCE, (McpxServerListCache.Loader) () -> {
+            throw new AssertionError("The synced listing should be served from the cache");
+        });
+        assertEquals(CATALOG_SIZE, names.size());
+        assertTrue(names.contains("io.example/new"));
+        assertFalse(names.contains("io.example/server-3"));
+        // Only the server whose version changed has its details fetched again
+        assertTrue(requested.contains("/v0/servers/io.example%2Fserver-1"));
+        assertFalse(requested.contains("/v0/servers/io.example%2Fserver-2"));
+        assertEquals("1.0.0", details.getIfPresent(baseUrl, "io.example/server-2").getVersion());
+    }
+
+    @Test
+    public void testSteadyStateSyncMovesKilobytes() throws Exception {
+        McpxHttpRegistryClient http = new McpxHttpRegistryClient(baseUrl);
+        loadCatalog(http);
+        McpxRegistrySync sync = new McpxRegistrySync();
+        changes = "{\"servers\":[{\"server\":{\"name\":\"io.example/server-7\",\"version\":\"1.0.1\"}}],\"metadata\":{}}";
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, sync.sync(baseUrl, http, lists, details));
+        }
+
+        LOGGER.info("Full listing of " + CATALOG_SIZE + " servers: " + listingBytes.get() + " bytes; 3 syncs: " + changeBytes.get() + " bytes");
+        assertTrue(listingBytes.get() > 1024 * 1024);
+        assertTrue(changeBytes.get() < 1024);
+    }
+
+    @Test
+    public void testNothingToSyncWithoutCompleteListing() throws Exception {
+        assertEquals(-1, new McpxRegistrySync().sync(baseUrl, new McpxHttpRegistryClient(baseUrl), lists, details));
+        assertTrue(requested.isEmpty());
+    }
+
+    private void loadCatalog(McpxHttpRegistryClient http) throws Exception {
+        lists.get(baseUrl, McpxRegistryClient.HTTP_SOURCE, (McpxServerListCache.PageLoader) cursor -> http.listServersPage(cursor, 0));
+        assertEquals(CATALOG_SIZE, lists.get(baseUrl, McpxRegistryClient.HTTP_SOURCE, (McpxServerListCache.Loader) Collections::emptyList).size());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String path = exchange.getRequestURI().getRawPath();
+        requested.add(path + (query != null ? "?" + query : ""));
+        String body;
+        if ("/v0/servers".equals(path) && query != null && query.startsWith("updated_since=")) {
+            body = changes;
+        } else if ("/v0/servers".equals(path)) {
+            body = fullListing;
+        } else if (path.startsWith("/v0/servers/")) {
+            String name = URLDecoder.decode(path.substring("/v0/servers/".length()), StandardCharsets.UTF_8);
+            body = "{\"name\":\"" + name + "\",\"version\":\"1.1.0\",\"packages\":[]}";
+        } else {
+            body = null;
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            (body == fullListing ? listingBytes : changeBytes).addAndGet(bytes.length);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxRemoteBatch using a shell script in place of mcpx-cli that records each invocation.
+ */
+public class McpxRemoteBatchTest {
+    private static final Logger LOGGER = Logger.getLogger(McpxRemoteBatchTest.class.getName());
+
+    private static final String BASE_URL = "https://registry.example.com";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File cli;
+    private File calls;
+    private File catalog;
+
+    @Before
+    public void createCli() throws IOException {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        calls = new File(tmp.getRoot(), "calls.log");
+        catalog = new File(tmp.getRoot(), "catalog.json");
+        Files.write(catalog.toPath(), "{\"servers\":[{\"name\":\"io.example/a\"}]}".getBytes(StandardCharsets.UTF_8));
+        cli = new File(tmp.getRoot(), "mcpx-cli");
+        // Each server lookup takes a moment, like a registry round trip; "broken" fails
+        Files.write(cli.toPath(), ("#!/bin/sh\n"
+                + "echo \"$2\" >> '" + calls.getAbsolutePath() + "'\n"
+                + "case \"$2\" in\n"
+                + "  server) sleep 0.3; [ \"$3\" = broken ] && exit 1; echo '{\"name\":\"'\"$3\"'\"}' ;;\n"
+                + "  servers) cat '" + catalog.getAbsolutePath() + "' ;;\n"
+                + "esac\n").getBytes(StandardCharsets.UTF_8));
+        assertTrue(cli.setExecutable(true));
+    }
+
+    @Test
+    public void testOutcomesFollowOperationOrder() throws Exception {
+        List<McpxRemoteBatch.Outcome> outcomes = execute(4,
+                McpxRemoteBatch.Operation.login(),
+                McpxRemoteBatch.Operation.list(null, 0),
+                McpxRemoteBatch.Operation.details("io.example/a"),
+                McpxRemoteBatch.Operation.details("io.example/b"));
+
+        assertEquals(4, outcomes.size());
+        assertTrue(outcomes.get(0).isSuccess());
+        assertTrue(outcomes.get(1).get().contains("io.example/a"));
+        assertEquals("{\"name\":\"io.example/a\"}", outcomes.get(2).get().trim());
+        assertEquals("{\"name\":\"io.example/b\"}", outcomes.get(3).get().trim());
+    }
+
+    @Test
+    public void testInvalidationIsAppliedByTheNodeClock() {
+        McpxRemoteBatch.Operation op = McpxRemoteBatch.Operation.details("io.example/a").invalidatedAgo(1500);
+
+        // The node counts back from when it received the operation, whatever the controller's time
+        assertEquals(8_500, op.notBefore(10_000));
+        assertEquals(98_500, op.notBefore(100_000));
+        assertEquals(0, McpxRemoteBatch.Operation.details("io.example/a").notBefore(10_000));
+    }
+
+    @Test
+    public void testLoginRunsOnceBeforeOtherOperations() throws Exception {
+        execute(4,
+                McpxRemoteBatch.Operation.details("io.example/a"),
+                McpxRemoteBatch.Operation.login(),
+                McpxRemoteBatch.Operation.details("io.example/b"),
+                McpxRemoteBatch.Operation.details("io.example/c"));
+
+        List<String> lines = calls();
+        assertEquals("login", lines.get(0));
+        assertEquals(1, lines.stream().filter("login"::equals).count());
+        assertEquals(3, lines.stream().filter("server"::equals).count());
+    }
+
+    @Test
+    public void testFailingServerDoesNotFailTheBatch() throws Exception {
+        List<McpxRemoteBatch.Outcome> outcomes = execute(4,
+                McpxRemoteBatch.Operation.details("broken"),
+                McpxRemoteBatch.Operation.details("io.example/a"));
+
+        assertFalse(outcomes.get(0).isSuccess());
+        assertTrue(outcomes.get(0).getError().contains("exit code 1"));
+        assertTrue(outcomes.get(1).isSuccess());
+        try {
+            outcomes.get(0).get();
+            fail("A failed operation should throw");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("exit code 1"));
+        }
+    }
+
+    @Test
+    public void testDetailsRunInParallelUpToTheLimit() throws Exception {
+        McpxRemoteBatch.Operation[] ops = new McpxRemoteBatch.Operation[4];
+        for (int i = 0; i < ops.length; i++) {
+            ops[i] = McpxRemoteBatch.Operation.details("io.example/s" + i);
+        }
+
+        long start = System.nanoTime();
+        execute(4, ops);
+        long parallelMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        execute(1, ops);
+        long sequentialMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Four 300 ms lookups: about 300 ms together, about 1200 ms one by one
+        assertTrue("parallel batch took " + parallelMillis + " ms", parallelMillis < 900);
+        assertTrue("sequential batch took " + sequentialMillis + " ms", sequentialMillis >= 1200);
+    }
+
+    @Test
+    public void testExpiredDeadlineFailsOperationsAsTimeouts() throws Exception {
+        List<McpxRemoteBatch.Outcome> outcomes = McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL,
+                Arrays.asList(McpxRemoteBatch.Operation.details("io.example/a"), McpxRemoteBatch.Operation.details("io.example/b")),
+                System.nanoTime() - 1, options(4, McpxRemoteBatch.COMPRESS_THRESHOLD_BYTES), null);
+
+        for (McpxRemoteBatch.Outcome outcome : outcomes) {
+            try {
+                outcome.get();
+                fail("An expired deadline should fail the operation");
+            } catch (java.io.InterruptedIOException expected) {
+                // the operation was never started
+            }
+        }
+    }
+
+    @Test
+    public void testCallableRunsBatchInOneCall() throws Exception {
+        List<McpxRemoteBatch.Outcome> outcomes = new McpxRemoteBatch.Callable(cli.getAbsolutePath(), BASE_URL,
+                Arrays.asList(McpxRemoteBatch.Operation.login(), McpxRemoteBatch.Operation.details("io.example/a")), 10_000, options(4, 1024))
+                .invoke(tmp.getRoot(), null);
+
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.get(1).get().contains("io.example/a"));
+    }
+
+    @Test
+    public void testAgentCacheServesRepeatedRequests() throws Exception {
+        McpxAgentCache cache = McpxAgentCache.forRoot(tmp.newFolder("agent-root"), TimeUnit.MINUTES.toMillis(5));
+        List<McpxRemoteBatch.Operation> ops = Arrays.asList(McpxRemoteBatch.Operation.listNames(null, 0),
+                McpxRemoteBatch.Operation.details("io.example/a"));
+        McpxRemoteBatch.Options cached = new McpxRemoteBatch.Options(4, 1024, TimeUnit.MINUTES.toMillis(5), false);
+        McpxRemoteBatch.Options refresh = new McpxRemoteBatch.Options(4, 1024, TimeUnit.MINUTES.toMillis(5), true);
+
+        List<McpxRemoteBatch.Outcome> first = McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL, ops, McpxProcessRunner.deadline(10_000), cached, cache);
+        List<McpxRemoteBatch.Outcome> second = McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL, ops, McpxProcessRunner.deadline(10_000), cached, cache);
+
+        // Reported to the controller, which settles the rate limit tokens it took for the batch
+        assertEquals(calls().size(), registryCalls(first));
+        assertEquals(0, registryCalls(second));
+        assertEquals(Arrays.asList("io.example/a"), second.get(0).getPage().getNames());
+        assertTrue(second.get(1).get().contains("io.example/a"));
+        assertEquals(1, calls().stream().filter("servers"::equals).count());
+        assertEquals(1, calls().stream().filter("server"::equals).count());
+
+        McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL, ops, McpxProcessRunner.deadline(10_000), refresh, cache);
+
+        assertEquals(2, calls().stream().filter("servers"::equals).count());
+        assertEquals(2, calls().stream().filter("server"::equals).count());
+    }
+
+    @Test
+    public void testListingIsProjectedToNames() throws Exception {
+        Files.write(catalog.toPath(), ("{\"servers\":[{\"server\":{\"name\":\"io.example/a\",\"description\":\"A\"}},"
+                + "{\"name\":\"io.example/b\",\"packages\":[]}],\"metadata\":{\"nextCursor\":\"io.example/b:1\"}}").getBytes(StandardCharsets.UTF_8));
+
+        McpxServerListParser.Result page = execute(4, McpxRemoteBatch.Operation.listNames(null, 2)).get(0).getPage();
+
+        assertEquals(Arrays.asList("io.example/a", "io.example/b"), page.getNames());
+        assertEquals("io.example/b:1", page.getNextCursor());
+    }
+
+    @Test
+    public void testEmptyLastPageProjection() throws Exception {
+        Files.write(catalog.toPath(), "{\"servers\":[]}".getBytes(StandardCharsets.UTF_8));
+
+        McpxServerListParser.Result page = execute(4, McpxRemoteBatch.Operation.listNames(null, 0)).get(0).getPage();
+
+        assertTrue(page.getNames().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testUnrecognizedListingFailsProjection() throws Exception {
+        Files.write(catalog.toPath(), "{\"error\":\"unauthorized\"}".getBytes(StandardCharsets.UTF_8));
+
+        McpxRemoteBatch.Outcome outcome = execute(4, McpxRemoteBatch.Operation.listNames(null, 0)).get(0);
+
+        assertFalse(outcome.isSuccess());
+        assertTrue(outcome.getError().contains("unrecognized"));
+    }
+
+    @Test
+    public void testLargeOutputIsCompressed() throws Exception {
+        writeCatalog(2_000);
+
+        McpxRemoteBatch.Outcome compressed = McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL,
+                Arrays.asList(McpxRemoteBatch.Operation.list(null, 0)), McpxProcessRunner.deadline(10_000), options(4, 1024), null).get(0);
+        McpxRemoteBatch.Outcome plain = McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL,
+                Arrays.asList(McpxRemoteBatch.Operation.list(null, 0)), McpxProcessRunner.deadline(10_000), options(4, -1), null).get(0);
+
+        assertEquals(plain.get(), compressed.get());
+        assertEquals(catalog.length(), plain.getPayloadBytes());
+        assertTrue(compressed.getPayloadBytes() < plain.getPayloadBytes() / 5);
+    }
+
+    @Test
+    public void testTransferOnLargeCatalog() throws Exception {
+        int count = 20_000;
+        writeCatalog(count);
+        Transfer rawPlain = transfer(false, -1);
+        Transfer rawGzip = transfer(false, McpxRemoteBatch.COMPRESS_THRESHOLD_BYTES);
+        Transfer namesPlain = transfer(true, -1);
+        Transfer namesGzip = transfer(true, McpxRemoteBatch.COMPRESS_THRESHOLD_BYTES);
+
+        assertEquals(count, rawGzip.names);
+        assertEquals(count, namesGzip.names);
+        assertTrue(namesPlain.bytes < rawPlain.bytes / 5);
+        assertTrue(namesGzip.bytes < namesPlain.bytes);
+        assertTrue(rawGzip.bytes < rawPlain.bytes);
+        LOGGER.info(String.format("Listing of %d servers over the channel: raw %d bytes (%.1f ms), raw gzip %d bytes (%.1f ms), "
+                        + "names %d bytes (%.1f ms), names gzip %d bytes (%.1f ms)", count,
+                rawPlain.bytes, rawPlain.millis, rawGzip.bytes, rawGzip.millis,
+                namesPlain.bytes, namesPlain.millis, namesGzip.bytes, namesGzip.millis));
+    }
+
+    /**
+     * Lists the catalog through the callable and a serialization round trip, as remoting would,
+     * then decodes the names as the controller does.
+     */
+    private Transfer transfer(boolean projected, int compressThreshold) throws Exception {
+        McpxRemoteBatch.Operation op = projected ? McpxRemoteBatch.Operation.listNames(null, 0) : McpxRemoteBatch.Operation.list(null, 0);
+        McpxRemoteBatch.Callable callable = new McpxRemoteBatch.Callable(cli.getAbsolutePath(), BASE_URL,
+                Arrays.asList(op), 10_000, options(4, compressThreshold));
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(callable.invoke(tmp.getRoot(), null));
+        }
+        List<?> received;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            received = (List<?>) in.readObject();
+        }
+        McpxRemoteBatch.Outcome outcome = (McpxRemoteBatch.Outcome) received.get(0);
+        int names = projected ? outcome.getPage().getNames().size()
+                : McpxServerListParser.parseNames(new StringReader(outcome.get())).size();
+        return new Transfer(bytes.size(), (System.nanoTime() - start) / 1e6, names);
+    }
+
+    private static final class Transfer {
+        final int bytes;
+        final double millis;
+        final int names;
+
+        Transfer(int bytes, double millis, int names) {
+            this.bytes = bytes;
+            this.millis = millis;
+            this.names = names;
+        }
+    }
+
+    private void writeCatalog(int count) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"servers\":[");
+        for (int i = 0; i < count; i++) {
+            sb.append(i > 0 ? "," : "").append("{\"server\":{\"name\":\"io.example/server-").append(i)
+                    .append("\",\"description\":\"A generated server with a reasonably long description\",")
+                    .append("\"packages\":[{\"registryType\":\"oci\",\"identifier\":\"example/server-").append(i)
+                    .append("\",\"runtimeArguments\":[]}]},\"_meta\":{\"status\":\"active\"}}");
+        }
+        sb.append("],\"metadata\":{\"count\":").append(count).append("}}");
+        Files.write(catalog.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<McpxRemoteBatch.Outcome> execute(int maxParallel, McpxRemoteBatch.Operation... operations) throws InterruptedException {
+        return McpxRemoteBatch.execute(cli.getAbsolutePath(), BASE_URL, Arrays.asList(operations),
+                McpxProcessRunner.deadline(10_000), options(maxParallel, McpxRemoteBatch.COMPRESS_THRESHOLD_BYTES), null);
+    }
+
+    private static int registryCalls(List<McpxRemoteBatch.Outcome> outcomes) {
+        return outcomes.stream().mapToInt(McpxRemoteBatch.Outcome::getRegistryCalls).sum();
+    }
+
+    private static McpxRemoteBatch.Options options(int maxParallel, int compressThreshold) {
+        // Without a cache TTL the callable keeps no agent cache
+        return new McpxRemoteBatch.Options(maxParallel, compressThreshold, 0, false);
+    }
+
+    private List<String> calls() throws IOException {
+        return calls.exists() ? Files.readAllLines(calls.toPath(), StandardCharsets.UTF_8) : new ArrayList<>();
+    }
+}
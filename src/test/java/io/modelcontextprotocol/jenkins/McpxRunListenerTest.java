@@ -111,4 +111,32 @@ public class McpxRunListenerTest {
         // Should not throw exception
         listener.onInitialize(null);
     }
+
+    @Test
+    public void testSelectedServerPrefersJobProperty() {
+        Job<?, ?> job = Mockito.mock(Job.class);
+        ParametersAction paramsAction = Mockito.mock(ParametersAction.class);
+        when(job.getProperty(McpxJobProperty.class)).thenReturn(new McpxJobProperty(null, null, "property-server"));
+        when(paramsAction.getParameters()).thenReturn(java.util.Collections.singletonList(new StringParameterValue("MCP_SERVER", "param-server")));
+
+        assertEquals("property-server", McpxRunListener.selectedServer(job, paramsAction));
+    }
+
+    @Test
+    public void testSelectedServerFromQueuedParameters() {
+        Job<?, ?> job = Mockito.mock(Job.class);
+        ParametersAction paramsAction = Mockito.mock(ParametersAction.class);
+        when(job.getProperty(McpxJobProperty.class)).thenReturn(null);
+        when(paramsAction.getParameters()).thenReturn(java.util.Collections.singletonList(new StringParameterValue("MCP_SERVER", "param-server")));
+
+        assertEquals("param-server", McpxRunListener.selectedServer(job, paramsAction));
+    }
+
+    @Test
+    public void testNoSelectedServer() {
+        Job<?, ?> job = Mockito.mock(Job.class);
+        when(job.getProperty(McpxJobProperty.class)).thenReturn(new McpxJobProperty(null, null, " "));
+
+        assertNull(McpxRunListener.selectedServer(job, null));
+    }
 }
@@ -6,6 +6,13 @@ import hudson.model.Run;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -281,4 +288,158 @@ public class McpxSelectedServerEnvActionTest {
         // Job-level should override global
         assertEquals("/job/path/mcpx-cli", env.get("MCPX_CLI_PATH"));
     }
+
+    @Test
+    public void testDefaultsAreResolvedOnceInBackground() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Callable<Map<String, String>> loader = () -> {
+            loads.incrementAndGet();
+            Thread.sleep(300);
+            return Collections.singletonMap("MCPX_PORT", "8080");
+        };
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+
+        // Build start only schedules the lookup
+        long started = System.nanoTime();
+        action.start(loader);
+        action.start(loader);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("8080", action.defaults(loader, 5000).get("MCPX_PORT"));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testSlowDefaultsDelayTheBuildOnlyOnce() {
+        Callable<Map<String, String>> loader = () -> {
+            Thread.sleep(5000);
+            return Collections.singletonMap("MCPX_PORT", "8080");
+        };
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+
+        long started = System.nanoTime();
+        assertTrue(action.defaults(loader, 200).isEmpty());
+        long first = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        started = System.nanoTime();
+        assertTrue(action.defaults(loader, 200).isEmpty());
+        long second = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue("first lookup waited " + first + " ms", first >= 150 && first < 2000);
+        assertTrue("second lookup waited " + second + " ms", second < 100);
+    }
+
+    @Test
+    public void testNoDefaultsWithoutServer() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction(" ");
+
+        assertTrue(action.defaults(() -> {
+            loads.incrementAndGet();
+            return Collections.emptyMap();
+        }, 1000).isEmpty());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void testEnvironmentIsResolvedOnceAndKept() {
+        Run<?, ?> run = Mockito.mock(Run.class);
+        Job<?, ?> job = Mockito.mock(Job.class);
+        when(run.getParent()).thenReturn((Job) job);
+        McpxJobProperty jobProperty = Mockito.mock(McpxJobProperty.class);
+        when(jobProperty.getCliPath()).thenReturn("/first/mcpx-cli");
+        when(job.getProperty(McpxJobProperty.class)).thenReturn(jobProperty);
+
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+        EnvVars first = new EnvVars();
+        action.buildEnvironment(run, first);
+
+        // Later configuration changes do not affect a run that already has its environment
+        when(jobProperty.getCliPath()).thenReturn("/second/mcpx-cli");
+        EnvVars second = new EnvVars();
+        action.buildEnvironment(run, second);
+
+        assertEquals("/first/mcpx-cli", first.get("MCPX_CLI_PATH"));
+        assertEquals("/first/mcpx-cli", second.get("MCPX_CLI_PATH"));
+        assertEquals("test-server", second.get("MCP_SERVER"));
+    }
+
+    @Test
+    public void testResolveIncludesPackageDefaultsWhileBuilding() {
+        Job<?, ?> job = Mockito.mock(Job.class);
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+
+        Map<String, String> resolved = action.resolve(job, true, () -> Collections.singletonMap("MCPX_PORT", "8080"));
+
+        assertEquals("8080", resolved.get("MCPX_PORT"));
+        assertEquals("test-server", resolved.get("MCP_SERVER"));
+        assertEquals("mcpx-cli", resolved.get("MCPX_CLI_PATH"));
+    }
+
+    @Test
+    public void testFinishedBuildDoesNotFetchDefaults() {
+        AtomicInteger loads = new AtomicInteger();
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+
+        Map<String, String> resolved = action.resolve(null, false, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("MCPX_PORT", "8080");
+        });
+
+        assertEquals(0, loads.get());
+        assertNull(resolved.get("MCPX_PORT"));
+        assertEquals("test-server", resolved.get("MCP_SERVER"));
+    }
+
+    @Test
+    public void testEnvironmentIsNotKeptWhileDefaultsArePending() throws Exception {
+        Run<?, ?> run = Mockito.mock(Run.class);
+        Job<?, ?> job = Mockito.mock(Job.class);
+        when(run.getParent()).thenReturn((Job) job);
+        when(run.isBuilding()).thenReturn(true);
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<Map<String, String>> loader = () -> {
+            release.await();
+            return Collections.singletonMap("MCPX_PORT", "8080");
+        };
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+        action.start(loader);
+        // The build start already waited its share for the defaults
+        assertTrue(action.defaults(loader, 50).isEmpty());
+
+        assertNull(action.snapshot(run).get("MCPX_PORT"));
+        assertNull("Nothing is kept or saved without the defaults", action.environment());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (action.snapshot(run).get("MCPX_PORT") == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("8080", action.snapshot(run).get("MCPX_PORT"));
+        assertEquals("8080", action.environment().get("MCPX_PORT"));
+    }
+
+    @Test
+    public void testOnlyTheEnvironmentIsSavedWithTheBuild() throws Exception {
+        Run<?, ?> run = Mockito.mock(Run.class);
+        Job<?, ?> job = Mockito.mock(Job.class);
+        when(run.getParent()).thenReturn((Job) job);
+        when(run.isBuilding()).thenReturn(true);
+        McpxSelectedServerEnvAction action = new McpxSelectedServerEnvAction("test-server");
+        action.start(() -> Collections.singletonMap("MCPX_PORT", "8080"));
+        Map<String, String> snapshot = action.snapshot(run);
+
+        String xml = Run.XSTREAM.toXML(action);
+        assertTrue(xml, xml.contains("<environment"));
+        assertTrue(xml, xml.contains("MCPX_PORT"));
+        assertFalse(xml, xml.contains("defaults"));
+        assertFalse(xml, xml.contains("awaiting"));
+
+        // A loaded build serves the saved environment without resolving anything
+        McpxSelectedServerEnvAction loaded = (McpxSelectedServerEnvAction) Run.XSTREAM.fromXML(xml);
+        Run<?, ?> finished = Mockito.mock(Run.class);
+        when(finished.getParent()).thenReturn((Job) job);
+        assertEquals(snapshot, loaded.snapshot(finished));
+    }
 }
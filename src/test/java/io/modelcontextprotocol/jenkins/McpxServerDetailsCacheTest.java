@@ -0,0 +1,124 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxServerDetailsCache.
+ */
+public class McpxServerDetailsCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @Test
+    public void testRepeatedLookupsLoadOnce() throws Exception {
+        McpxServerDetailsCache cache = new McpxServerDetailsCache(now::get, () -> 60_000L, 1024 * 1024);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 500; i++) {
+            McpxServerDetails details = cache.get("https://r", "io.example/server", () -> {
+                loads.incrementAndGet();
+                return details("io.example/server", "8000:8000");
+            });
+            assertEquals("io.example/server", details.getName());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(499, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() throws Exception {
+        McpxServerDetailsCache cache = new McpxServerDetailsCache(now::get, () -> 60_000L, 1024 * 1024);
+        cache.get("https://r", "s", () -> details("s", "old"));
+        now.addAndGet(60_000L);
+
+        McpxServerDetails reloaded = cache.get("https://r", "s", () -> details("s", "new"));
+
+        assertEquals("new", reloaded.getPrimaryPackage().getRuntimeArguments().get(0).getDefaultValue());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWhenOverWeight() throws Exception {
+        long oneEntry = details("a", "x").estimatedWeight();
+        McpxServerDetailsCache cache = new McpxServerDetailsCache(now::get, () -> 60_000L, oneEntry * 2 + 1);
+
+        cache.get("https://r", "a", () -> details("a", "x"));
+        cache.get("https://r", "b", () -> details("b", "x"));
+        // Touch "a" so "b" becomes the least recently used entry
+        assertNotNull(cache.getIfPresent("https://r", "a"));
+        cache.get("https://r", "c", () -> details("c", "x"));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.getWeight() <= oneEntry * 2 + 1);
+        assertNotNull(cache.getIfPresent("https://r", "a"));
+        assertNull(cache.getIfPresent("https://r", "b"));
+        assertNotNull(cache.getIfPresent("https://r", "c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testInvalidateServerAndRegistry() throws Exception {
+        McpxServerDetailsCache cache = new McpxServerDetailsCache(now::get, () -> 60_000L, 1024 * 1024);
+        cache.get("https://r1", "a", () -> details("a", "x"));
+        cache.get("https://r1", "b", () -> details("b", "x"));
+        cache.get("https://r2", "a", () -> details("a", "x"));
+
+        cache.invalidate("https://r1", "a");
+        assertNull(cache.getIfPresent("https://r1", "a"));
+        assertNotNull(cache.getIfPresent("https://r1", "b"));
+
+        cache.invalidate("https://r1");
+        assertNull(cache.getIfPresent("https://r1", "b"));
+        assertNotNull(cache.getIfPresent("https://r2", "a"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        McpxServerDetailsCache cache = new McpxServerDetailsCache(now::get, () -> 60_000L, 1024 * 1024);
+        try {
+            cache.get("https://r", "s", () -> {
+                throw new IOException("registry down");
+            });
+            fail("Loader failure should propagate");
+        } catch (IOException expected) {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testExpiredEntryIsServedWhenReloadFails() throws Exception {
+        McpxServerDetailsCache cache = new McpxServerDetailsCache(now::get, () -> 60_000L, 1024 * 1024);
+        cache.get("https://r", "s", () -> details("s", "old"));
+        now.addAndGet(60_000L);
+
+        assertNull(cache.getIfPresent("https://r", "s"));
+        McpxServerDetails stale = cache.get("https://r", "s", () -> {
+            throw new McpxCircuitBreaker.OpenException("https://r", 30_000L);
+        });
+
+        assertEquals("old", stale.getPrimaryPackage().getRuntimeArguments().get(0).getDefaultValue());
+        assertEquals(1, cache.getStaleHitCount());
+        // A successful reload replaces the stale entry
+        cache.get("https://r", "s", () -> details("s", "new"));
+        assertEquals("new", cache.getIfPresent("https://r", "s").getPrimaryPackage().getRuntimeArguments().get(0).getDefaultValue());
+    }
+
+    private static McpxServerDetails details(String name, String port) {
+        McpxServerDetails.Argument arg = new McpxServerDetails.Argument("named", "-p", "port_mapping", port, "", false);
+        McpxServerDetails.Package pkg = new McpxServerDetails.Package("docker",
+                Collections.singletonList(arg), Collections.emptyList());
+        return new McpxServerDetails(name, "1.0.0", Collections.singletonList(pkg));
+    }
+}
@@ -0,0 +1,268 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.util.ListBoxModel;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxServerListCache.
+ */
+public class McpxServerListCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @Test
+    public void testFreshEntryIsServedFromMemory() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<String> first = cache.get("https://r", "mcpx-cli", () -> {
+            loads.incrementAndGet();
+            return Arrays.asList("a/one", "b/two");
+        });
+        now.addAndGet(30_000L);
+        List<String> second = cache.get("https://r", "mcpx-cli", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList("unexpected");
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(Arrays.asList("a/one", "b/two"), first);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testKeysAreSeparatedByBaseUrlAndCliPath() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+
+        cache.get("https://r1", "mcpx-cli", () -> Collections.singletonList("r1/server"));
+        List<String> other = cache.get("https://r1", "/opt/mcpx-cli", () -> Collections.singletonList("r1/other-cli"));
+        List<String> r2 = cache.get("https://r2", "mcpx-cli", () -> Collections.singletonList("r2/server"));
+
+        assertEquals(Collections.singletonList("r1/other-cli"), other);
+        assertEquals(Collections.singletonList("r2/server"), r2);
+    }
+
+    @Test
+    public void testStaleEntryIsServedWhileRefreshingInBackground() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("old/server"));
+        now.addAndGet(61_000L);
+
+        CountDownLatch refreshed = new CountDownLatch(1);
+        List<String> stale = cache.get("https://r", "mcpx-cli", () -> {
+            refreshed.countDown();
+            return Collections.singletonList("new/server");
+        });
+
+        assertEquals(Collections.singletonList("old/server"), stale);
+        assertTrue("Background refresh should run", refreshed.await(5, TimeUnit.SECONDS));
+        List<String> fresh = waitFor(cache, Collections.singletonList("new/server"));
+        assertEquals(Collections.singletonList("new/server"), fresh);
+    }
+
+    @Test
+    public void testExplicitRefreshBypassesFreshEntry() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("old/server"));
+
+        List<String> refreshed = cache.refresh("https://r", "mcpx-cli", () -> Collections.singletonList("new/server"));
+        List<String> cached = cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("unexpected"));
+
+        assertEquals(Collections.singletonList("new/server"), refreshed);
+        assertEquals(Collections.singletonList("new/server"), cached);
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        try {
+            cache.get("https://r", "mcpx-cli", () -> {
+                throw new IOException("registry down");
+            });
+            fail("Loader failure should propagate");
+        } catch (IOException expected) {
+            assertEquals("registry down", expected.getMessage());
+        }
+
+        List<String> names = cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("a/b"));
+        assertEquals(Collections.singletonList("a/b"), names);
+    }
+
+    @Test
+    public void testZeroTtlDisablesCaching() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 0L);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("a/" + loads.incrementAndGet()));
+        List<String> second = cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("a/" + loads.incrementAndGet()));
+
+        assertEquals(2, loads.get());
+        assertEquals(Collections.singletonList("a/2"), second);
+    }
+
+    @Test
+    public void testInvalidateDropsRegistryEntries() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("old/server"));
+
+        cache.invalidate("https://r");
+        List<String> names = cache.get("https://r", "mcpx-cli", () -> Collections.singletonList("new/server"));
+
+        assertEquals(Collections.singletonList("new/server"), names);
+    }
+
+    @Test
+    public void testFirstPageIsServedWhileLaterPagesLoad() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        CountDownLatch releaseSecondPage = new CountDownLatch(1);
+        McpxServerListCache.PageLoader pages = cursor -> {
+            if (cursor == null) {
+                return page(Arrays.asList("a/1", "a/2"), "p2");
+            }
+            if ("p2".equals(cursor)) {
+                releaseSecondPage.await(5, TimeUnit.SECONDS);
+                return page(Arrays.asList("a/2", "a/3"), "p3");
+            }
+            return page(Collections.singletonList("a/4"), null);
+        };
+
+        List<String> first = cache.get("https://r", "mcpx-cli", pages);
+
+        assertEquals(Arrays.asList("a/1", "a/2"), first);
+        assertFalse(cache.isComplete("https://r", "mcpx-cli"));
+
+        releaseSecondPage.countDown();
+        assertTrue("Remaining pages should load in the background", waitForComplete(cache));
+        assertEquals(Arrays.asList("a/1", "a/2", "a/3", "a/4"), cache.get("https://r", "mcpx-cli", pages));
+    }
+
+    @Test
+    public void testRefreshSupersedesPagesStillLoading() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        CountDownLatch releaseSecondPage = new CountDownLatch(1);
+        CountDownLatch secondPageDone = new CountDownLatch(1);
+        cache.get("https://r", "mcpx-cli", cursor -> {
+            if (cursor == null) {
+                return page(Collections.singletonList("old/1"), "p2");
+            }
+            releaseSecondPage.await(5, TimeUnit.SECONDS);
+            secondPageDone.countDown();
+            return page(Collections.singletonList("old/2"), null);
+        });
+
+        List<String> refreshed = cache.refresh("https://r", "mcpx-cli", cursor -> page(Collections.singletonList("new/1"), null));
+        releaseSecondPage.countDown();
+        assertTrue(secondPageDone.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        assertEquals(Collections.singletonList("new/1"), refreshed);
+        assertEquals(Collections.singletonList("new/1"), cache.get("https://r", "mcpx-cli", cursor -> page(Collections.emptyList(), null)));
+        assertTrue(cache.isComplete("https://r", "mcpx-cli"));
+    }
+
+    @Test
+    public void testFailedLaterPageKeepsLoadedPagesAndReloads() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 60_000L);
+        CountDownLatch failed = new CountDownLatch(1);
+        cache.get("https://r", "mcpx-cli", cursor -> {
+            if (cursor == null) {
+                return page(Collections.singletonList("a/1"), "p2");
+            }
+            failed.countDown();
+            throw new IOException("registry down");
+        });
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        assertEquals(Collections.singletonList("a/1"), cache.getIfPresent("https://r", "mcpx-cli"));
+        assertFalse(cache.isComplete("https://r", "mcpx-cli"));
+        assertFalse(cache.isLoading("https://r", "mcpx-cli"));
+        ListBoxModel failedModel = McpxRegistryClient.toListBoxModel(cache.getIfPresent("https://r", "mcpx-cli"), false, false);
+        assertEquals(McpxRegistryClient.INCOMPLETE_LABEL, failedModel.get(failedModel.size() - 1).name);
+
+        // Still within the TTL, but the incomplete listing is reloaded in full
+        List<String> served = cache.get("https://r", "mcpx-cli", cursor -> cursor == null
+                ? page(Collections.singletonList("a/1"), "p2")
+                : page(Collections.singletonList("a/2"), null));
+
+        assertEquals(Collections.singletonList("a/1"), served);
+        assertTrue("Incomplete listing should be reloaded in the background", waitForComplete(cache));
+        assertEquals(Arrays.asList("a/1", "a/2"), cache.getIfPresent("https://r", "mcpx-cli"));
+        ListBoxModel reloaded = McpxRegistryClient.toListBoxModel(cache.getIfPresent("https://r", "mcpx-cli"), true, false);
+        assertEquals(2, reloaded.size());
+    }
+
+    @Test
+    public void testLoadingPlaceholderOnlyWhilePagesLoad() {
+        List<String> names = Collections.singletonList("a/1");
+
+        ListBoxModel loading = McpxRegistryClient.toListBoxModel(names, false, true);
+
+        assertEquals(McpxRegistryClient.LOADING_MORE_LABEL, loading.get(loading.size() - 1).name);
+        for (ListBoxModel.Option opt : McpxRegistryClient.toListBoxModel(names, false, false)) {
+            assertFalse(McpxRegistryClient.LOADING_MORE_LABEL.equals(opt.name));
+        }
+    }
+
+    @Test
+    public void testZeroTtlLoadsEveryPage() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 0L);
+
+        List<String> names = cache.get("https://r", "mcpx-cli", cursor -> cursor == null
+                ? page(Collections.singletonList("a/1"), "p2")
+                : page(Collections.singletonList("a/2"), null));
+
+        assertEquals(Arrays.asList("a/1", "a/2"), names);
+    }
+
+    @Test
+    public void testRepeatedCursorEndsListing() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(now::get, () -> 0L);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<String> names = cache.get("https://r", "mcpx-cli", cursor -> {
+            loads.incrementAndGet();
+            return page(Collections.singletonList("a/1"), "same");
+        });
+
+        assertEquals(Collections.singletonList("a/1"), names);
+        assertEquals(2, loads.get());
+    }
+
+    private static McpxServerListParser.Result page(List<String> names, String nextCursor) {
+        return new McpxServerListParser.Result(names, true, nextCursor);
+    }
+
+    private static boolean waitForComplete(McpxServerListCache cache) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!cache.isComplete("https://r", "mcpx-cli")) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static List<String> waitFor(McpxServerListCache cache, List<String> expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> current;
+        do {
+            current = cache.get("https://r", "mcpx-cli", () -> expected);
+            if (expected.equals(current)) break;
+            Thread.sleep(10);
+        } while (System.currentTimeMillis() < deadline);
+        return current;
+    }
+}
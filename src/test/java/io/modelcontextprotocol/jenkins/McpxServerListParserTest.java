@@ -0,0 +1,189 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxServerListParser.
+ */
+public class McpxServerListParserTest {
+
+    @Test
+    public void testObjectEnvelope() throws IOException {
+        String json = "{\"servers\":[{\"name\":\"io.example/a\",\"description\":\"A\"},{\"name\":\"io.example/b\"}],\"metadata\":{\"count\":2}}";
+
+        assertEquals(Arrays.asList("io.example/a", "io.example/b"), parse(json));
+    }
+
+    @Test
+    public void testBareArray() throws IOException {
+        assertEquals(Arrays.asList("a/b", "c/d"), parse("[ {\"name\": \"a/b\"}, {\"name\": \"c/d\"} ]"));
+    }
+
+    @Test
+    public void testNestedServerName() throws IOException {
+        String json = "{\"servers\":[{\"server\":{\"description\":\"x\",\"name\":\"io.example/a\"},\"_meta\":{}},"
+                + "{\"server\":{\"name\":\"ignored\"},\"name\":\"io.example/b\"}]}";
+
+        assertEquals(Arrays.asList("io.example/a", "io.example/b"), parse(json));
+    }
+
+    @Test
+    public void testDuplicatesAndNamelessEntriesAreDropped() throws IOException {
+        String json = "{\"servers\":[{\"name\":\"a\"},{\"name\":\"\"},{\"description\":\"none\"},{\"name\":\"a\"},42,null]}";
+
+        assertEquals(Collections.singletonList("a"), parse(json));
+    }
+
+    @Test
+    public void testSkippedValuesMayContainBracketsAndEscapes() throws IOException {
+        String json = "{\"servers\":[{\"description\":\"}]{[\\\"\",\"packages\":[{\"args\":[[1,2],{\"k\":true}]}],"
+                + "\"name\":\"io.example/caf\\u00e9\\/x\"}]}";
+
+        assertEquals(Collections.singletonList("io.example/café/x"), parse(json));
+    }
+
+    @Test
+    public void testNextCursor() throws IOException {
+        McpxServerListParser.Result paged = McpxServerListParser.parse(new StringReader(
+                "{\"servers\":[{\"name\":\"a\"}],\"metadata\":{\"count\":1,\"nextCursor\":\"abc\"}}"));
+        McpxServerListParser.Result snake = McpxServerListParser.parse(new StringReader(
+                "{\"metadata\":{\"next_cursor\":\"def\"},\"servers\":[]}"));
+        McpxServerListParser.Result last = McpxServerListParser.parse(new StringReader(
+                "{\"servers\":[{\"name\":\"a\"}],\"metadata\":{\"nextCursor\":\"\"}}"));
+
+        assertEquals("abc", paged.getNextCursor());
+        assertEquals("def", snake.getNextCursor());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        McpxServerListParser.Result result = McpxServerListParser.parse(new StringReader("  \n"));
+
+        assertTrue(result.isRecognized());
+        assertTrue(result.getNames().isEmpty());
+    }
+
+    @Test
+    public void testUnrecognizedShape() throws IOException {
+        McpxServerListParser.Result result = McpxServerListParser.parse(new StringReader("{\"error\":\"unauthorized\"}"));
+
+        assertFalse(result.isRecognized());
+        try {
+            parse("{\"error\":\"unauthorized\"}");
+            fail("Unrecognized listings should be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("unrecognized"));
+        }
+    }
+
+    @Test
+    public void testMalformedInputIsRejected() {
+        for (String json : new String[] {"{\"servers\":[{\"name\":\"a\"}", "{\"servers\":[{\"name\" \"a\"}]}", "[{\"name\":\"a}]", "{\"servers\":{}}"}) {
+            try {
+                parse(json);
+                fail("Should reject: " + json);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().startsWith("Malformed registry JSON"));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeListingIsStreamed() throws IOException {
+        int count = 20_000;
+        List<String> names = McpxServerListParser.parseNames(new GeneratedListing(count));
+
+        assertEquals(count, names.size());
+        assertEquals("io.example/server-0", names.get(0));
+        assertEquals("io.example/server-" + (count - 1), names.get(count - 1));
+    }
+
+    @Test
+    public void testRegistryClientUsesStreamingParser() {
+        McpxRegistryClient client = new McpxRegistryClient();
+
+        assertEquals("<parse error>", client.parseServersJson("{\"servers\":[").get(0).name);
+        assertEquals("<unrecognized registry response>", client.parseServersJson("{\"items\":[]}").get(0).name);
+        assertEquals("<no servers>", client.parseServersJson("{\"servers\":[]}").get(0).name);
+    }
+
+    @Test
+    public void testChangesCarryVersionsAndRemovals() throws IOException {
+        String json = "{\"servers\":["
+                + "{\"server\":{\"name\":\"io.example/a\",\"version\":\"1.1.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"active\",\"isLatest\":true}}},"
+                + "{\"server\":{\"name\":\"io.example/a\",\"version\":\"1.0.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"active\",\"isLatest\":false}}},"
+                + "{\"server\":{\"name\":\"io.example/b\",\"version\":\"2.0.0\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"deleted\"}}},"
+                + "{\"name\":\"io.example/c\",\"version\":\"0.1.0\"}"
+                + "],\"metadata\":{\"nextCursor\":\"next\"}}";
+
+        McpxServerListParser.Result result = McpxServerListParser.parseChanges(new StringReader(json));
+
+        assertEquals(Arrays.asList("io.example/a", "io.example/c"), result.getNames());
+        assertEquals("1.1.0", result.getVersions().get("io.example/a"));
+        assertEquals("0.1.0", result.getVersions().get("io.example/c"));
+        assertEquals(Collections.singleton("io.example/b"), result.getRemoved());
+        assertEquals("next", result.getNextCursor());
+    }
+
+    @Test
+    public void testPlainParseKeepsDeletedAndOlderEntries() throws IOException {
+        String json = "{\"servers\":[{\"server\":{\"name\":\"io.example/b\"},\"_meta\":{\"io.modelcontextprotocol.registry/official\":{\"status\":\"deleted\",\"isLatest\":false}}}]}";
+
+        assertEquals(Collections.singletonList("io.example/b"), parse(json));
+        assertTrue(McpxServerListParser.parse(new StringReader(json)).getVersions().isEmpty());
+    }
+
+    private static List<String> parse(String json) throws IOException {
+        return McpxServerListParser.parseNames(new StringReader(json));
+    }
+
+    /**
+     * Produces a large listing on the fly, so the full text is never held in memory.
+     */
+    private static final class GeneratedListing extends Reader {
+        private final int count;
+        private int next;
+        private String pending = "{\"servers\":[";
+        private int pendingPos;
+
+        GeneratedListing(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pendingPos == pending.length()) {
+                if (next > count) {
+                    return -1;
+                }
+                if (next == count) {
+                    pending = "],\"metadata\":{\"count\":" + count + "}}";
+                } else {
+                    pending = (next > 0 ? "," : "") + "{\"server\":{\"name\":\"io.example/server-" + next
+                            + "\",\"description\":\"A generated server with a reasonably long description\","
+                            + "\"packages\":[{\"registryType\":\"oci\",\"runtimeArguments\":[]}]},\"_meta\":{\"status\":\"active\"}}";
+                }
+                next++;
+                pendingPos = 0;
+            }
+            int n = Math.min(len, pending.length() - pendingPos);
+            pending.getChars(pendingPos, pendingPos + n, cbuf, off);
+            pendingPos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.modelcontextprotocol.jenkins;
+
+import hudson.util.ListBoxModel;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxSingleFlight, including concurrent dropdown loads against a fake mcpx-cli.
+ */
+public class McpxSingleFlightTest {
+    private static final int CALLERS = 32;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testConcurrentDropdownLoadsShareOneCliInvocation() throws Exception {
+        Assume.assumeFalse("Requires a POSIX shell", System.getProperty("os.name").toLowerCase().contains("win"));
+        File counter = new File(tmp.getRoot(), "invocations");
+        File cli = fakeCli(counter);
+        String cliPath = cli.getAbsolutePath();
+        McpxServerListCache cache = new McpxServerListCache(System::currentTimeMillis, () -> 60_000L);
+        McpxRegistryClient client = new McpxRegistryClient();
+        AtomicInteger fetches = new AtomicInteger();
+
+        // The dropdown path: cache, single flight, circuit breaker and rate limit, then mcpx-cli on the controller
+        List<ListBoxModel> results = runConcurrently(() -> client.listServers(cache, "https://r", cliPath, false, "Failed",
+                cursor -> {
+                    fetches.incrementAndGet();
+                    return client.listServersOnController(cliPath, "https://r", cursor, 0);
+                }));
+
+        assertEquals(1, fetches.get());
+        // A login may run first; the listing itself runs once
+        assertEquals("Exactly one mcpx-cli listing should run", 1,
+                Files.readAllLines(counter.toPath()).stream().filter(line -> line.contains("servers")).count());
+        for (ListBoxModel model : results) {
+            assertEquals("io.example/a", model.get(0).value);
+        }
+    }
+
+    @Test
+    public void testConcurrentCacheMissesLoadOnce() throws Exception {
+        McpxServerListCache cache = new McpxServerListCache(System::currentTimeMillis, () -> 60_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<List<String>> results = runConcurrently(() -> cache.get("https://r", "mcpx-cli", () -> {
+            loads.incrementAndGet();
+            Thread.sleep(300);
+            return Collections.singletonList("io.example/a");
+        }));
+
+        assertEquals(1, loads.get());
+        for (List<String> names : results) {
+            assertEquals(Collections.singletonList("io.example/a"), names);
+        }
+    }
+
+    @Test
+    public void testFailureIsSharedWithWaiters() throws Exception {
+        McpxSingleFlight<String, String> flight = new McpxSingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(pool.submit(() -> flight.execute("k", () -> {
+                    calls.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    throw new IOException("registry down");
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> f : futures) {
+                try {
+                    f.get(5, TimeUnit.SECONDS);
+                    fail("Failure should propagate to every caller");
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IOException);
+                }
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUnrelatedKeysDoNotBlockEachOther() throws Exception {
+        McpxSingleFlight<String, String> flight = new McpxSingleFlight<>();
+        CountDownLatch blockA = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> a = pool.submit(() -> flight.execute("a", () -> {
+                blockA.await(5, TimeUnit.SECONDS);
+                return "A";
+            }));
+            Thread.sleep(50);
+
+            assertEquals("B", flight.execute("b", () -> "B"));
+            assertFalse("Key a should still be in flight", a.isDone());
+
+            blockA.countDown();
+            assertEquals("A", a.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsRunAgain() throws Exception {
+        McpxSingleFlight<String, Integer> flight = new McpxSingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        flight.execute("k", calls::incrementAndGet);
+        flight.execute("k", calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+    }
+
+    private <T> List<T> runConcurrently(McpxSingleFlight.Call<T> call) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    return call.call();
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> f : futures) {
+                results.add(f.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private File fakeCli(File counter) throws IOException {
+        File cli = new File(tmp.getRoot(), "mcpx-cli");
+        String script = "#!/bin/sh\n"
+                + "echo \"$@\" >> '" + counter.getAbsolutePath() + "'\n"
+                + "sleep 0.5\n"
+                + "echo '{\"servers\":[{\"name\":\"io.example/a\"}]}'\n";
+        Files.write(cli.toPath(), script.getBytes(StandardCharsets.UTF_8));
+        assertTrue(cli.setExecutable(true));
+        return cli;
+    }
+}
@@ -0,0 +1,170 @@
+package io.modelcontextprotocol.jenkins;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for McpxWebhook.
+ */
+public class McpxWebhookTest {
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final String BASE_URL = "https://registry.example.com";
+    private static final String SECRET = "s3cret";
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private McpxServerListCache lists;
+    private McpxServerDetailsCache details;
+    private McpxInvalidations invalidations;
+
+    @Before
+    public void setUp() throws Exception {
+        lists = new McpxServerListCache(now::get, () -> TTL);
+        details = new McpxServerDetailsCache(now::get, () -> TTL, 1024 * 1024);
+        invalidations = new McpxInvalidations(now::get, () -> TTL);
+        lists.get(BASE_URL, McpxRegistryClient.HTTP_SOURCE, (McpxServerListCache.Loader) () -> Arrays.asList("io.example/a", "io.example/b"));
+        details.get(BASE_URL, "io.example/a", () -> new McpxServerDetails("io.example/a", "1.0.0", Collections.emptyList()));
+        details.get(BASE_URL, "io.example/b", () -> new McpxServerDetails("io.example/b", "1.0.0", Collections.emptyList()));
+    }
+
+    @Test
+    public void testValidSignatureIsAccepted() throws Exception {
+        byte[] body = "{\"servers\":[\"io.example/a\"]}".getBytes(StandardCharsets.UTF_8);
+        String signature = sign(SECRET, "1700000000", body);
+
+        assertTrue(McpxWebhook.verify(SECRET, "1700000000", body, "sha256=" + signature));
+        assertTrue(McpxWebhook.verify(SECRET, "1700000000", body, signature.toUpperCase()));
+    }
+
+    @Test
+    public void testInvalidSignatureIsRejected() throws Exception {
+        byte[] body = "{\"servers\":[\"io.example/a\"]}".getBytes(StandardCharsets.UTF_8);
+        String signature = "sha256=" + sign(SECRET, "1700000000", body);
+
+        assertFalse(McpxWebhook.verify(SECRET, "1700000000", body, null));
+        assertFalse(McpxWebhook.verify(SECRET, "1700000000", body, ""));
+        assertFalse(McpxWebhook.verify(SECRET, null, body, signature));
+        assertFalse(McpxWebhook.verify(SECRET, "1700000000", body, "sha256=" + sign("other", "1700000000", body)));
+        assertFalse(McpxWebhook.verify(SECRET, "1700000000", "{\"servers\":[]}".getBytes(StandardCharsets.UTF_8), signature));
+        // The timestamp is signed, so a captured call cannot be sent again with a new one
+        assertFalse(McpxWebhook.verify(SECRET, "1700000300", body, signature));
+    }
+
+    @Test
+    public void testOnlyRecentTimestampsAreAccepted() {
+        long nowMillis = TimeUnit.SECONDS.toMillis(1_700_000_000L);
+        long skew = McpxWebhook.MAX_SKEW_SECONDS;
+
+        assertTrue(McpxWebhook.isFresh("1700000000", nowMillis));
+        assertTrue(McpxWebhook.isFresh(String.valueOf(1_700_000_000L - skew), nowMillis));
+        assertTrue(McpxWebhook.isFresh(String.valueOf(1_700_000_000L + skew), nowMillis));
+        assertFalse(McpxWebhook.isFresh(String.valueOf(1_700_000_000L - skew - 1), nowMillis));
+        assertFalse(McpxWebhook.isFresh(String.valueOf(1_700_000_000L + skew + 1), nowMillis));
+        assertFalse(McpxWebhook.isFresh("yesterday", nowMillis));
+    }
+
+    @Test
+    public void testReplayedSignatureIsRejected() {
+        Map<String, Long> seen = new HashMap<>();
+        long nowMillis = TimeUnit.SECONDS.toMillis(1_700_000_000L);
+
+        assertTrue(McpxWebhook.firstUse(seen, "sha256=abc", 1_700_000_000L, nowMillis));
+        assertFalse(McpxWebhook.firstUse(seen, "ABC", 1_700_000_000L, nowMillis + 1000));
+        assertTrue(McpxWebhook.firstUse(seen, "sha256=def", 1_700_000_000L, nowMillis));
+
+        // Signatures are forgotten once their timestamp is too old to be accepted anyway
+        long later = nowMillis + TimeUnit.SECONDS.toMillis(McpxWebhook.MAX_SKEW_SECONDS + 1);
+        assertTrue(McpxWebhook.firstUse(seen, "sha256=123", TimeUnit.MILLISECONDS.toSeconds(later), later));
+        assertEquals(Collections.singleton("123"), seen.keySet());
+    }
+
+    @Test
+    public void testRefreshDropsDetailsWithoutAddingToListing() throws Exception {
+        now.addAndGet(1000);
+        McpxWebhook.apply(McpxWebhook.ACTION_REFRESH, BASE_URL, Arrays.asList("io.example/a", "io.example/new"), lists, details, invalidations);
+
+        assertNull(details.getIfPresent(BASE_URL, "io.example/a"));
+        assertNotNull(details.getIfPresent(BASE_URL, "io.example/b"));
+        // Only the background fetch adds servers it finds; the body alone does not prove they exist
+        assertEquals(Arrays.asList("io.example/a", "io.example/b"), cachedNames());
+        // Agents' disk caches are bypassed for the server and the listings
+        assertEquals(0, invalidations.serverInvalidatedAgo(BASE_URL, "io.example/a"));
+        assertEquals(-1, invalidations.serverInvalidatedAgo(BASE_URL, "io.example/b"));
+        assertEquals(0, invalidations.listingsInvalidatedAgo(BASE_URL));
+    }
+
+    @Test
+    public void testInvalidateDropsListing() throws Exception {
+        McpxWebhook.apply(McpxWebhook.ACTION_INVALIDATE, BASE_URL, Collections.singletonList("io.example/new"), lists, details, invalidations);
+
+        assertFalse(lists.isComplete(BASE_URL, McpxRegistryClient.HTTP_SOURCE));
+        assertNotNull(details.getIfPresent(BASE_URL, "io.example/a"));
+    }
+
+    @Test
+    public void testDeleteRemovesFromListing() throws Exception {
+        McpxWebhook.apply(McpxWebhook.ACTION_DELETE, BASE_URL, Collections.singletonList("io.example/a"), lists, details, invalidations);
+
+        assertNull(details.getIfPresent(BASE_URL, "io.example/a"));
+        assertEquals(Collections.singletonList("io.example/b"), cachedNames());
+    }
+
+    @Test
+    public void testNoServersDropsWholeRegistry() throws Exception {
+        McpxWebhook.apply(McpxWebhook.ACTION_INVALIDATE, BASE_URL, Collections.emptyList(), lists, details, invalidations);
+
+        assertNull(details.getIfPresent(BASE_URL, "io.example/a"));
+        assertNull(details.getIfPresent(BASE_URL, "io.example/b"));
+        assertFalse(lists.isComplete(BASE_URL, McpxRegistryClient.HTTP_SOURCE));
+        assertEquals(0, invalidations.serverInvalidatedAgo(BASE_URL, "io.example/b"));
+    }
+
+    @Test
+    public void testInvalidationsAreSentAsAges() {
+        invalidations.invalidateServer(BASE_URL, "io.example/a");
+        now.addAndGet(1500);
+
+        // Relative to the controller's clock, so agents with another time still apply it correctly
+        assertEquals(1500, invalidations.serverInvalidatedAgo(BASE_URL, "io.example/a"));
+        assertEquals(1500, invalidations.listingsInvalidatedAgo(BASE_URL));
+    }
+
+    @Test
+    public void testInvalidationsAreForgottenAfterTtl() {
+        invalidations.invalidateServer(BASE_URL, "io.example/a");
+        now.addAndGet(TTL);
+        invalidations.invalidateServer(BASE_URL, "io.example/b");
+
+        assertEquals(-1, invalidations.serverInvalidatedAgo(BASE_URL, "io.example/a"));
+        assertEquals(0, invalidations.serverInvalidatedAgo(BASE_URL, "io.example/b"));
+    }
+
+    private List<String> cachedNames() throws Exception {
+        return lists.get(BASE_URL, McpxRegistryClient.HTTP_SOURCE, (McpxServerListCache.Loader) () -> {
+            throw new AssertionError("The listing should be served from the cache");
+        });
+    }
+
+    private static String sign(String secret, String timestamp, byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : mac.doFinal(body)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}